@@ -0,0 +1,173 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many PipelineRuns and TaskRuns the plugin has in flight on a cluster and namespace so that a burst of
+ * builds queues up in Jenkins rather than overwhelming the Tekton controller.
+ *
+ * Waiting builds are admitted by priority, then by whichever job has the fewest runs in flight so that one busy
+ * job cannot starve the others, then in arrival order.
+ *
+ * A queue is dropped once every build which got it has released it so that clusters and namespaces which are no
+ * longer used do not hold on to a queue each.
+ */
+public class AdmissionQueue {
+    static final long STATUS_MILLIS = Long.getLong(AdmissionQueue.class.getName() + ".statusMillis", TimeUnit.SECONDS.toMillis(30));
+
+    private static final Map<String, AdmissionQueue> QUEUES = new HashMap<>();
+
+    private final String name;
+    private final List<Ticket> waiting = new ArrayList<>();
+    private final Map<String, Integer> inFlightPerJob = new HashMap<>();
+    // how many builds got this queue and are yet to release it, guarded by the class lock like QUEUES
+    private int users;
+    private int inFlight;
+    private long sequence;
+
+    private final Comparator<Ticket> order = Comparator
+            .comparingInt((Ticket t) -> -t.priority)
+            .thenComparingInt(t -> inFlightPerJob.getOrDefault(t.job, 0))
+            .thenComparingLong(t -> t.sequence);
+
+    AdmissionQueue(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param cluster the cluster name
+     * @param namespace the namespace which may be null
+     * @return the queue for the cluster and namespace which must be released by {@link #release(Ticket)} once
+     */
+    public static synchronized AdmissionQueue get(String cluster, String namespace) {
+        String name = cluster + "/" + (namespace != null ? namespace : "");
+        AdmissionQueue queue = QUEUES.computeIfAbsent(name, AdmissionQueue::new);
+        queue.users++;
+        return queue;
+    }
+
+    /**
+     * Blocks until the run may be created
+     *
+     * @param job the full name of the job
+     * @param priority runs with a higher priority are admitted first
+     * @param maxInFlight the maximum number of runs in flight, 0 or less for no limit
+     * @param console where to report the position in the queue
+     * @return the ticket to {@link #release(Ticket)} when the run completes
+     * @throws InterruptedException if the build is aborted while waiting
+     */
+    public synchronized Ticket acquire(String job, int priority, int maxInFlight, PrintStream console) throws InterruptedException {
+        Ticket ticket = new Ticket(job, priority, sequence++);
+        if (maxInFlight <= 0) {
+            admit(ticket);
+            return ticket;
+        }
+        waiting.add(ticket);
+        int lastPosition = -1;
+        long lastReport = 0;
+        try {
+            while (true) {
+                if (inFlight < maxInFlight && next() == ticket) {
+                    waiting.remove(ticket);
+                    admit(ticket);
+                    if (lastPosition > 0) {
+                        console.println("[Tekton] Admitted to " + name);
+                    }
+                    // the next waiter may be admitted too if there is still room
+                    notifyAll();
+                    return ticket;
+                }
+                int position = getPosition(ticket);
+                long now = System.currentTimeMillis();
+                if (position != lastPosition || now - lastReport >= STATUS_MILLIS) {
+                    console.println("[Tekton] Waiting to create on " + name + ": position " + position + " of " +
+                            waiting.size() + " with " + inFlight + "/" + maxInFlight + " runs in flight");
+                    lastPosition = position;
+                    lastReport = now;
+                }
+                wait(STATUS_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            waiting.remove(ticket);
+            notifyAll();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the ticket and drops the queue once no other build is using it
+     *
+     * @param ticket the ticket from {@link #acquire(String, int, int, PrintStream)} which may be null if the build
+     * never got one, e.g. as it was aborted while waiting
+     */
+    public void release(Ticket ticket) {
+        synchronized (this) {
+            if (ticket != null) {
+                if (ticket.released) {
+                    return;
+                }
+                ticket.released = true;
+                inFlight--;
+                int count = inFlightPerJob.getOrDefault(ticket.job, 0) - 1;
+                if (count > 0) {
+                    inFlightPerJob.put(ticket.job, count);
+                } else {
+                    inFlightPerJob.remove(ticket.job);
+                }
+                notifyAll();
+            }
+        }
+        synchronized (AdmissionQueue.class) {
+            if (--users <= 0) {
+                users = 0;
+                QUEUES.remove(name, this);
+            }
+        }
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    static synchronized int getQueueCount() {
+        return QUEUES.size();
+    }
+
+    private void admit(Ticket ticket) {
+        inFlight++;
+        inFlightPerJob.merge(ticket.job, 1, Integer::sum);
+    }
+
+    private Ticket next() {
+        return waiting.stream().min(order).orElse(null);
+    }
+
+    private int getPosition(Ticket ticket) {
+        List<Ticket> sorted = new ArrayList<>(waiting);
+        sorted.sort(order);
+        return sorted.indexOf(ticket) + 1;
+    }
+
+    public static final class Ticket {
+        private final String job;
+        private final int priority;
+        private final long sequence;
+        private boolean released;
+
+        private Ticket(String job, int priority, long sequence) {
+            this.job = job != null ? job : "";
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.google.common.base.Strings;
+import io.fabric8.knative.internal.pkg.apis.Condition;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRun;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.WaitStrategy;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Helper methods to cancel PipelineRuns and TaskRuns, e.g. when the Jenkins build is aborted
+ */
+public class CancelUtils {
+    private static final Logger LOGGER = Logger.getLogger(CancelUtils.class.getName());
+
+    public static final String PIPELINE_RUN_CANCELLED = "PipelineRunCancelled";
+    public static final String TASK_RUN_CANCELLED = "TaskRunCancelled";
+
+    /**
+     * Cancels the PipelineRun so that Tekton stops its TaskRuns and frees up the pods
+     *
+     * @param tektonClient the client
+     * @param ns the namespace of the PipelineRun
+     * @param name the name of the PipelineRun
+     * @param gracePeriodSeconds if positive, how long to wait for the cancellation before deleting the PipelineRun
+     * @return true if the PipelineRun was cancelled or deleted
+     */
+    public static boolean cancelPipelineRun(TektonClient tektonClient, String ns, String name, long gracePeriodSeconds) {
+        Resource<PipelineRun> resource = Strings.isNullOrEmpty(ns) ?
+                tektonClient.v1beta1().pipelineRuns().withName(name) :
+                tektonClient.v1beta1().pipelineRuns().inNamespace(ns).withName(name);
+        return cancel("PipelineRun", ns, name, resource, pr -> {
+            pr.getSpec().setStatus(PIPELINE_RUN_CANCELLED);
+            return pr;
+        }, pr -> pr.getStatus() != null ? pr.getStatus().getConditions() : null, gracePeriodSeconds);
+    }
+
+    /**
+     * Cancels the TaskRun so that Tekton stops its pod
+     *
+     * @param tektonClient the client
+     * @param ns the namespace of the TaskRun
+     * @param name the name of the TaskRun
+     * @param gracePeriodSeconds if positive, how long to wait for the cancellation before deleting the TaskRun
+     * @return true if the TaskRun was cancelled or deleted
+     */
+    public static boolean cancelTaskRun(TektonClient tektonClient, String ns, String name, long gracePeriodSeconds) {
+        Resource<TaskRun> resource = Strings.isNullOrEmpty(ns) ?
+                tektonClient.v1beta1().taskRuns().withName(name) :
+                tektonClient.v1beta1().taskRuns().inNamespace(ns).withName(name);
+        return cancel("TaskRun", ns, name, resource, tr -> {
+            tr.getSpec().setStatus(TASK_RUN_CANCELLED);
+            return tr;
+        }, tr -> tr.getStatus() != null ? tr.getStatus().getConditions() : null, gracePeriodSeconds);
+    }
+
+    /**
+     * Marks the run as cancelled then, if there is a grace period, waits for Tekton to stop it, waking up whenever a
+     * watch reports a change to the run, and deletes it if it is still running once the grace period is over
+     */
+    private static <T extends HasMetadata> boolean cancel(String kind, String ns, String name, Resource<T> resource,
+                                                          UnaryOperator<T> cancel, Function<T, List<Condition>> conditions,
+                                                          long gracePeriodSeconds) {
+        try {
+            T current = resource.get();
+            if (current == null || isDone(conditions.apply(current))) {
+                return false;
+            }
+            LOGGER.info("Cancelling " + kind + " " + ns + "/" + name);
+            resource.edit(cancel);
+        } catch (KubernetesClientException e) {
+            LOGGER.log(Level.WARNING, "failed to cancel " + kind + " " + ns + "/" + name, e);
+            return false;
+        }
+        if (gracePeriodSeconds <= 0) {
+            return true;
+        }
+        WaitStrategy.Waiter waiter = WaitStrategy.resolve(null)
+                .newWaiter(System.nanoTime() + TimeUnit.SECONDS.toNanos(gracePeriodSeconds));
+        Watch watch = WaitStrategy.watchQuietly(() -> resource.watch(waiter.wakeUpOnChange()));
+        try {
+            while (true) {
+                T current = resource.get();
+                if (current == null || isDone(conditions.apply(current))) {
+                    return true;
+                }
+                if (!waiter.await()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // the build was interrupted again so lets not wait any longer for the cancellation
+            Thread.currentThread().interrupt();
+        } finally {
+            WaitStrategy.closeQuietly(watch);
+        }
+        LOGGER.info(kind + " " + ns + "/" + name + " did not stop within " + gracePeriodSeconds + "s so deleting it");
+        return Boolean.TRUE.equals(resource.delete());
+    }
+
+    /**
+     * @param conditions the status conditions of a PipelineRun or TaskRun
+     * @return true if the <code>Succeeded</code> condition is no longer <code>Unknown</code>
+     */
+    public static boolean isDone(List<Condition> conditions) {
+        if (conditions == null) {
+            return false;
+        }
+        for (Condition condition : conditions) {
+            if ("Succeeded".equalsIgnoreCase(condition.getType())) {
+                return !"Unknown".equalsIgnoreCase(condition.getStatus());
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,208 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.google.common.base.Strings;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.ResourceQuota;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
+import org.waveywaves.jenkins.plugins.tekton.client.global.ClusterConfig;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Picks the cluster to create a PipelineRun on from the clusters in the global configuration.
+ *
+ * The state of each cluster is cached for a short time so that a burst of builds does not list every cluster for
+ * every build; clusters we fail to query are only picked if nothing else is available.
+ */
+public class ClusterPlacement {
+    private static final Logger LOGGER = Logger.getLogger(ClusterPlacement.class.getName());
+
+    static final long CACHE_MILLIS = Long.getLong(ClusterPlacement.class.getName() + ".cacheMillis", TimeUnit.SECONDS.toMillis(15));
+
+    private static final ConcurrentMap<String, ClusterState> STATES = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> CURRENT_WEIGHTS = new HashMap<>();
+
+    public enum Strategy {
+        LEAST_PENDING,
+        WEIGHTED_ROUND_ROBIN,
+        QUOTA_HEADROOM
+    }
+
+    /**
+     * @param strategy the placement strategy
+     * @param candidates the clusters to choose from
+     * @param namespace the namespace the PipelineRun will be created in, or null for the cluster default
+     * @return the name of the chosen cluster or null if there are no candidates
+     */
+    public static String choose(Strategy strategy, List<ClusterConfig> candidates, String namespace) {
+        return choose(strategy, candidates, cc -> getState(cc, namespace));
+    }
+
+    static String choose(Strategy strategy, List<ClusterConfig> candidates, Function<ClusterConfig, ClusterState> states) {
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        if (strategy == Strategy.WEIGHTED_ROUND_ROBIN) {
+            return chooseWeightedRoundRobin(candidates);
+        }
+        ClusterConfig best = null;
+        ClusterState bestState = null;
+        for (ClusterConfig cc : candidates) {
+            ClusterState state = states.apply(cc);
+            if (best == null || isBetter(strategy, state, bestState)) {
+                best = cc;
+                bestState = state;
+            }
+        }
+        // lets count the run we are about to create so that a burst of builds spreads out
+        bestState.pendingPipelineRuns.incrementAndGet();
+        LOGGER.info("Placing PipelineRun on cluster " + best.getName() + " using " + strategy + " " + bestState);
+        return best.getName();
+    }
+
+    private static boolean isBetter(Strategy strategy, ClusterState state, ClusterState best) {
+        if (state.failed != best.failed) {
+            return !state.failed;
+        }
+        if (strategy == Strategy.QUOTA_HEADROOM && state.quotaHeadroom != best.quotaHeadroom) {
+            return state.quotaHeadroom > best.quotaHeadroom;
+        }
+        return state.pendingPipelineRuns.get() < best.pendingPipelineRuns.get();
+    }
+
+    /**
+     * Smooth weighted round robin so that heavier clusters are picked more often without picking them in bursts
+     */
+    static String chooseWeightedRoundRobin(List<ClusterConfig> candidates) {
+        synchronized (CURRENT_WEIGHTS) {
+            int total = 0;
+            ClusterConfig best = null;
+            int bestWeight = 0;
+            for (ClusterConfig cc : candidates) {
+                int weight = Math.max(1, cc.getWeight());
+                total += weight;
+                int current = CURRENT_WEIGHTS.getOrDefault(cc.getName(), 0) + weight;
+                CURRENT_WEIGHTS.put(cc.getName(), current);
+                if (best == null || current > bestWeight) {
+                    best = cc;
+                    bestWeight = current;
+                }
+            }
+            CURRENT_WEIGHTS.put(best.getName(), bestWeight - total);
+            return best.getName();
+        }
+    }
+
+    static void reset() {
+        STATES.clear();
+        synchronized (CURRENT_WEIGHTS) {
+            CURRENT_WEIGHTS.clear();
+        }
+    }
+
+    private static ClusterState getState(ClusterConfig cc, String namespace) {
+        String ns = !Strings.isNullOrEmpty(namespace) ? namespace : cc.getDefaultNamespace();
+        String key = cc.getName() + "/" + Strings.nullToEmpty(ns);
+        long now = System.currentTimeMillis();
+        ClusterState state = STATES.get(key);
+        if (state == null || now - state.fetchedAt > CACHE_MILLIS) {
+            state = fetchState(cc.getName(), ns, now);
+            STATES.put(key, state);
+        }
+        return state;
+    }
+
+    private static ClusterState fetchState(String cluster, String ns, long now) {
+        TektonClient tektonClient = TektonUtils.getTektonClient(cluster);
+        KubernetesClient kubernetesClient = TektonUtils.getKubernetesClient(cluster);
+        if (tektonClient == null || kubernetesClient == null) {
+            return new ClusterState(now, 0, 0, true);
+        }
+        try {
+            List<PipelineRun> pipelineRuns = Strings.isNullOrEmpty(ns) ?
+                    tektonClient.v1beta1().pipelineRuns().list().getItems() :
+                    tektonClient.v1beta1().pipelineRuns().inNamespace(ns).list().getItems();
+            int pending = 0;
+            for (PipelineRun pr : pipelineRuns) {
+                if (pr.getStatus() == null || !CancelUtils.isDone(pr.getStatus().getConditions())) {
+                    pending++;
+                }
+            }
+            double headroom = 1.0;
+            if (!Strings.isNullOrEmpty(ns)) {
+                for (ResourceQuota quota : kubernetesClient.resourceQuotas().inNamespace(ns).list().getItems()) {
+                    if (quota.getStatus() != null) {
+                        headroom = Math.min(headroom, getHeadroom(quota.getStatus().getHard(), quota.getStatus().getUsed()));
+                    }
+                }
+            }
+            return new ClusterState(now, pending, headroom, false);
+        } catch (KubernetesClientException e) {
+            LOGGER.log(Level.WARNING, "failed to get the state of cluster " + cluster, e);
+            return new ClusterState(now, 0, 0, true);
+        }
+    }
+
+    /**
+     * @param hard the hard limits of a quota
+     * @param used the current usage of the quota
+     * @return the smallest fraction of any limit which is still available
+     */
+    static double getHeadroom(Map<String, Quantity> hard, Map<String, Quantity> used) {
+        double headroom = 1.0;
+        if (hard == null || used == null) {
+            return headroom;
+        }
+        for (Map.Entry<String, Quantity> entry : hard.entrySet()) {
+            Quantity usedQuantity = used.get(entry.getKey());
+            if (usedQuantity == null) {
+                continue;
+            }
+            try {
+                BigDecimal limit = Quantity.getAmountInBytes(entry.getValue());
+                if (limit.signum() <= 0) {
+                    headroom = 0;
+                    continue;
+                }
+                BigDecimal free = limit.subtract(Quantity.getAmountInBytes(usedQuantity));
+                headroom = Math.min(headroom, free.divide(limit, 4, RoundingMode.HALF_UP).doubleValue());
+            } catch (ArithmeticException | IllegalArgumentException e) {
+                LOGGER.log(Level.FINE, "ignoring quota " + entry.getKey(), e);
+            }
+        }
+        return Math.max(0, headroom);
+    }
+
+    static class ClusterState {
+        private final long fetchedAt;
+        private final AtomicInteger pendingPipelineRuns;
+        private final double quotaHeadroom;
+        private final boolean failed;
+
+        ClusterState(long fetchedAt, int pendingPipelineRuns, double quotaHeadroom, boolean failed) {
+            this.fetchedAt = fetchedAt;
+            this.pendingPipelineRuns = new AtomicInteger(pendingPipelineRuns);
+            this.quotaHeadroom = quotaHeadroom;
+            this.failed = failed;
+        }
+
+        @Override
+        public String toString() {
+            return "pending=" + pendingPipelineRuns + ", quotaHeadroom=" + quotaHeadroom + (failed ? ", failed" : "");
+        }
+    }
+}
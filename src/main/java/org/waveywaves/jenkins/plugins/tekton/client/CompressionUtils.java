@@ -0,0 +1,50 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Helper methods to compress data before sending it over the remoting channel between an agent and the controller
+ */
+public class CompressionUtils {
+
+    /**
+     * @param data the data to compress
+     * @return the gzip compressed data
+     * @throws IOException if the data could not be compressed
+     */
+    public static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(32, data.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @param data the gzip compressed data
+     * @return the uncompressed data
+     * @throws IOException if the data could not be uncompressed
+     */
+    public static byte[] gunzip(byte[] data) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    /**
+     * @param data the data to check
+     * @return true if the data starts with the gzip magic number
+     */
+    public static boolean isGzipped(byte[] data) {
+        return data != null && data.length >= 2 &&
+                data[0] == (byte) GZIPInputStream.GZIP_MAGIC &&
+                data[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+    }
+}
@@ -0,0 +1,100 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Helper methods to log payloads and environments without flooding the log or leaking secrets
+ */
+public class DiagnosticsUtils {
+    public static final String REDACTED = "****";
+
+    static final int PREVIEW_MAX_CHARS = Integer.getInteger(DiagnosticsUtils.class.getName() + ".previewMaxChars", 4096);
+
+    private static final String SECRET_NAME = "[\\w.-]*(?:password|passwd|token|secret|credential|apikey|api_key|private_key)[\\w.-]*";
+    private static final Pattern SECRET_NAME_PATTERN = Pattern.compile(SECRET_NAME, Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Matches <code>GIT_TOKEN: value</code> or <code>GIT_TOKEN=value</code> lines
+     */
+    private static final Pattern SECRET_ASSIGNMENT = Pattern.compile(
+            "(?im)^(\\s*-?\\s*\"?" + SECRET_NAME + "\"?\\s*[:=]\\s*)\\S.*$");
+
+    /**
+     * Matches <code>name: GIT_TOKEN</code> followed by a <code>value:</code> line as used by env vars and params
+     */
+    private static final Pattern SECRET_NAME_VALUE = Pattern.compile(
+            "(?im)(name:\\s*\"?" + SECRET_NAME + "\"?\\s*\\r?\\n\\s*value:\\s*)\\S.*$");
+
+    /**
+     * @param data the payload which may be null
+     * @return the redacted start of the payload, at most {@link #PREVIEW_MAX_CHARS} characters long
+     */
+    public static String preview(byte[] data) {
+        if (data == null) {
+            return "null";
+        }
+        int length = Math.min(data.length, PREVIEW_MAX_CHARS);
+        String text = new String(data, 0, length, StandardCharsets.UTF_8);
+        return preview(text, data.length - length);
+    }
+
+    /**
+     * @param text the payload which may be null
+     * @return the redacted start of the payload, at most {@link #PREVIEW_MAX_CHARS} characters long
+     */
+    public static String preview(String text) {
+        if (text == null) {
+            return "null";
+        }
+        if (text.length() <= PREVIEW_MAX_CHARS) {
+            return redact(text);
+        }
+        return preview(text.substring(0, PREVIEW_MAX_CHARS), text.length() - PREVIEW_MAX_CHARS);
+    }
+
+    private static String preview(String text, int truncated) {
+        String answer = redact(text);
+        if (truncated > 0) {
+            answer += "\n... (" + truncated + " more truncated)";
+        }
+        return answer;
+    }
+
+    /**
+     * @param text the text to redact
+     * @return the text with the values of anything that looks like a password, token or secret replaced
+     */
+    public static String redact(String text) {
+        if (text == null) {
+            return null;
+        }
+        String answer = SECRET_ASSIGNMENT.matcher(text).replaceAll("$1" + REDACTED);
+        return SECRET_NAME_VALUE.matcher(answer).replaceAll("$1" + REDACTED);
+    }
+
+    /**
+     * @param envVars the environment which may be null
+     * @return a sorted copy of the environment with the values of secret looking variables replaced
+     */
+    public static Map<String, String> redactEnvVars(Map<String, String> envVars) {
+        Map<String, String> answer = new TreeMap<>();
+        if (envVars == null) {
+            return answer;
+        }
+        for (Map.Entry<String, String> entry : envVars.entrySet()) {
+            answer.put(entry.getKey(), isSecretName(entry.getKey()) ? REDACTED : entry.getValue());
+        }
+        return answer;
+    }
+
+    /**
+     * @param name the name of an environment variable or parameter
+     * @return true if the name looks like it holds a secret
+     */
+    public static boolean isSecretName(String name) {
+        return name != null && SECRET_NAME_PATTERN.matcher(name).matches();
+    }
+}
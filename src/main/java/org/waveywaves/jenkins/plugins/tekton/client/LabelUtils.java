@@ -0,0 +1,162 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.google.common.base.Strings;
+import hudson.EnvVars;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Helper methods for labelling the Tekton resources we create with the Jenkins build that created them
+ */
+public class LabelUtils {
+    public static final String JOB_LABEL = "tekton.jenkins.io/job";
+    public static final String BUILD_ID_LABEL = "tekton.jenkins.io/build-id";
+    public static final String BRANCH_LABEL = "tekton.jenkins.io/branch";
+    public static final String REPO_LABEL = "tekton.jenkins.io/repo";
+
+    private static final int MAX_LABEL_VALUE_LENGTH = 63;
+    private static final int HASH_SUFFIX_LENGTH = 8;
+
+    /**
+     * @param envVars the build environment which may be null
+     * @return the labels identifying the job, build, branch and repository of the build
+     */
+    public static Map<String, String> buildLabels(EnvVars envVars) {
+        Map<String, String> labels = new LinkedHashMap<>();
+        if (envVars == null) {
+            return labels;
+        }
+        putLabel(labels, JOB_LABEL, envVars.get("JOB_NAME"));
+        putLabel(labels, BUILD_ID_LABEL, envVars.get("BUILD_ID"));
+        String branch = envVars.get("BRANCH_NAME");
+        putLabel(labels, BRANCH_LABEL, !Strings.isNullOrEmpty(branch) ? branch : getBranchName(envVars.get("GIT_BRANCH")));
+        String gitUrl = envVars.get("GIT_URL");
+        if (!Strings.isNullOrEmpty(gitUrl)) {
+            String[] parts = gitUrl.split("/");
+            putLabel(labels, REPO_LABEL, removeGitSuffix(parts[parts.length - 1]));
+        }
+        return labels;
+    }
+
+    /**
+     * @param labels the build labels
+     * @return the subset of labels which identify builds of the same job and branch
+     */
+    public static Map<String, String> supersedeSelector(Map<String, String> labels) {
+        Map<String, String> selector = new HashMap<>();
+        if (labels.containsKey(JOB_LABEL)) {
+            selector.put(JOB_LABEL, labels.get(JOB_LABEL));
+        }
+        if (labels.containsKey(BRANCH_LABEL)) {
+            selector.put(BRANCH_LABEL, labels.get(BRANCH_LABEL));
+        }
+        return selector;
+    }
+
+    /**
+     * @param text a selector such as <code>env=ci,region=eu</code> which may be null
+     * @return the selector as a map
+     */
+    public static Map<String, String> parseSelector(String text) {
+        Map<String, String> answer = new LinkedHashMap<>();
+        if (Strings.isNullOrEmpty(text)) {
+            return answer;
+        }
+        for (String part : text.split(",")) {
+            String[] keyValue = part.split("=", 2);
+            String key = keyValue[0].trim();
+            if (!key.isEmpty()) {
+                answer.put(key, keyValue.length > 1 ? keyValue[1].trim() : "");
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Adds the labels to the resource without replacing any labels it already has
+     *
+     * @param resource the resource to label
+     * @param labels the labels to add
+     */
+    public static void addLabels(HasMetadata resource, Map<String, String> labels) {
+        if (labels.isEmpty()) {
+            return;
+        }
+        if (resource.getMetadata() == null) {
+            resource.setMetadata(new ObjectMeta());
+        }
+        Map<String, String> existing = resource.getMetadata().getLabels();
+        if (existing == null) {
+            existing = new HashMap<>();
+            resource.getMetadata().setLabels(existing);
+        }
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            existing.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the ref and remote prefixes but keeps the rest of the path so that branches such as
+     * <code>feature/foo</code> and <code>bugfix/foo</code> stay distinct
+     *
+     * @param gitBranch the value of <code>GIT_BRANCH</code> such as <code>origin/feature/foo</code>
+     * @return the branch name such as <code>feature/foo</code> or null
+     */
+    public static String getBranchName(String gitBranch) {
+        if (Strings.isNullOrEmpty(gitBranch)) {
+            return null;
+        }
+        String answer = gitBranch;
+        if (answer.startsWith("refs/heads/")) {
+            return answer.substring("refs/heads/".length());
+        }
+        if (answer.startsWith("refs/")) {
+            answer = answer.substring("refs/".length());
+        }
+        if (answer.startsWith("remotes/")) {
+            answer = answer.substring("remotes/".length());
+            int idx = answer.indexOf('/');
+            return idx >= 0 ? answer.substring(idx + 1) : answer;
+        }
+        if (answer.startsWith("origin/")) {
+            return answer.substring("origin/".length());
+        }
+        return answer;
+    }
+
+    public static String removeGitSuffix(String part) {
+        if (part.endsWith(".git")) {
+            return part.replaceAll("\\.git$", "");
+        }
+        return part;
+    }
+
+    /**
+     * Converts the value into a valid Kubernetes label value, appending a hash if we had to truncate it
+     *
+     * @param value the value to sanitize
+     * @return a valid label value
+     */
+    public static String sanitizeLabelValue(String value) {
+        String answer = value.replaceAll("[^A-Za-z0-9_.-]", "-");
+        if (answer.length() > MAX_LABEL_VALUE_LENGTH) {
+            String hash = DigestUtils.sha256Hex(value).substring(0, HASH_SUFFIX_LENGTH);
+            answer = answer.substring(0, MAX_LABEL_VALUE_LENGTH - HASH_SUFFIX_LENGTH - 1) + "-" + hash;
+        }
+        return answer.replaceAll("^[^A-Za-z0-9]+", "").replaceAll("[^A-Za-z0-9]+$", "");
+    }
+
+    private static void putLabel(Map<String, String> labels, String key, String value) {
+        if (!Strings.isNullOrEmpty(value)) {
+            String sanitized = sanitizeLabelValue(value);
+            if (!sanitized.isEmpty()) {
+                labels.put(key, sanitized);
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.google.common.base.Strings;
+import hudson.FilePath;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.dsl.ExecListener;
+import io.fabric8.kubernetes.client.dsl.ExecWatch;
+import okhttp3.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Copies files between a Jenkins workspace and a PersistentVolumeClaim through a short lived pod which mounts the
+ * claim, streaming them as a compressed tar over <code>exec</code> so that nothing is buffered in memory.
+ *
+ * Workspace syncs keep a manifest of the content hash of each synced file in {@link #MANIFEST_NAME} next to the
+ * files. The pod deletes itself after {@link #ACTIVE_DEADLINE_SECONDS} in case it is not cleaned up by
+ * {@link #close()}.
+ */
+public final class PvcTransfer implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(PvcTransfer.class.getName());
+
+    public static final String MOUNT_PATH = "/workspace";
+    static final String CONTAINER_NAME = "transfer";
+    static final String IMAGE = System.getProperty(PvcTransfer.class.getName() + ".image", "busybox:1.36");
+    public static final String MANIFEST_NAME = ".tekton-sync-manifest";
+    static final long EXEC_TIMEOUT_MILLIS = Long.getLong(PvcTransfer.class.getName() + ".execTimeoutMillis", 30 * 60 * 1000);
+    static final long ACTIVE_DEADLINE_SECONDS = Long.getLong(PvcTransfer.class.getName() + ".activeDeadlineSeconds", 3600);
+
+    // lists the files matching the patterns given as arguments and writes them as a compressed tar to stdout
+    private static final String DOWNLOAD_SCRIPT = "cd \"$1\" && shift && for p in \"$@\"; do find . -type f -path \"./$p\"; done"
+            + " | sort -u | tar czf - -T -";
+
+    private static final String SUCCESS_MARKER = "tekton-transfer-succeeded";
+    private static final int MAX_ARGS = 500;
+
+    private final KubernetesClient client;
+    private final String ns;
+    private final String podName;
+
+    private PvcTransfer(KubernetesClient client, String ns, String podName) {
+        this.client = client;
+        this.ns = ns;
+        this.podName = podName;
+    }
+
+    /**
+     * Starts a pod which mounts the claim and waits for it to be ready
+     *
+     * @param client the client of the cluster
+     * @param ns the namespace of the claim
+     * @param claimName the name of the claim
+     * @param timeoutMillis how long to wait for the pod to be ready
+     * @return the transfer which must be closed to delete the pod
+     * @throws IOException if the pod did not become ready in time
+     * @throws InterruptedException if interrupted while waiting for the pod
+     */
+    public static PvcTransfer start(KubernetesClient client, String ns, String claimName, long timeoutMillis) throws IOException, InterruptedException {
+        Pod pod = client.pods().inNamespace(ns).create(helperPod(claimName));
+        PvcTransfer answer = new PvcTransfer(client, ns, pod.getMetadata().getName());
+        try {
+            Pod ready = client.pods().inNamespace(ns).withName(answer.podName).waitUntilReady(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (ready == null) {
+                throw new IOException("transfer pod " + ns + "/" + answer.podName + " was deleted before it was ready");
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            answer.close();
+            throw e;
+        }
+        return answer;
+    }
+
+    static Pod helperPod(String claimName) {
+        return new PodBuilder()
+                .withNewMetadata()
+                    .withGenerateName("tekton-transfer-")
+                    .addToLabels("app.kubernetes.io/managed-by", "tekton-client-plugin")
+                .endMetadata()
+                .withNewSpec()
+                    .withRestartPolicy("Never")
+                    .withActiveDeadlineSeconds(ACTIVE_DEADLINE_SECONDS)
+                    .addNewContainer()
+                        .withName(CONTAINER_NAME)
+                        .withImage(IMAGE)
+                        .withCommand("sh", "-c", "sleep " + ACTIVE_DEADLINE_SECONDS)
+                        .addNewVolumeMount()
+                            .withName("workspace")
+                            .withMountPath(MOUNT_PATH)
+                        .endVolumeMount()
+                    .endContainer()
+                    .addNewVolume()
+                        .withName("workspace")
+                        .withNewPersistentVolumeClaim()
+                            .withClaimName(claimName)
+                        .endPersistentVolumeClaim()
+                    .endVolume()
+                .endSpec()
+                .build();
+    }
+
+    public String getPodName() {
+        return podName;
+    }
+
+    /**
+     * Copies the files matching the patterns from the claim into the target directory
+     *
+     * @param subPath the directory of the claim relative to its root, which may be empty
+     * @param patterns the paths of the files relative to the sub path where <code>*</code> matches any characters
+     *                 including <code>/</code>, and <code>**&#47;</code> is accepted for compatibility with Ant patterns
+     * @param target the directory to copy the files into
+     * @param maxBytes fails the copy once more than this many compressed bytes have been read
+     * @return the number of compressed bytes copied
+     * @throws IOException if the files could not be copied or there were too many of them
+     * @throws InterruptedException if interrupted while copying
+     */
+    public long download(String subPath, List<String> patterns, FilePath target, long maxBytes) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("sh");
+        command.add("-c");
+        command.add(DOWNLOAD_SCRIPT);
+        command.add("sh");
+        command.add(containerPath(subPath));
+        for (String pattern : patterns) {
+            command.add(toFindPattern(pattern));
+        }
+        return downloadArchive(command, target, maxBytes);
+    }
+
+    /**
+     * Copies the given files from the claim into the target directory
+     *
+     * @param subPath the directory of the claim relative to its root, which may be empty
+     * @param paths the paths of the files relative to the sub path, which should be a few hundred at most
+     * @param target the directory to copy the files into
+     * @param maxBytes fails the copy once more than this many compressed bytes have been read
+     * @return the number of compressed bytes copied
+     * @throws IOException if the files could not be copied or there were too many of them
+     * @throws InterruptedException if interrupted while copying
+     */
+    public long downloadFiles(String subPath, List<String> paths, FilePath target, long maxBytes) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("sh");
+        command.add("-c");
+        command.add("cd \"$1\" && shift && tar czf - -- \"$@\"");
+        command.add("sh");
+        command.add(containerPath(subPath));
+        for (String path : paths) {
+            command.add("./" + path);
+        }
+        return downloadArchive(command, target, maxBytes);
+    }
+
+    private long downloadArchive(List<String> command, FilePath target, long maxBytes) throws IOException, InterruptedException {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        try (ExecWatch watch = client.pods().inNamespace(ns).withName(podName).inContainer(CONTAINER_NAME)
+                .redirectingOutput()
+                .writingError(errors)
+                .exec(command.toArray(new String[0]))) {
+            BoundedInputStream bounded = new BoundedInputStream(watch.getOutput(), maxBytes);
+            PushbackInputStream in = new PushbackInputStream(bounded);
+            int first = in.read();
+            if (first < 0) {
+                String message = new String(errors.toByteArray(), StandardCharsets.UTF_8).trim();
+                LOGGER.fine(() -> "nothing to copy from " + ns + "/" + podName + ": " + message);
+                return 0;
+            }
+            in.unread(first);
+            target.mkdirs();
+            target.untarFrom(in, FilePath.TarCompression.GZIP);
+            return bounded.getCount();
+        }
+    }
+
+    /**
+     * @param subPath the directory of the claim relative to its root, which may be empty
+     * @return the path of the directory in the transfer pod
+     */
+    public static String containerPath(String subPath) {
+        String path = Strings.nullToEmpty(subPath).replaceAll("^/+", "").replaceAll("/+$", "");
+        if (path.contains("..")) {
+            throw new IllegalArgumentException("invalid sub path " + subPath);
+        }
+        return path.isEmpty() ? MOUNT_PATH : MOUNT_PATH + "/" + path;
+    }
+
+    static String toFindPattern(String pattern) {
+        return pattern.trim().replaceAll("^(\\./)+", "").replace("**/", "*").replace("**", "*");
+    }
+
+    /**
+     * @param subPath the directory of the claim relative to its root, which may be empty
+     * @return the contents of the sync manifest in the directory, which is empty if there is no manifest
+     * @throws IOException if the manifest could not be read
+     * @throws InterruptedException if interrupted while reading the manifest
+     */
+    public String readManifest(String subPath) throws IOException, InterruptedException {
+        return run(null, "cat \"$1/" + MANIFEST_NAME + "\" 2>/dev/null || true", containerPath(subPath));
+    }
+
+    /**
+     * @param subPath the directory of the claim relative to its root, which may be empty
+     * @param manifest the new contents of the sync manifest
+     * @throws IOException if the manifest could not be written
+     * @throws InterruptedException if interrupted while writing the manifest
+     */
+    public void writeManifest(String subPath, String manifest) throws IOException, InterruptedException {
+        byte[] data = manifest.getBytes(StandardCharsets.UTF_8);
+        run(new ByteArrayInputStream(data), "mkdir -p \"$1\" && head -c \"$2\" > \"$1/" + MANIFEST_NAME + "\"",
+                containerPath(subPath), String.valueOf(data.length));
+    }
+
+    /**
+     * @param subPath the directory of the claim relative to its root, which may be empty
+     * @return the <code>sha256sum</code> output for every file in the directory apart from the sync manifest
+     * @throws IOException if the files could not be hashed
+     * @throws InterruptedException if interrupted while hashing
+     */
+    public String hashFiles(String subPath) throws IOException, InterruptedException {
+        return run(null, "mkdir -p \"$1\" && cd \"$1\" && find . -type f ! -path ./" + MANIFEST_NAME + " -exec sha256sum {} +",
+                containerPath(subPath));
+    }
+
+    /**
+     * Extracts a compressed tar into the directory
+     *
+     * @param subPath the directory of the claim relative to its root, which may be empty
+     * @param archive the compressed tar
+     * @param size the size of the compressed tar in bytes
+     * @throws IOException if the archive could not be extracted
+     * @throws InterruptedException if interrupted while extracting
+     */
+    public void upload(String subPath, InputStream archive, long size) throws IOException, InterruptedException {
+        // the remote end of stdin is not closed when we are done writing so only read as much as we send
+        run(archive, "mkdir -p \"$1\" && head -c \"$2\" | tar xzf - -C \"$1\"", containerPath(subPath), String.valueOf(size));
+    }
+
+    /**
+     * @param subPath the directory of the claim relative to its root, which may be empty
+     * @param paths the paths of the files to delete relative to the sub path
+     * @throws IOException if the files could not be deleted
+     * @throws InterruptedException if interrupted while deleting
+     */
+    public void delete(String subPath, List<String> paths) throws IOException, InterruptedException {
+        for (int i = 0; i < paths.size(); i += MAX_ARGS) {
+            List<String> args = new ArrayList<>();
+            args.add(containerPath(subPath));
+            for (String path : paths.subList(i, Math.min(paths.size(), i + MAX_ARGS))) {
+                args.add("./" + path);
+            }
+            run(null, "cd \"$1\" && shift && rm -f -- \"$@\"", args.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * Runs a shell script in the transfer pod and waits for it to complete
+     *
+     * @param stdin the input of the script, which may be null
+     * @param script the script whose arguments are <code>$1</code> onwards
+     * @param args the arguments of the script
+     * @return the output of the script
+     */
+    private String run(InputStream stdin, String script, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("sh");
+        command.add("-c");
+        // the exit code is not reported by exec so lets print a marker if the script succeeds
+        command.add("(" + script + ") && echo " + SUCCESS_MARKER);
+        command.add("sh");
+        command.addAll(Arrays.asList(args));
+        String[] commandArray = command.toArray(new String[0]);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        CountDownLatch closed = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecListener listener = new ExecListener() {
+            @Override
+            public void onOpen(Response response) {
+            }
+
+            @Override
+            public void onFailure(Throwable t, Response response) {
+                failure.set(t);
+                closed.countDown();
+            }
+
+            @Override
+            public void onClose(int code, String reason) {
+                closed.countDown();
+            }
+        };
+        ExecWatch watch = stdin != null ?
+                client.pods().inNamespace(ns).withName(podName).inContainer(CONTAINER_NAME)
+                        .readingInput(stdin).writingOutput(out).writingError(errors).usingListener(listener).exec(commandArray) :
+                client.pods().inNamespace(ns).withName(podName).inContainer(CONTAINER_NAME)
+                        .writingOutput(out).writingError(errors).usingListener(listener).exec(commandArray);
+        try {
+            if (!closed.await(EXEC_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new IOException("timed out running " + script + " in " + ns + "/" + podName);
+            }
+        } finally {
+            watch.close();
+        }
+        if (failure.get() != null) {
+            throw new IOException("failed to run " + script + " in " + ns + "/" + podName, failure.get());
+        }
+        String output = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        int marker = output.lastIndexOf(SUCCESS_MARKER);
+        if (marker < 0) {
+            throw new IOException("failed to run " + script + " in " + ns + "/" + podName + ": "
+                    + new String(errors.toByteArray(), StandardCharsets.UTF_8).trim());
+        }
+        return output.substring(0, marker);
+    }
+
+    @Override
+    public void close() {
+        try {
+            client.pods().inNamespace(ns).withName(podName).withGracePeriod(0).delete();
+        } catch (RuntimeException e) {
+            LOGGER.warning("failed to delete transfer pod " + ns + "/" + podName + ": " + e);
+        }
+    }
+
+    /**
+     * Fails rather than truncating the stream once the limit is reached, as a truncated archive is useless
+     */
+    static class BoundedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long count;
+
+        BoundedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws IOException {
+            count += n;
+            if (maxBytes > 0 && count > maxBytes) {
+                throw new IOException("more than " + maxBytes + " bytes were copied");
+            }
+        }
+    }
+}
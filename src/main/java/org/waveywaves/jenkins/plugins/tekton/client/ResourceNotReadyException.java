@@ -0,0 +1,13 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+/**
+ * Thrown when the pod of a TaskRun can never start, such as when its image cannot be pulled or its
+ * PersistentVolumeClaim cannot be bound, so that the run can be cancelled rather than left pending.
+ */
+public class ResourceNotReadyException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public ResourceNotReadyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,306 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.google.common.base.Strings;
+import io.fabric8.kubernetes.api.model.ContainerStateWaiting;
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.Event;
+import io.fabric8.kubernetes.api.model.ObjectReference;
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaim;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodCondition;
+import io.fabric8.kubernetes.api.model.PodStatus;
+import io.fabric8.kubernetes.api.model.Volume;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Detects pods which can never start, such as those whose image cannot be pulled or whose PersistentVolumeClaim
+ * cannot be bound, so that a build fails fast with the reason rather than waiting until it times out.
+ *
+ * The state of each claim and the images which recently failed to pull are cached for a short time so that the
+ * checks made on every pod event, and before every run is created, do not each cost API calls.
+ *
+ * Image pulls and container configuration often fail for a moment, e.g. while a registry is briefly unavailable or a
+ * Secret is still being created, so those reasons are only fatal once they persist: after the kubelet has backed off
+ * pulling the image a few times, or once the container has been failing for a while.
+ */
+public final class ResourceReadiness {
+    private static final Logger LOGGER = Logger.getLogger(ResourceReadiness.class.getName());
+
+    static final long CACHE_TTL_MILLIS = Long.getLong(ResourceReadiness.class.getName() + ".cacheTtlMillis", 60000);
+    static final Set<String> FATAL_WAITING_REASONS = new HashSet<>(Arrays.asList(System.getProperty(
+            ResourceReadiness.class.getName() + ".fatalWaitingReasons",
+            "ErrImagePull,ImagePullBackOff,InvalidImageName,ErrImageNeverPull,CreateContainerConfigError,CreateContainerError")
+            .split(",")));
+    static final Set<String> TRANSIENT_WAITING_REASONS = new HashSet<>(Arrays.asList(System.getProperty(
+            ResourceReadiness.class.getName() + ".transientWaitingReasons",
+            "ErrImagePull,ImagePullBackOff,CreateContainerConfigError,CreateContainerError")
+            .split(",")));
+    static final long TRANSIENT_FAILURE_MILLIS = Long.getLong(ResourceReadiness.class.getName() + ".transientFailureMillis", 60000);
+    static final int MAX_IMAGE_PULL_BACK_OFFS = Integer.getInteger(ResourceReadiness.class.getName() + ".maxImagePullBackOffs", 2);
+
+    private static final int MAX_CACHE_ENTRIES = 1000;
+    private static final Set<String> CLAIM_FAILURE_REASONS = new HashSet<>(Arrays.asList("ProvisioningFailed", "FailedBinding"));
+    private static final String COMPONENT = "[a-z0-9]+(?:(?:[._]|__|-+)[a-z0-9]+)*";
+    private static final String DOMAIN = "[a-zA-Z0-9](?:[a-zA-Z0-9-]*[a-zA-Z0-9])?(?:\\.[a-zA-Z0-9](?:[a-zA-Z0-9-]*[a-zA-Z0-9])?)*(?::[0-9]+)?";
+    private static final Pattern IMAGE_REFERENCE = Pattern.compile("(?:" + DOMAIN + "/)?" + COMPONENT + "(?:/" + COMPONENT + ")*"
+            + "(?::[\\w][\\w.-]{0,127})?(?:@[A-Za-z][A-Za-z0-9]*(?:[-_+.][A-Za-z][A-Za-z0-9]*)*:[0-9a-fA-F]{32,})?");
+
+    private static final long STALE_FAILING_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final ConcurrentMap<String, Cached> CACHE = new ConcurrentHashMap<>();
+    // the containers which are failing to start for a reason which may be transient
+    private static final ConcurrentMap<String, Failing> FAILING = new ConcurrentHashMap<>();
+
+    private ResourceReadiness() {
+    }
+
+    /**
+     * @param client the client for the cluster of the pod
+     * @param pod the latest state of the pod
+     * @return why the pod can never start or null if it may still start
+     */
+    public static String checkPod(KubernetesClient client, Pod pod) {
+        return checkPod(client, pod, System.currentTimeMillis());
+    }
+
+    static String checkPod(KubernetesClient client, Pod pod, long nowMillis) {
+        PodStatus status = pod.getStatus();
+        if (status == null) {
+            return null;
+        }
+        String ns = pod.getMetadata().getNamespace();
+        String podName = pod.getMetadata().getName();
+        List<ContainerStatus> containers = new ArrayList<>(nullToEmpty(status.getInitContainerStatuses()));
+        containers.addAll(nullToEmpty(status.getContainerStatuses()));
+        for (ContainerStatus container : containers) {
+            ContainerStateWaiting waiting = container.getState() != null ? container.getState().getWaiting() : null;
+            String failingKey = failingKey(pod, container.getName());
+            if (waiting == null || !FATAL_WAITING_REASONS.contains(waiting.getReason())) {
+                FAILING.remove(failingKey);
+                continue;
+            }
+            if (TRANSIENT_WAITING_REASONS.contains(waiting.getReason()) && !persists(failingKey, waiting.getReason(), nowMillis)) {
+                continue;
+            }
+            FAILING.remove(failingKey);
+            String reason = waiting.getReason() + (Strings.isNullOrEmpty(waiting.getMessage()) ? "" : ": " + waiting.getMessage());
+            if (waiting.getReason().contains("Image") && !Strings.isNullOrEmpty(container.getImage())) {
+                put(imageKey(client, ns, container.getImage()), reason);
+            }
+            return String.format("container %s of pod %s/%s cannot start: %s", container.getName(), ns, podName, reason);
+        }
+        if (!"Pending".equals(status.getPhase()) || !isUnschedulable(status) || pod.getSpec() == null) {
+            return null;
+        }
+        for (Volume volume : nullToEmpty(pod.getSpec().getVolumes())) {
+            if (volume.getPersistentVolumeClaim() != null) {
+                String problem = checkClaim(client, ns, volume.getPersistentVolumeClaim().getClaimName());
+                if (problem != null) {
+                    return String.format("pod %s/%s cannot be scheduled: %s", ns, podName, problem);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records that the container is waiting for a reason which may be transient
+     *
+     * @return true if the container has backed off pulling its image too many times or has been failing for too long
+     */
+    private static boolean persists(String key, String reason, long nowMillis) {
+        if (FAILING.size() >= MAX_CACHE_ENTRIES) {
+            FAILING.values().removeIf(f -> nowMillis - f.lastSeenMillis > STALE_FAILING_MILLIS);
+        }
+        Failing failing = FAILING.computeIfAbsent(key, k -> new Failing(nowMillis));
+        synchronized (failing) {
+            // the kubelet alternates between ErrImagePull and ImagePullBackOff each time it retries the pull
+            if ("ImagePullBackOff".equals(reason) && !reason.equals(failing.lastReason)) {
+                failing.imagePullBackOffs++;
+            }
+            failing.lastReason = reason;
+            failing.lastSeenMillis = nowMillis;
+            return failing.imagePullBackOffs >= MAX_IMAGE_PULL_BACK_OFFS
+                    || nowMillis - failing.firstSeenMillis >= TRANSIENT_FAILURE_MILLIS;
+        }
+    }
+
+    /**
+     * Pending claims are not a problem as claims with a <code>WaitForFirstConsumer</code> storage class are only bound
+     * once a pod which uses them is scheduled, so only claims which are missing, lost or failed to be provisioned are.
+     *
+     * @param client the client for the cluster of the claim
+     * @param ns the namespace of the claim
+     * @param claimName the name of the claim
+     * @return why the claim cannot be bound or null if it is bound or may still be
+     */
+    public static String checkClaim(KubernetesClient client, String ns, String claimName) {
+        String key = "claim/" + clusterKey(client) + "/" + ns + "/" + claimName;
+        Cached cached = CACHE.get(key);
+        if (cached != null && !cached.isExpired()) {
+            return cached.problem;
+        }
+        try {
+            String problem = loadClaimProblem(client, ns, claimName);
+            put(key, problem);
+            return problem;
+        } catch (KubernetesClientException e) {
+            LOGGER.log(Level.FINE, "failed to check PersistentVolumeClaim " + ns + "/" + claimName, e);
+            return null;
+        }
+    }
+
+    private static String loadClaimProblem(KubernetesClient client, String ns, String claimName) {
+        String name = ns + "/" + claimName;
+        PersistentVolumeClaim claim = client.persistentVolumeClaims().inNamespace(ns).withName(claimName).get();
+        if (claim == null) {
+            return "PersistentVolumeClaim " + name + " does not exist";
+        }
+        String phase = claim.getStatus() != null ? claim.getStatus().getPhase() : null;
+        if ("Bound".equals(phase)) {
+            return null;
+        }
+        if ("Lost".equals(phase)) {
+            return "PersistentVolumeClaim " + name + " has lost its PersistentVolume";
+        }
+        Event latest = null;
+        for (Event event : client.v1().events().inNamespace(ns).withField("involvedObject.name", claimName).list().getItems()) {
+            ObjectReference involved = event.getInvolvedObject();
+            if (involved == null || !"PersistentVolumeClaim".equals(involved.getKind()) || !claimName.equals(involved.getName())) {
+                continue;
+            }
+            if (latest == null || Strings.nullToEmpty(event.getLastTimestamp()).compareTo(Strings.nullToEmpty(latest.getLastTimestamp())) >= 0) {
+                latest = event;
+            }
+        }
+        if (latest != null && "Warning".equals(latest.getType()) && CLAIM_FAILURE_REASONS.contains(latest.getReason())) {
+            return "PersistentVolumeClaim " + name + " is not bound: " + latest.getReason() + ": " + latest.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * @param client the client for the cluster which pulls the image
+     * @param ns the namespace of the pods which pull the image
+     * @param image the image reference
+     * @return why the image cannot be pulled or null if it may be
+     */
+    public static String checkImage(KubernetesClient client, String ns, String image) {
+        if (Strings.isNullOrEmpty(image) || image.contains("$(")) {
+            // params are only substituted by Tekton
+            return null;
+        }
+        if (!IMAGE_REFERENCE.matcher(image).matches()) {
+            return "image " + image + " is not a valid image reference";
+        }
+        Cached cached = CACHE.get(imageKey(client, ns, image));
+        if (cached != null && !cached.isExpired()) {
+            return "image " + image + " recently failed to pull: " + cached.problem;
+        }
+        return null;
+    }
+
+    /**
+     * @param client the client for the cluster the run is created on
+     * @param ns the namespace of the run
+     * @param images the images of the steps of the run
+     * @param claimNames the claims bound to the workspaces of the run
+     * @return the problems which would stop the pods of the run starting, which is empty if there are none
+     */
+    public static List<String> preflight(KubernetesClient client, String ns, Collection<String> images, Collection<String> claimNames) {
+        List<String> problems = new ArrayList<>();
+        for (String image : images) {
+            String problem = checkImage(client, ns, image);
+            if (problem != null) {
+                problems.add(problem);
+            }
+        }
+        for (String claimName : claimNames) {
+            String problem = checkClaim(client, ns, claimName);
+            if (problem != null) {
+                problems.add(problem);
+            }
+        }
+        return problems;
+    }
+
+    private static void put(String key, String problem) {
+        if (CACHE.size() >= MAX_CACHE_ENTRIES) {
+            CACHE.values().removeIf(Cached::isExpired);
+        }
+        CACHE.put(key, new Cached(problem));
+    }
+
+    static void reset() {
+        CACHE.clear();
+        FAILING.clear();
+    }
+
+    private static boolean isUnschedulable(PodStatus status) {
+        for (PodCondition condition : nullToEmpty(status.getConditions())) {
+            if ("PodScheduled".equals(condition.getType()) && "False".equals(condition.getStatus())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String failingKey(Pod pod, String containerName) {
+        String id = Strings.isNullOrEmpty(pod.getMetadata().getUid()) ?
+                pod.getMetadata().getNamespace() + "/" + pod.getMetadata().getName() : pod.getMetadata().getUid();
+        return id + "/" + containerName;
+    }
+
+    private static String imageKey(KubernetesClient client, String ns, String image) {
+        return "image/" + clusterKey(client) + "/" + ns + "/" + image;
+    }
+
+    private static String clusterKey(KubernetesClient client) {
+        return String.valueOf(client.getMasterUrl());
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : Collections.emptyList();
+    }
+
+    private static final class Failing {
+        final long firstSeenMillis;
+        long lastSeenMillis;
+        String lastReason;
+        int imagePullBackOffs;
+
+        Failing(long firstSeenMillis) {
+            this.firstSeenMillis = firstSeenMillis;
+            this.lastSeenMillis = firstSeenMillis;
+        }
+    }
+
+    private static final class Cached {
+        final String problem;
+        final long expiresAtMillis;
+
+        Cached(String problem) {
+            this.problem = problem;
+            this.expiresAtMillis = System.currentTimeMillis() + CACHE_TTL_MILLIS;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAtMillis;
+        }
+    }
+}
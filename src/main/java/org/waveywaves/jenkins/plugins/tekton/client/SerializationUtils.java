@@ -0,0 +1,117 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared, thread safe readers and writers for Tekton resources.
+ *
+ * The mappers are configured once and only used to create immutable {@link ObjectReader}s and
+ * {@link ObjectWriter}s so that we don't pay for the mapper set up and the class introspection on every build.
+ */
+public class SerializationUtils {
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory()
+            .disable(YAMLGenerator.Feature.WRITE_DOC_START_MARKER))
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    // only looks at fields, in a stable order, so that describables hash the same way whatever getters they have
+    private static final ObjectWriter FINGERPRINT_WRITER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .writer();
+
+    private static final ObjectWriter YAML_WRITER = YAML_MAPPER.writer();
+    private static final ObjectWriter JSON_WRITER = JSON_MAPPER.writer();
+
+    private static final ConcurrentMap<Class<?>, ObjectReader> YAML_READERS = new ConcurrentHashMap<>();
+
+    /**
+     * Reads a resource from YAML or JSON, since JSON is valid YAML
+     *
+     * @param inputStream the YAML
+     * @param type the type of resource
+     * @return the resource
+     * @throws IOException if the YAML could not be parsed
+     */
+    public static <T> T readYaml(InputStream inputStream, Class<T> type) throws IOException {
+        return yamlReader(type).readValue(inputStream);
+    }
+
+    /**
+     * @param data the YAML
+     * @param type the type of resource
+     * @return the resource
+     * @throws IOException if the YAML could not be parsed
+     */
+    public static <T> T readYaml(byte[] data, Class<T> type) throws IOException {
+        return yamlReader(type).readValue(data);
+    }
+
+    /**
+     * @param value the resource
+     * @return the resource as YAML without a document start marker
+     */
+    public static String toYaml(Object value) {
+        try {
+            return YAML_WRITER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param value the resource
+     * @return the resource as JSON
+     */
+    public static String toJson(Object value) {
+        try {
+            return JSON_WRITER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param value the resource
+     * @return the resource as a JSON tree so that fields can be inspected without knowing the type
+     */
+    public static JsonNode toTree(Object value) {
+        return JSON_MAPPER.valueToTree(value);
+    }
+
+    /**
+     * @param value the configuration such as a list of describables
+     * @return a hash of the non transient fields of the configuration
+     */
+    public static String fingerprint(Object value) {
+        try {
+            return DigestUtils.sha256Hex(FINGERPRINT_WRITER.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static <T> ObjectReader yamlReader(Class<T> type) {
+        return YAML_READERS.computeIfAbsent(type, YAML_MAPPER::readerFor);
+    }
+}
@@ -0,0 +1,228 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.google.common.base.Strings;
+import io.fabric8.kubernetes.api.model.ListOptions;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.Param;
+import io.fabric8.tekton.pipeline.v1beta1.ParamSpec;
+import io.fabric8.tekton.pipeline.v1beta1.Task;
+import io.fabric8.tekton.pipeline.v1beta1.TaskList;
+import io.fabric8.tekton.pipeline.v1beta1.TaskSpec;
+import io.fabric8.tekton.pipeline.v1beta1.WorkspaceBinding;
+import io.fabric8.tekton.pipeline.v1beta1.WorkspaceDeclaration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches the specs of the Tasks in a namespace of a cluster so that TaskRuns can be validated against the
+ * <code>params</code> and <code>workspaces</code> their Task declares without an API call per build.
+ *
+ * The cache is filled by a single list and then kept up to date by a watch started from the resourceVersion of the
+ * list; if the watch closes the cache is dropped and the next lookup lists the Tasks again. A Task missing from the
+ * cache is looked up directly in case it was created before the watch delivered it.
+ */
+public class TaskDefinitionCache {
+    private static final Logger LOGGER = Logger.getLogger(TaskDefinitionCache.class.getName());
+
+    private static final ConcurrentMap<String, TaskDefinitionCache> CACHES = new ConcurrentHashMap<>();
+
+    private final TektonClient client;
+    private final String namespace;
+    private final ConcurrentMap<String, TaskSpec> tasks = new ConcurrentHashMap<>();
+    private volatile boolean synced;
+    private Watch watch;
+
+    TaskDefinitionCache(TektonClient client, String namespace) {
+        this.client = client;
+        this.namespace = namespace;
+    }
+
+    /**
+     * @param clusterName the name of the cluster
+     * @param client the client for the cluster
+     * @param namespace the namespace of the Tasks
+     * @return the shared cache for the namespace of the cluster
+     */
+    public static TaskDefinitionCache get(String clusterName, TektonClient client, String namespace) {
+        String key = clusterName + "/" + Strings.nullToEmpty(namespace);
+        return CACHES.computeIfAbsent(key, k -> new TaskDefinitionCache(client, namespace));
+    }
+
+    static void reset() {
+        for (TaskDefinitionCache cache : CACHES.values()) {
+            cache.close();
+        }
+        CACHES.clear();
+    }
+
+    /**
+     * @param name the name of the Task
+     * @return the spec of the Task or null if it does not exist or the Tasks could not be listed
+     */
+    public TaskSpec getTaskSpec(String name) {
+        if (!synced) {
+            sync();
+        }
+        TaskSpec spec = tasks.get(name);
+        if (spec == null && synced) {
+            spec = fetch(name);
+        }
+        return spec;
+    }
+
+    private TaskSpec fetch(String name) {
+        try {
+            Task task = client.v1beta1().tasks().inNamespace(namespace).withName(name).get();
+            if (task == null || task.getSpec() == null) {
+                return null;
+            }
+            put(task);
+            return task.getSpec();
+        } catch (KubernetesClientException e) {
+            LOGGER.log(Level.FINE, "failed to get Task " + name + " in namespace " + namespace, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the cache currently reflects the Tasks in the namespace
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    private synchronized void sync() {
+        if (synced) {
+            return;
+        }
+        try {
+            tasks.clear();
+            TaskList list = client.v1beta1().tasks().inNamespace(namespace).list();
+            for (Task task : list.getItems()) {
+                put(task);
+            }
+            // lets watch from the version of the list so that we neither miss nor replay changes made in between
+            ListOptions lo = new ListOptions();
+            if (list.getMetadata() != null) {
+                lo.setResourceVersion(list.getMetadata().getResourceVersion());
+            }
+            watch = client.v1beta1().tasks().inNamespace(namespace).watch(lo, new TaskWatcher());
+            synced = true;
+            LOGGER.fine(() -> "Cached " + tasks.size() + " Tasks in namespace " + namespace);
+        } catch (KubernetesClientException e) {
+            LOGGER.log(Level.FINE, "failed to cache the Tasks in namespace " + namespace, e);
+            close();
+        }
+    }
+
+    private synchronized void close() {
+        synced = false;
+        tasks.clear();
+        Watch current = watch;
+        watch = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void put(Task task) {
+        if (task.getMetadata() != null && task.getSpec() != null) {
+            tasks.put(task.getMetadata().getName(), task.getSpec());
+        }
+    }
+
+    /**
+     * @param spec the spec of the Task
+     * @param params the params of the TaskRun
+     * @param workspaces the workspaces of the TaskRun
+     * @return the problems with the params and workspaces which is empty if they are valid
+     */
+    public static List<String> validate(TaskSpec spec, List<Param> params, List<WorkspaceBinding> workspaces) {
+        List<String> problems = new ArrayList<>();
+
+        Set<String> declaredParams = new LinkedHashSet<>();
+        if (spec.getParams() != null) {
+            for (ParamSpec paramSpec : spec.getParams()) {
+                declaredParams.add(paramSpec.getName());
+            }
+        }
+        Set<String> givenParams = new HashSet<>();
+        if (params != null) {
+            for (Param param : params) {
+                givenParams.add(param.getName());
+                if (!declaredParams.contains(param.getName())) {
+                    problems.add("param " + param.getName() + " is not declared by the Task which has params " + declaredParams);
+                }
+            }
+        }
+        if (spec.getParams() != null) {
+            for (ParamSpec paramSpec : spec.getParams()) {
+                if (paramSpec.getDefault() == null && !givenParams.contains(paramSpec.getName())) {
+                    problems.add("param " + paramSpec.getName() + " is required by the Task but has no value");
+                }
+            }
+        }
+
+        Set<String> declaredWorkspaces = new LinkedHashSet<>();
+        if (spec.getWorkspaces() != null) {
+            for (WorkspaceDeclaration declaration : spec.getWorkspaces()) {
+                declaredWorkspaces.add(declaration.getName());
+            }
+        }
+        Set<String> givenWorkspaces = new HashSet<>();
+        if (workspaces != null) {
+            for (WorkspaceBinding workspace : workspaces) {
+                givenWorkspaces.add(workspace.getName());
+                if (!declaredWorkspaces.contains(workspace.getName())) {
+                    problems.add("workspace " + workspace.getName() + " is not declared by the Task which has workspaces " + declaredWorkspaces);
+                }
+            }
+        }
+        if (spec.getWorkspaces() != null) {
+            for (WorkspaceDeclaration declaration : spec.getWorkspaces()) {
+                if (!Boolean.TRUE.equals(declaration.getOptional()) && !givenWorkspaces.contains(declaration.getName())) {
+                    problems.add("workspace " + declaration.getName() + " is required by the Task but is not bound");
+                }
+            }
+        }
+        return problems;
+    }
+
+    private class TaskWatcher implements Watcher<Task> {
+        @Override
+        public void eventReceived(Action action, Task task) {
+            if (task.getMetadata() == null) {
+                return;
+            }
+            switch (action) {
+                case ADDED:
+                case MODIFIED:
+                    put(task);
+                    break;
+                case DELETED:
+                    tasks.remove(task.getMetadata().getName());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void onClose(WatcherException cause) {
+            LOGGER.log(Level.FINE, "Task watch in namespace " + namespace + " closed so dropping the cache", cause);
+            close();
+        }
+    }
+}
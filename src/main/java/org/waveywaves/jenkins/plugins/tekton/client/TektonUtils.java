@@ -1,5 +1,6 @@
 package org.waveywaves.jenkins.plugins.tekton.client;
 
+import com.google.common.io.ByteStreams;
 import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.ConfigBuilder;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
@@ -8,10 +9,8 @@ import io.fabric8.tekton.client.DefaultTektonClient;
 import io.fabric8.tekton.client.TektonClient;
 import org.waveywaves.jenkins.plugins.tekton.client.global.ClusterConfig;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
@@ -24,6 +23,7 @@ import java.util.logging.Logger;
 public class TektonUtils {
     private static final Logger logger = Logger.getLogger(TektonUtils.class.getName());
     public static final String DEFAULT_CLIENT_KEY = "default";
+    private static final byte[] KIND_PREFIX = "kind".getBytes(StandardCharsets.UTF_8);
     private static Map<String,TektonClient> tektonClientMap = new HashMap<>();
     private static Map<String,KubernetesClient> kubernetesClientMap = new HashMap<>();
 
@@ -90,59 +90,70 @@ public class TektonUtils {
     }
 
     public static List<TektonResourceType> getKindFromInputStream(InputStream inputStream, String inputType) {
-        List<TektonResourceType> kind = new ArrayList<TektonResourceType>();
         try {
-            int nBytes = inputStream.available();
-            byte[] bytes = new byte[nBytes];
-            inputStream.read(bytes, 0, nBytes);
-            String readInput = new String(bytes, StandardCharsets.UTF_8);
-            logger.info("Creating from "+ inputType);
-
-            String[] yamlLineByLine = readInput.split(System.lineSeparator());
-            for (int i=0; i < yamlLineByLine.length; i++){
-                String yamlLine = yamlLineByLine[i];
-                if (yamlLine.startsWith("kind")){
-                    String kindName = yamlLine.split(":")[1].trim().toLowerCase();
-                    kind.add(TektonResourceType.valueOf(kindName));
-                }
-            }
+            return getKindFromBytes(ByteStreams.toByteArray(inputStream), inputType);
         } catch(IOException e){
             logger.warning("IOException occurred "+e.toString());
         }
+        return new ArrayList<TektonResourceType>();
+    }
+
+    /**
+     * Finds the top level <code>kind</code> lines in the YAML without converting the whole document into a String
+     *
+     * @param data the YAML
+     * @param inputType the type of input for logging
+     * @return the kinds of resource in the YAML
+     */
+    public static List<TektonResourceType> getKindFromBytes(byte[] data, String inputType) {
+        List<TektonResourceType> kind = new ArrayList<TektonResourceType>();
+        logger.info("Creating from "+ inputType);
 
+        int lineStart = 0;
+        for (int i = 0; i <= data.length; i++) {
+            if (i < data.length && data[i] != '\n') {
+                continue;
+            }
+            if (startsWith(data, lineStart, i, KIND_PREFIX)) {
+                int colon = indexOf(data, (byte) ':', lineStart, i);
+                if (colon >= 0) {
+                    String kindName = new String(data, colon + 1, i - colon - 1, StandardCharsets.UTF_8).trim().toLowerCase();
+                    kind.add(TektonResourceType.valueOf(kindName));
+                }
+            }
+            lineStart = i + 1;
+        }
         return kind;
     }
 
+    private static boolean startsWith(byte[] data, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[from + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public static InputStream urlToByteArrayStream(URL url) {
-        InputStream inputStream = null;
-        BufferedReader reader = null;
         try {
-            inputStream = url.openStream();
-            reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-            String response = "";
-            StringBuffer sb = new StringBuffer();
-            for (String line; (line = reader.readLine()) != null; response = sb.append(line).append("\n").toString());
-            inputStream = new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+            return new ByteArrayInputStream(UrlFetcher.get().fetch(url));
         } catch (IOException e){
             logger.warning("IOException occurred "+ e.toString());
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException e) {
-                    logger.warning("IOException occurred "+ e.toString());
-                }
-            }
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    logger.warning("IOException occurred "+ e.toString());
-                }
-            }
         }
-
-        return inputStream;
+        return null;
     }
 
     public synchronized static Map<String,TektonClient> getTektonClientMap(){
@@ -0,0 +1,281 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import hudson.ProxyConfiguration;
+import jenkins.model.Jenkins;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fetches the Tekton resources used as <code>URL</code> input, keeping a bounded on disk cache of the responses.
+ *
+ * Cached responses are revalidated with <code>If-None-Match</code> / <code>If-Modified-Since</code> so that an
+ * unchanged resource only costs a <code>304</code>, or nothing at all while it is still fresh according to the
+ * <code>Cache-Control: max-age</code> of the response.
+ */
+public class UrlFetcher {
+    private static final Logger LOGGER = Logger.getLogger(UrlFetcher.class.getName());
+
+    static final int CONNECT_TIMEOUT_MILLIS = Integer.getInteger(UrlFetcher.class.getName() + ".connectTimeoutMillis", 10_000);
+    static final int READ_TIMEOUT_MILLIS = Integer.getInteger(UrlFetcher.class.getName() + ".readTimeoutMillis", 30_000);
+    static final int MAX_RESPONSE_BYTES = Integer.getInteger(UrlFetcher.class.getName() + ".maxResponseBytes", 16 * 1024 * 1024);
+    static final long MAX_CACHE_BYTES = Long.getLong(UrlFetcher.class.getName() + ".maxCacheBytes", 64L * 1024 * 1024);
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String EXPIRES_AT = "expiresAt";
+    private static final int LOCK_STRIPES = 64;
+
+    private static UrlFetcher instance;
+
+    private final File cacheDir;
+    private final long maxCacheBytes;
+    private final int maxResponseBytes;
+    // a fixed set of locks striped by URL so that a lock is never replaced while a fetch is waiting for it
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public UrlFetcher(File cacheDir, long maxCacheBytes, int maxResponseBytes) {
+        this.cacheDir = cacheDir;
+        this.maxCacheBytes = maxCacheBytes;
+        this.maxResponseBytes = maxResponseBytes;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return the shared fetcher which caches inside <code>JENKINS_HOME</code> when running in Jenkins
+     */
+    public static synchronized UrlFetcher get() {
+        if (instance == null) {
+            Jenkins jenkins = Jenkins.getInstanceOrNull();
+            File cacheDir = jenkins != null ?
+                    new File(jenkins.getRootDir(), "caches/tekton-client/urls") :
+                    new File(System.getProperty("java.io.tmpdir"), "tekton-client-url-cache");
+            instance = new UrlFetcher(cacheDir, MAX_CACHE_BYTES, MAX_RESPONSE_BYTES);
+        }
+        return instance;
+    }
+
+    /**
+     * @param url the URL to fetch
+     * @return the body of the response
+     * @throws IOException if the URL could not be fetched or the response is too large
+     */
+    public byte[] fetch(URL url) throws IOException {
+        String protocol = url.getProtocol();
+        if (!protocol.equals("http") && !protocol.equals("https")) {
+            try (InputStream in = url.openStream()) {
+                return readLimited(in, url);
+            }
+        }
+
+        String key = DigestUtils.sha256Hex(url.toString());
+        synchronized (locks[Math.floorMod(key.hashCode(), locks.length)]) {
+            return fetchWithCache(url, key);
+        }
+    }
+
+    private byte[] fetchWithCache(URL url, String key) throws IOException {
+        File bodyFile = new File(cacheDir, key + ".body");
+        File metaFile = new File(cacheDir, key + ".properties");
+        Properties cached = readProperties(metaFile, bodyFile);
+
+        long now = System.currentTimeMillis();
+        if (cached != null && Long.parseLong(cached.getProperty(EXPIRES_AT, "0")) > now) {
+            LOGGER.fine(() -> "Using fresh cached copy of " + url);
+            touch(bodyFile, now);
+            return Files.toByteArray(bodyFile);
+        }
+
+        URLConnection connection = Jenkins.getInstanceOrNull() != null ? ProxyConfiguration.open(url) : url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        if (cached != null) {
+            String etag = cached.getProperty(ETAG);
+            String lastModified = cached.getProperty(LAST_MODIFIED);
+            if (!Strings.isNullOrEmpty(etag)) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            if (!Strings.isNullOrEmpty(lastModified)) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        }
+
+        HttpURLConnection http = (HttpURLConnection) connection;
+        try {
+            int status = http.getResponseCode();
+            long maxAgeMillis = getMaxAgeMillis(http.getHeaderField("Cache-Control"));
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                LOGGER.fine(() -> "Cached copy of " + url + " is still valid");
+                cached.setProperty(EXPIRES_AT, Long.toString(now + maxAgeMillis));
+                writeProperties(metaFile, cached);
+                touch(bodyFile, now);
+                return Files.toByteArray(bodyFile);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("failed to fetch " + url + " got status " + status);
+            }
+            long contentLength = http.getContentLengthLong();
+            if (contentLength > maxResponseBytes) {
+                throw new IOException("response from " + url + " is " + contentLength + " bytes which is larger than the limit of " + maxResponseBytes);
+            }
+            byte[] data;
+            try (InputStream in = http.getInputStream()) {
+                data = readLimited(in, url);
+            }
+
+            String etag = http.getHeaderField("ETag");
+            String lastModified = http.getHeaderField("Last-Modified");
+            String cacheControl = Strings.nullToEmpty(http.getHeaderField("Cache-Control"));
+            boolean cacheable = !cacheControl.contains("no-store") &&
+                    (etag != null || lastModified != null || maxAgeMillis > 0);
+            if (cacheable && data.length <= maxCacheBytes) {
+                Properties properties = new Properties();
+                if (etag != null) {
+                    properties.setProperty(ETAG, etag);
+                }
+                if (lastModified != null) {
+                    properties.setProperty(LAST_MODIFIED, lastModified);
+                }
+                properties.setProperty(EXPIRES_AT, Long.toString(now + maxAgeMillis));
+                store(bodyFile, metaFile, data, properties);
+            }
+            return data;
+        } finally {
+            http.disconnect();
+        }
+    }
+
+    private byte[] readLimited(InputStream in, URL url) throws IOException {
+        byte[] data = ByteStreams.toByteArray(ByteStreams.limit(in, maxResponseBytes + 1L));
+        if (data.length > maxResponseBytes) {
+            throw new IOException("response from " + url + " is larger than the limit of " + maxResponseBytes + " bytes");
+        }
+        return data;
+    }
+
+    static long getMaxAgeMillis(String cacheControl) {
+        if (Strings.isNullOrEmpty(cacheControl) || cacheControl.contains("no-cache")) {
+            return 0;
+        }
+        Matcher matcher = MAX_AGE.matcher(cacheControl);
+        if (matcher.find()) {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+        }
+        return 0;
+    }
+
+    private Properties readProperties(File metaFile, File bodyFile) {
+        if (!metaFile.isFile() || !bodyFile.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(metaFile)) {
+            properties.load(in);
+            return properties;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.FINE, "ignoring corrupt cache entry " + metaFile, e);
+            return null;
+        }
+    }
+
+    private void writeProperties(File metaFile, Properties properties) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            properties.store(out, null);
+            writeAtomically(metaFile, out.toByteArray());
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "failed to update cache entry " + metaFile, e);
+        }
+    }
+
+    /**
+     * Writes to a temporary file which is then moved into place so that a reader never sees a partial file
+     */
+    private void writeAtomically(File file, byte[] data) throws IOException {
+        File tmp = File.createTempFile(file.getName(), ".tmp", cacheDir);
+        try {
+            Files.write(data, tmp);
+            try {
+                java.nio.file.Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                java.nio.file.Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if (tmp.exists() && !tmp.delete()) {
+                LOGGER.fine(() -> "could not delete " + tmp);
+            }
+        }
+    }
+
+    private void store(File bodyFile, File metaFile, byte[] data, Properties properties) {
+        try {
+            if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+                LOGGER.fine(() -> "could not create cache dir " + cacheDir);
+                return;
+            }
+            writeAtomically(bodyFile, data);
+            writeProperties(metaFile, properties);
+            evict();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "failed to cache " + bodyFile, e);
+        }
+    }
+
+    private static void touch(File file, long now) {
+        if (!file.setLastModified(now)) {
+            LOGGER.fine(() -> "could not touch " + file);
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits in its size limit
+     */
+    private synchronized void evict() {
+        File[] bodies = cacheDir.listFiles((dir, name) -> name.endsWith(".body"));
+        if (bodies == null) {
+            return;
+        }
+        long total = 0;
+        for (File body : bodies) {
+            total += body.length();
+        }
+        if (total <= maxCacheBytes) {
+            return;
+        }
+        Arrays.sort(bodies, Comparator.comparingLong(File::lastModified));
+        for (File body : bodies) {
+            if (total <= maxCacheBytes) {
+                break;
+            }
+            total -= body.length();
+            String name = body.getName();
+            File meta = new File(cacheDir, name.substring(0, name.length() - ".body".length()) + ".properties");
+            if (!body.delete() || !meta.delete()) {
+                LOGGER.fine(() -> "failed to evict cache entry " + name);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import io.jenkins.plugins.checks.api.ChecksDetails;
+import io.jenkins.plugins.checks.api.ChecksPublisher;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publishes checks on a background thread so that a slow or rate limited SCM API never blocks the build.
+ *
+ * Updates are coalesced so that only the latest {@link ChecksDetails} is published; intermediate states which
+ * were superseded before we got to them are dropped. Failed publishes are retried with an exponential backoff
+ * unless a newer update replaces them.
+ */
+public class AsyncChecksPublisher extends ChecksPublisher {
+    private static final Logger LOGGER = Logger.getLogger(AsyncChecksPublisher.class.getName());
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newScheduledThreadPool(2,
+            new NamingThreadFactory(new DaemonThreadFactory(), "AsyncChecksPublisher"));
+
+    static final int MAX_ATTEMPTS = 5;
+    static final long INITIAL_BACKOFF_MILLIS = 1000;
+
+    private final ChecksPublisher delegate;
+    private ChecksDetails pending;
+    private boolean scheduled;
+    private int attempt;
+
+    public AsyncChecksPublisher(ChecksPublisher delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void publish(ChecksDetails details) {
+        synchronized (this) {
+            pending = details;
+            attempt = 0;
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        EXECUTOR.execute(this::drain);
+    }
+
+    /**
+     * Waits for any pending update to be published, e.g. so that the final state is sent before the step completes
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if everything was published
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (scheduled) {
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (waitMillis <= 0) {
+                return false;
+            }
+            wait(waitMillis);
+        }
+        return true;
+    }
+
+    private void drain() {
+        ChecksDetails details;
+        synchronized (this) {
+            details = pending;
+            pending = null;
+            if (details == null) {
+                scheduled = false;
+                notifyAll();
+                return;
+            }
+        }
+        try {
+            delegate.publish(details);
+        } catch (RuntimeException e) {
+            long delay;
+            synchronized (this) {
+                attempt++;
+                if (pending != null) {
+                    // a newer update has arrived so lets publish that instead of retrying
+                    delay = 0;
+                } else if (attempt < MAX_ATTEMPTS) {
+                    pending = details;
+                    delay = INITIAL_BACKOFF_MILLIS << (attempt - 1);
+                    LOGGER.log(Level.FINE, "failed to publish checks, retrying in " + delay + "ms", e);
+                } else {
+                    LOGGER.log(Level.WARNING, "giving up publishing checks after " + attempt + " attempts", e);
+                    attempt = 0;
+                    delay = 0;
+                }
+            }
+            EXECUTOR.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        EXECUTOR.execute(this::drain);
+    }
+}
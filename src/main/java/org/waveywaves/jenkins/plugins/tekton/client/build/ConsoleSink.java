@@ -0,0 +1,259 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Collects the output of concurrent log watchers and writes it to the build console from a single thread.
+ *
+ * Every source is framed into whole lines, as bytes so that binary output passes through unchanged, and the lines
+ * are queued in a bounded buffer which is written in batches once enough bytes are queued or enough time has passed.
+ * When the buffer is full a writer waits for a while and then drops its line, counting what was dropped, so that a
+ * chatty step slows down its own log watcher rather than the console of the controller.
+ */
+public class ConsoleSink implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(ConsoleSink.class.getName());
+
+    static final int CAPACITY_BYTES = Integer.getInteger(ConsoleSink.class.getName() + ".capacityBytes", 1024 * 1024);
+    static final int FLUSH_BYTES = Integer.getInteger(ConsoleSink.class.getName() + ".flushBytes", 64 * 1024);
+    static final long FLUSH_MILLIS = Long.getLong(ConsoleSink.class.getName() + ".flushMillis", 200);
+    static final long MAX_BLOCK_MILLIS = Long.getLong(ConsoleSink.class.getName() + ".maxBlockMillis", 5000);
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final OutputStream out;
+    private final int capacityBytes;
+    private final int flushBytes;
+    private final long flushMillis;
+    private final long maxBlockMillis;
+    private final ArrayDeque<byte[]> lines = new ArrayDeque<>();
+    private final Thread writer;
+    private int bufferedBytes;
+    private long droppedLines;
+    private long reportedDroppedLines;
+    private boolean closed;
+
+    public ConsoleSink(OutputStream out) {
+        this(out, CAPACITY_BYTES, FLUSH_BYTES, FLUSH_MILLIS, MAX_BLOCK_MILLIS);
+    }
+
+    ConsoleSink(OutputStream out, int capacityBytes, int flushBytes, long flushMillis, long maxBlockMillis) {
+        this.out = out;
+        this.capacityBytes = capacityBytes;
+        this.flushBytes = flushBytes;
+        this.flushMillis = flushMillis;
+        this.maxBlockMillis = maxBlockMillis;
+        this.writer = new Thread(this::writeLoop, "Tekton console writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * @param prefix written before every line, which may be empty
+     * @return a stream for one log watcher whose output is framed into lines
+     */
+    public OutputStream newSource(String prefix) {
+        return new Source(prefix.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a message line to the stream, going through the sink when the stream is one of its sources
+     *
+     * @param out the console or a source of a sink
+     * @param text the line without its line break
+     * @throws IOException if the line could not be written
+     */
+    public static void writeLine(OutputStream out, String text) throws IOException {
+        if (out instanceof Source) {
+            ((Source) out).writeLine(text);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] line = Arrays.copyOf(bytes, bytes.length + 1);
+        line[bytes.length] = '\n';
+        // a single write so that lines from different threads never interleave
+        out.write(line);
+    }
+
+    /**
+     * Ends any partial line written to the stream, e.g. when the log of a container did not end with a line break,
+     * so that the next output starts on a line of its own
+     *
+     * @param out the console or a source of a sink
+     * @throws IOException if the line could not be written
+     */
+    public static void endLine(OutputStream out) throws IOException {
+        if (out instanceof Source) {
+            ((Source) out).endLine();
+        }
+    }
+
+    /**
+     * @return the number of lines dropped because the console could not keep up
+     */
+    public synchronized long getDroppedLines() {
+        return droppedLines;
+    }
+
+    /**
+     * Queues a whole line, waiting for space if the buffer is full
+     *
+     * @param line the line including its line break
+     */
+    void enqueue(byte[] line) {
+        boolean interrupted = false;
+        synchronized (this) {
+            if (closed) {
+                LOGGER.fine("dropping line written after the console sink was closed");
+                droppedLines++;
+                return;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBlockMillis);
+            while (bufferedBytes > 0 && bufferedBytes + line.length > capacityBytes) {
+                long waitMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (waitMillis <= 0 || interrupted) {
+                    droppedLines++;
+                    return;
+                }
+                try {
+                    wait(waitMillis);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            lines.add(line);
+            bufferedBytes += line.length;
+            if (bufferedBytes >= flushBytes) {
+                notifyAll();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        while (true) {
+            boolean done;
+            synchronized (this) {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMillis);
+                while (!closed && bufferedBytes < flushBytes) {
+                    long waitMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (waitMillis <= 0) {
+                        break;
+                    }
+                    try {
+                        wait(waitMillis);
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                batch.reset();
+                byte[] line;
+                while ((line = lines.poll()) != null) {
+                    batch.write(line, 0, line.length);
+                }
+                bufferedBytes = 0;
+                if (droppedLines > reportedDroppedLines) {
+                    byte[] message = ("[Tekton] dropped " + (droppedLines - reportedDroppedLines)
+                            + " log lines as the console could not keep up\n").getBytes(StandardCharsets.UTF_8);
+                    batch.write(message, 0, message.length);
+                    reportedDroppedLines = droppedLines;
+                }
+                done = closed;
+                // wake up any writers waiting for space
+                notifyAll();
+            }
+            if (batch.size() > 0) {
+                try {
+                    batch.writeTo(out);
+                    out.flush();
+                } catch (IOException e) {
+                    LOGGER.warning("failed to write to console: " + e);
+                }
+            }
+            if (done) {
+                synchronized (this) {
+                    if (lines.isEmpty()) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far and waits for the console to be written
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Source extends LineTransformationOutputStream {
+        private final byte[] prefix;
+        private boolean endingLine;
+
+        Source(byte[] prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+        }
+
+        @Override
+        protected void eol(byte[] b, int len) {
+            int extra = endingLine ? NEWLINE.length : 0;
+            byte[] line = new byte[prefix.length + len + extra];
+            System.arraycopy(prefix, 0, line, 0, prefix.length);
+            System.arraycopy(b, 0, line, prefix.length, len);
+            System.arraycopy(NEWLINE, 0, line, prefix.length + len, extra);
+            enqueue(line);
+        }
+
+        synchronized void endLine() throws IOException {
+            // only called back with the partial line, if there is one
+            endingLine = true;
+            try {
+                forceEol();
+            } finally {
+                endingLine = false;
+            }
+        }
+
+        synchronized void writeLine(String text) throws IOException {
+            endLine();
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            byte[] line = new byte[prefix.length + bytes.length + NEWLINE.length];
+            System.arraycopy(prefix, 0, line, 0, prefix.length);
+            System.arraycopy(bytes, 0, line, prefix.length, bytes.length);
+            System.arraycopy(NEWLINE, 0, line, prefix.length + bytes.length, NEWLINE.length);
+            enqueue(line);
+        }
+    }
+}
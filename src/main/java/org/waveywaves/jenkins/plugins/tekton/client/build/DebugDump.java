@@ -0,0 +1,60 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.BuildListener;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.util.BuildListenerAdapter;
+import org.waveywaves.jenkins.plugins.tekton.client.DiagnosticsUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * Collects the payloads of a build step so they can be archived with the build rather than written to the
+ * controller log. Everything added is redacted.
+ */
+public class DebugDump {
+    public static final String ARTIFACT_NAME = "tekton-debug.txt";
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * @param title the title of the section
+     * @param content the content of the section
+     */
+    public synchronized void add(String title, String content) {
+        buffer.append("### ").append(title).append("\n")
+                .append(DiagnosticsUtils.redact(content))
+                .append("\n\n");
+    }
+
+    public synchronized String getText() {
+        return buffer.toString();
+    }
+
+    /**
+     * Archives the dump as the {@link #ARTIFACT_NAME} artifact of the build
+     *
+     * @param run the build
+     * @param workspace the workspace used to stage the artifact
+     * @param launcher the launcher
+     * @param listener the listener
+     * @throws IOException if the dump could not be archived
+     * @throws InterruptedException if the build was aborted
+     */
+    public void archive(Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener) throws IOException, InterruptedException {
+        String path = ".tekton/" + ARTIFACT_NAME;
+        FilePath file = workspace.child(path);
+        file.getParent().mkdirs();
+        file.write(getText(), StandardCharsets.UTF_8.name());
+        try {
+            BuildListener buildListener = BuildListenerAdapter.wrap(listener);
+            run.pickArtifactManager().archive(workspace, launcher, buildListener, Collections.singletonMap(ARTIFACT_NAME, path));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build;
+
+import io.jenkins.plugins.checks.api.ChecksConclusion;
+import io.jenkins.plugins.checks.api.ChecksDetails;
+import io.jenkins.plugins.checks.api.ChecksOutput;
+import io.jenkins.plugins.checks.api.ChecksPublisher;
+import io.jenkins.plugins.checks.api.ChecksStatus;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.TaskRunProgressListener;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Publishes an in progress check for a PipelineRun which lists the status of each of its TaskRuns
+ */
+public class PipelineRunChecks implements TaskRunProgressListener {
+    public static final String CHECK_NAME = "tekton";
+
+    private final ChecksPublisher publisher;
+    private final String checkName;
+    private final String pipelineRunName;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final Map<String, TaskStatus> taskStatuses = new LinkedHashMap<>();
+
+    public PipelineRunChecks(ChecksPublisher publisher, String pipelineRunName) {
+        this(publisher, CHECK_NAME, pipelineRunName);
+    }
+
+    public PipelineRunChecks(ChecksPublisher publisher, String checkName, String pipelineRunName) {
+        this.publisher = publisher;
+        this.checkName = checkName;
+        this.pipelineRunName = pipelineRunName;
+    }
+
+    /**
+     * Publishes the current progress of the PipelineRun
+     */
+    public void publishInProgress() {
+        ChecksDetails checkDetails = new ChecksDetails.ChecksDetailsBuilder()
+                .withName(checkName)
+                .withOutput(new ChecksOutput.ChecksOutputBuilder()
+                        .withTitle(pipelineRunName)
+                        .withSummary("PipelineRun is running...")
+                        .withText(toMarkdown())
+                        .build())
+                .withStartedAt(startedAt)
+                .withStatus(ChecksStatus.IN_PROGRESS)
+                .withConclusion(ChecksConclusion.NONE)
+                .build();
+        publisher.publish(checkDetails);
+    }
+
+    @Override
+    public void onTaskRunStarted(String pipelineTaskName, String taskRunName) {
+        updateTask(pipelineTaskName, taskRunName, ":hourglass: Running");
+    }
+
+    @Override
+    public void onTaskRunCompleted(String pipelineTaskName, String taskRunName, boolean succeeded) {
+        updateTask(pipelineTaskName, taskRunName, succeeded ? ":white_check_mark: Succeeded" : ":x: Failed");
+    }
+
+    private void updateTask(String pipelineTaskName, String taskRunName, String status) {
+        synchronized (taskStatuses) {
+            taskStatuses.put(pipelineTaskName, new TaskStatus(taskRunName, status));
+        }
+        publishInProgress();
+    }
+
+    /**
+     * @return a markdown table of the status of each TaskRun seen so far
+     */
+    public String toMarkdown() {
+        StringBuilder builder = new StringBuilder();
+        synchronized (taskStatuses) {
+            if (taskStatuses.isEmpty()) {
+                return "Waiting for TaskRuns to start...";
+            }
+            builder.append("| Task | TaskRun | Status |\n");
+            builder.append("| --- | --- | --- |\n");
+            for (Map.Entry<String, TaskStatus> entry : taskStatuses.entrySet()) {
+                TaskStatus task = entry.getValue();
+                builder.append("| ").append(cell(entry.getKey()))
+                        .append(" | ").append(cell(task.taskRunName))
+                        .append(" | ").append(cell(task.status)).append(" |\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Escapes the pipes and line breaks which would otherwise break the table
+     */
+    private static String cell(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.replace("|", "\\|").replace("\r", " ").replace("\n", " ");
+    }
+
+    private static final class TaskStatus {
+        final String taskRunName;
+        final String status;
+
+        TaskStatus(String taskRunName, String status) {
+            this.taskRunName = taskRunName;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Prefixes every line so that the output of concurrent log watchers sharing a console can be told apart.
+ * Whole lines are written while holding the lock of the shared stream so they never interleave. Closing this stream
+ * writes any partial last line but does not close the shared stream.
+ */
+public class PrefixedOutputStream extends LineTransformationOutputStream {
+    private final OutputStream out;
+    private final byte[] prefix;
+
+    public PrefixedOutputStream(OutputStream out, String prefix) {
+        this.out = out;
+        this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        synchronized (out) {
+            out.write(prefix);
+            out.write(b, 0, len);
+            if (len == 0 || b[len - 1] != '\n') {
+                // the last line was forced out by close() so lets not join it onto what comes next
+                out.write('\n');
+            }
+            out.flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,163 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import io.jenkins.plugins.checks.api.ChecksPublisher;
+import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.build.PipelineRunChecks;
+import org.waveywaves.jenkins.plugins.tekton.client.build.PrefixedOutputStream;
+
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the same resource on several clusters concurrently, streaming the logs of each cluster with a
+ * <code>[cluster]</code> prefix and working out the result of the build from a quorum of the clusters.
+ */
+class ClusterFanOut {
+    private static final Logger LOGGER = Logger.getLogger(ClusterFanOut.class.getName());
+
+    static final long ABORT_TIMEOUT_MILLIS = Long.getLong(ClusterFanOut.class.getName() + ".abortTimeoutMillis", 60000);
+
+    private final CreateRaw step;
+    private final List<String> clusters;
+    private final int minSuccessfulClusters;
+    private final Supplier<ChecksPublisher> checksPublishers;
+
+    /**
+     * @param step the step to copy for each cluster
+     * @param clusters the clusters to create the resource on
+     * @param minSuccessfulClusters how many clusters must succeed; 0 or less means all of them
+     * @param checksPublishers creates the checks publisher for each cluster
+     */
+    ClusterFanOut(CreateRaw step, List<String> clusters, int minSuccessfulClusters, Supplier<ChecksPublisher> checksPublishers) {
+        this.step = step;
+        this.clusters = clusters;
+        this.minSuccessfulClusters = minSuccessfulClusters;
+        this.checksPublishers = checksPublishers;
+    }
+
+    /**
+     * @return how many clusters have to succeed for the build to succeed
+     */
+    int getRequiredSuccesses() {
+        if (minSuccessfulClusters <= 0) {
+            return clusters.size();
+        }
+        return Math.min(minSuccessfulClusters, clusters.size());
+    }
+
+    void perform(Run<?, ?> run, FilePath workspace, EnvVars envVars, TaskListener listener) throws InterruptedException {
+        PrintStream console = listener.getLogger();
+
+        // lets read the input and apply the catalog once rather than once per cluster
+        byte[] data;
+        try {
+            data = step.readInput(workspace, envVars);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            console.println("[Tekton] Failed: " + e.getMessage());
+            LOGGER.log(Level.WARNING, "failed to read the input", e);
+            run.setResult(Result.FAILURE);
+            return;
+        }
+
+        console.println("[Tekton] Creating on clusters " + clusters + ", " + getRequiredSuccesses() + " must succeed");
+
+        ExecutorService executor = Executors.newFixedThreadPool(clusters.size(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "ClusterFanOut " + run.getExternalizableId()));
+        Map<String, Future<Result>> futures = new LinkedHashMap<>();
+        Map<String, Result> results = new LinkedHashMap<>();
+        List<CreateRaw> children = new ArrayList<>();
+        List<PrintStream> consoles = new ArrayList<>();
+        try {
+            for (String cluster : clusters) {
+                if (TektonUtils.getTektonClient(cluster) == null || TektonUtils.getKubernetesClient(cluster) == null) {
+                    console.println("[Tekton] No clients for cluster " + cluster);
+                    results.put(cluster, Result.FAILURE);
+                    continue;
+                }
+                CreateRaw child = step.copyForCluster(cluster);
+                children.add(child);
+                PrintStream prefixed = prefixedConsole(console, cluster);
+                consoles.add(prefixed);
+                child.prepareFanOut(data, prefixed, checksPublishers.get(),
+                        PipelineRunChecks.CHECK_NAME + " (" + cluster + ")");
+                futures.put(cluster, executor.submit(() -> {
+                    child.runCreate(run, workspace, envVars);
+                    return child.getResult();
+                }));
+            }
+
+            for (Map.Entry<String, Future<Result>> entry : futures.entrySet()) {
+                try {
+                    Result result = entry.getValue().get();
+                    results.put(entry.getKey(), result != null ? result : Result.SUCCESS);
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "failed to create on cluster " + entry.getKey(), e.getCause());
+                    results.put(entry.getKey(), Result.FAILURE);
+                }
+            }
+        } catch (InterruptedException e) {
+            // interrupting the children cancels their runs unless keepRunningOnAbort is set
+            for (Future<Result> future : futures.values()) {
+                future.cancel(true);
+            }
+            // lets give the children a chance to cancel their runs before the build completes
+            executor.shutdown();
+            if (!executor.awaitTermination(ABORT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                console.println("[Tekton] Timed out waiting for the runs on clusters " + clusters + " to be cancelled");
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
+            for (CreateRaw child : children) {
+                child.flushChecks();
+            }
+            // lets write the last partial line of each cluster
+            for (PrintStream prefixed : consoles) {
+                prefixed.close();
+            }
+        }
+
+        int successes = 0;
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            console.println("[Tekton] " + entry.getKey() + ": " + entry.getValue());
+            if (entry.getValue() == Result.SUCCESS) {
+                successes++;
+            }
+        }
+        int required = getRequiredSuccesses();
+        console.println("[Tekton] " + successes + "/" + clusters.size() + " clusters succeeded, " + required + " required");
+        if (successes < required) {
+            run.setResult(Result.FAILURE);
+        }
+    }
+
+    private static PrintStream prefixedConsole(PrintStream console, String cluster) {
+        try {
+            return new PrintStream(new PrefixedOutputStream(console, "[" + cluster + "] "), true, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
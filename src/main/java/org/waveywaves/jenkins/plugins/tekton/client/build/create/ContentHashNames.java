@@ -0,0 +1,223 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import com.google.common.base.Strings;
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRef;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineSpec;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineTask;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRef;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.SerializationUtils;
+
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Names Tasks and Pipelines after a hash of their spec so that identical definitions are only created once and then
+ * shared by every build and job that uses them.
+ *
+ * The names given to the Tasks and Pipelines created by a build are remembered on the build so that the
+ * <code>taskRef</code> and <code>pipelineRef</code> of the runs it creates afterwards can be rewritten to match.
+ *
+ * The resources we know exist are only trusted for a while, and are forgotten as soon as a run reports that it could
+ * not find its Task or Pipeline, so that a definition deleted from the cluster is created again.
+ */
+public class ContentHashNames extends InvisibleAction {
+    private static final Logger LOGGER = Logger.getLogger(ContentHashNames.class.getName());
+
+    static final int HASH_LENGTH = 8;
+    static final int MAX_NAME_LENGTH = 63;
+    static final int MAX_INDEXED = Integer.getInteger(ContentHashNames.class.getName() + ".maxIndexed", 4096);
+
+    /**
+     * How long we trust that a resource we created still exists before we try to create it again
+     */
+    static final long EXISTING_TTL_MILLIS = Long.getLong(ContentHashNames.class.getName() + ".existingTtlMillis", TimeUnit.MINUTES.toMillis(10));
+
+    // the cluster/namespace/kind/name of the resources we know exist, and when we stop trusting that, so we can skip creating them
+    private static final Map<String, Long> EXISTING = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_INDEXED;
+        }
+    };
+
+    private final Map<String, String> taskNames = new ConcurrentHashMap<>();
+    private final Map<String, String> pipelineNames = new ConcurrentHashMap<>();
+
+    /**
+     * @param run the build which may be null
+     * @return the names for the build, which are not remembered if there is no build
+     */
+    public static ContentHashNames forRun(Run<?, ?> run) {
+        if (run == null) {
+            return new ContentHashNames();
+        }
+        synchronized (run) {
+            ContentHashNames answer = run.getAction(ContentHashNames.class);
+            if (answer == null) {
+                answer = new ContentHashNames();
+                run.addAction(answer);
+            }
+            return answer;
+        }
+    }
+
+    /**
+     * @param name the name of the resource
+     * @param spec the spec of the resource
+     * @return the name with a short hash of the spec appended
+     */
+    public static String hashedName(String name, Object spec) {
+        String hash = DigestUtils.sha256Hex(SerializationUtils.toJson(spec)).substring(0, HASH_LENGTH);
+        String prefix = Strings.nullToEmpty(name);
+        int maxPrefix = MAX_NAME_LENGTH - HASH_LENGTH - 1;
+        if (prefix.length() > maxPrefix) {
+            prefix = prefix.substring(0, maxPrefix);
+        }
+        prefix = prefix.replaceAll("-+$", "");
+        return prefix.isEmpty() ? hash : prefix + "-" + hash;
+    }
+
+    /**
+     * Creates the resource unless we already know it exists; a conflict means another build created the same
+     * definition so it is treated as success
+     *
+     * @param cluster the cluster name
+     * @param ns the namespace
+     * @param kind the kind of resource
+     * @param name the content hashed name
+     * @param create creates the resource
+     * @return true if the resource was created, false if it already existed
+     */
+    static boolean createIfMissing(String cluster, String ns, String kind, String name, Supplier<?> create) {
+        String key = key(cluster, ns, kind, name);
+        synchronized (EXISTING) {
+            Long expires = EXISTING.get(key);
+            if (expires != null && expires - System.nanoTime() > 0) {
+                LOGGER.fine(() -> "Reusing existing " + key);
+                return false;
+            }
+            EXISTING.remove(key);
+        }
+        boolean created = true;
+        try {
+            create.get();
+        } catch (KubernetesClientException e) {
+            if (e.getCode() != HttpURLConnection.HTTP_CONFLICT) {
+                throw e;
+            }
+            created = false;
+        }
+        synchronized (EXISTING) {
+            EXISTING.put(key, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(EXISTING_TTL_MILLIS));
+        }
+        return created;
+    }
+
+    /**
+     * Forgets that the resource exists so that the next build creates it again, e.g. as it has been deleted
+     *
+     * @param cluster the cluster name
+     * @param ns the namespace
+     * @param kind the kind of resource
+     * @param name the content hashed name
+     */
+    static void forget(String cluster, String ns, String kind, String name) {
+        String key = key(cluster, ns, kind, name);
+        synchronized (EXISTING) {
+            if (EXISTING.remove(key) != null) {
+                LOGGER.fine(() -> "Forgot existing " + key);
+            }
+        }
+    }
+
+    /**
+     * Forgets the Tasks and Pipelines named by this build, e.g. when one of its runs could not find them
+     *
+     * @param cluster the cluster name
+     * @param ns the namespace
+     */
+    public void forgetAll(String cluster, String ns) {
+        for (String name : taskNames.values()) {
+            forget(cluster, ns, "Task", name);
+        }
+        for (String name : pipelineNames.values()) {
+            forget(cluster, ns, "Pipeline", name);
+        }
+    }
+
+    private static String key(String cluster, String ns, String kind, String name) {
+        return cluster + "/" + Strings.nullToEmpty(ns) + "/" + kind + "/" + name;
+    }
+
+    static void reset() {
+        synchronized (EXISTING) {
+            EXISTING.clear();
+        }
+    }
+
+    public void putTaskName(String name, String hashedName) {
+        taskNames.put(name, hashedName);
+    }
+
+    public void putPipelineName(String name, String hashedName) {
+        pipelineNames.put(name, hashedName);
+    }
+
+    /**
+     * @param taskRef the reference which may be null
+     */
+    public void rewrite(TaskRef taskRef) {
+        if (taskRef == null || taskRef.getName() == null) {
+            return;
+        }
+        if (Strings.isNullOrEmpty(taskRef.getKind()) || "Task".equals(taskRef.getKind())) {
+            String hashed = taskNames.get(taskRef.getName());
+            if (hashed != null) {
+                taskRef.setName(hashed);
+            }
+        }
+    }
+
+    /**
+     * @param pipelineRef the reference which may be null
+     */
+    public void rewrite(PipelineRef pipelineRef) {
+        if (pipelineRef == null || pipelineRef.getName() == null) {
+            return;
+        }
+        String hashed = pipelineNames.get(pipelineRef.getName());
+        if (hashed != null) {
+            pipelineRef.setName(hashed);
+        }
+    }
+
+    /**
+     * @param spec the pipeline spec whose task and finally references are rewritten, which may be null
+     */
+    public void rewrite(PipelineSpec spec) {
+        if (spec == null) {
+            return;
+        }
+        for (PipelineTask task : nullToEmpty(spec.getTasks())) {
+            rewrite(task.getTaskRef());
+        }
+        for (PipelineTask task : nullToEmpty(spec.getFinally())) {
+            rewrite(task.getTaskRef());
+        }
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : Collections.emptyList();
+    }
+}
@@ -0,0 +1,138 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import com.google.common.base.Strings;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.Pipeline;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.build.BaseStep;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Creates or updates a Pipeline defined by describables rather than YAML
+ */
+@Symbol("tektonCreatePipeline")
+public class CreateCustomPipeline extends BaseStep {
+    private final String name;
+    private String namespace;
+    private String clusterName;
+    private String description;
+    private List<TektonStringParamSpec> params;
+    private List<TektonWorkspaceDecl> workspaces;
+    private final List<TektonPipelineTask> tasks;
+
+    @DataBoundConstructor
+    public CreateCustomPipeline(final String name, final List<TektonPipelineTask> tasks) {
+        this.name = name;
+        this.tasks = tasks;
+    }
+
+    public String getName() { return this.name; }
+    public String getNamespace() { return this.namespace; }
+    public String getDescription() { return this.description; }
+    public List<TektonStringParamSpec> getParams() { return this.params; }
+    public List<TektonWorkspaceDecl> getWorkspaces() { return this.workspaces; }
+    public List<TektonPipelineTask> getTasks() { return this.tasks; }
+
+    public String getClusterName() {
+        if (Strings.isNullOrEmpty(clusterName)) {
+            clusterName = TektonUtils.DEFAULT_CLIENT_KEY;
+        }
+        return clusterName;
+    }
+
+    @DataBoundSetter
+    public void setNamespace(String namespace) {
+        this.namespace = namespace;
+    }
+
+    @DataBoundSetter
+    public void setClusterName(String clusterName) {
+        this.clusterName = clusterName;
+    }
+
+    @DataBoundSetter
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    @DataBoundSetter
+    public void setParams(List<TektonStringParamSpec> params) {
+        this.params = params;
+    }
+
+    @DataBoundSetter
+    public void setWorkspaces(List<TektonWorkspaceDecl> workspaces) {
+        this.workspaces = workspaces;
+    }
+
+    /**
+     * @return the Pipeline compiled from the configuration of this step
+     */
+    public Pipeline toPipeline() {
+        Pipeline pipeline = ResourceCompiler.compilePipeline(name, description, params, workspaces, tasks);
+        if (!Strings.isNullOrEmpty(namespace)) {
+            pipeline.getMetadata().setNamespace(namespace);
+        }
+        return pipeline;
+    }
+
+    @Override
+    public void perform(@Nonnull Run<?, ?> run, @Nonnull FilePath workspace, @Nonnull Launcher launcher, @Nonnull TaskListener listener) throws InterruptedException, IOException {
+        if (pipelineClient == null) {
+            TektonClient tc = TektonUtils.getTektonClient(getClusterName());
+            if (tc == null) {
+                throw new IOException("no tektonClient for cluster " + getClusterName());
+            }
+            setPipelineClient(tc.v1beta1().pipelines());
+        }
+        Pipeline pipeline = toPipeline();
+        String ns = pipeline.getMetadata().getNamespace();
+        pipeline = Strings.isNullOrEmpty(ns) ? pipelineClient.createOrReplace(pipeline) : pipelineClient.inNamespace(ns).createOrReplace(pipeline);
+        listener.getLogger().println("Created Pipeline with Name " + pipeline.getMetadata().getName());
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+        public FormValidation doCheckName(@QueryParameter(value = "name") final String name) {
+            if (name.length() == 0) {
+                return FormValidation.error("Name not provided");
+            }
+            return FormValidation.ok();
+        }
+
+        public ListBoxModel doFillClusterNameItems(@QueryParameter(value = "clusterName") final String clusterName) {
+            ListBoxModel items = new ListBoxModel();
+            for (String cn : TektonUtils.getTektonClientMap().keySet()) {
+                items.add(cn);
+            }
+            return items;
+        }
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> jobType) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Tekton : Create Pipeline";
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import com.google.common.base.Strings;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.Task;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.build.BaseStep;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Creates or updates a Task defined by describables rather than YAML
+ */
+@Symbol("tektonCreateTask")
+public class CreateCustomTask extends BaseStep {
+    private final String name;
+    private String namespace;
+    private String clusterName;
+    private String description;
+    private List<TektonStringParamSpec> params;
+    private List<TektonWorkspaceDecl> workspaces;
+    private List<TektonTaskResult> results;
+    private final List<TektonStep> steps;
+
+    @DataBoundConstructor
+    public CreateCustomTask(final String name, final List<TektonStep> steps) {
+        this.name = name;
+        this.steps = steps;
+    }
+
+    public String getName() { return this.name; }
+    public String getNamespace() { return this.namespace; }
+    public String getDescription() { return this.description; }
+    public List<TektonStringParamSpec> getParams() { return this.params; }
+    public List<TektonWorkspaceDecl> getWorkspaces() { return this.workspaces; }
+    public List<TektonTaskResult> getResults() { return this.results; }
+    public List<TektonStep> getSteps() { return this.steps; }
+
+    public String getClusterName() {
+        if (Strings.isNullOrEmpty(clusterName)) {
+            clusterName = TektonUtils.DEFAULT_CLIENT_KEY;
+        }
+        return clusterName;
+    }
+
+    @DataBoundSetter
+    public void setNamespace(String namespace) {
+        this.namespace = namespace;
+    }
+
+    @DataBoundSetter
+    public void setClusterName(String clusterName) {
+        this.clusterName = clusterName;
+    }
+
+    @DataBoundSetter
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    @DataBoundSetter
+    public void setParams(List<TektonStringParamSpec> params) {
+        this.params = params;
+    }
+
+    @DataBoundSetter
+    public void setWorkspaces(List<TektonWorkspaceDecl> workspaces) {
+        this.workspaces = workspaces;
+    }
+
+    @DataBoundSetter
+    public void setResults(List<TektonTaskResult> results) {
+        this.results = results;
+    }
+
+    /**
+     * @return the Task compiled from the configuration of this step
+     */
+    public Task toTask() {
+        Task task = ResourceCompiler.compileTask(name, description, params, workspaces, results, steps);
+        if (!Strings.isNullOrEmpty(namespace)) {
+            task.getMetadata().setNamespace(namespace);
+        }
+        return task;
+    }
+
+    @Override
+    public void perform(@Nonnull Run<?, ?> run, @Nonnull FilePath workspace, @Nonnull Launcher launcher, @Nonnull TaskListener listener) throws InterruptedException, IOException {
+        if (taskClient == null) {
+            TektonClient tc = TektonUtils.getTektonClient(getClusterName());
+            if (tc == null) {
+                throw new IOException("no tektonClient for cluster " + getClusterName());
+            }
+            setTaskClient(tc.v1beta1().tasks());
+        }
+        Task task = toTask();
+        String ns = task.getMetadata().getNamespace();
+        task = Strings.isNullOrEmpty(ns) ? taskClient.createOrReplace(task) : taskClient.inNamespace(ns).createOrReplace(task);
+        listener.getLogger().println("Created Task with Name " + task.getMetadata().getName());
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+        public FormValidation doCheckName(@QueryParameter(value = "name") final String name) {
+            if (name.length() == 0) {
+                return FormValidation.error("Name not provided");
+            }
+            return FormValidation.ok();
+        }
+
+        public ListBoxModel doFillClusterNameItems(@QueryParameter(value = "clusterName") final String clusterName) {
+            ListBoxModel items = new ListBoxModel();
+            for (String cn : TektonUtils.getTektonClientMap().keySet()) {
+                items.add(cn);
+            }
+            return items;
+        }
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> jobType) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Tekton : Create Task";
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package org.waveywaves.jenkins.plugins.tekton.client.build.create;
 
+import com.google.common.base.Strings;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.AbstractProject;
+import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.tasks.BuildStepDescriptor;
@@ -12,24 +14,36 @@ import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import io.fabric8.kubernetes.api.model.ObjectMeta;
 import io.fabric8.kubernetes.api.model.PersistentVolumeClaimVolumeSource;
+import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.tekton.client.TektonClient;
 import io.fabric8.tekton.pipeline.v1beta1.*;
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
+import org.waveywaves.jenkins.plugins.tekton.client.CancelUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.LabelUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.TaskDefinitionCache;
 import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils;
 import org.waveywaves.jenkins.plugins.tekton.client.build.BaseStep;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.LogSources;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.TaskRunLogWatch;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.WaitStrategy;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 @Symbol("customCreateTaskrun")
 public class CreateCustomTaskrun extends BaseStep {
     private static final Logger logger = Logger.getLogger(CreateCustomTaskrun.class.getName());
+    public static final int DEFAULT_MAX_CONCURRENT_TASK_RUNS = 10;
     private String clusterName;
     private PrintStream consoleLogger;
     private String kind;
@@ -41,6 +55,13 @@ public class CreateCustomTaskrun extends BaseStep {
     private List<TektonParam> params;
     private List<TektonWorkspaceBind> workspaces;
     private String taskRef;
+    private List<TektonMatrixAxis> matrix;
+    private int maxConcurrentTaskRuns = DEFAULT_MAX_CONCURRENT_TASK_RUNS;
+    private boolean fireAndForget;
+    private WaitStrategy waitStrategy;
+    private boolean keepRunningOnAbort;
+    private long cancelGracePeriodSeconds;
+    private transient LogSources logSources;
 
     @DataBoundConstructor
     public CreateCustomTaskrun(final String name,
@@ -68,19 +89,200 @@ public class CreateCustomTaskrun extends BaseStep {
     public String getGenerateName() { return this.generateName; }
     public List<TektonWorkspaceBind> getWorkspaces() { return this.workspaces; }
     public List<TektonParam> getParams() { return this.params; }
+    public List<TektonMatrixAxis> getMatrix() { return this.matrix; }
+    public int getMaxConcurrentTaskRuns() { return this.maxConcurrentTaskRuns; }
+    public boolean isFireAndForget() { return this.fireAndForget; }
+    public WaitStrategy getWaitStrategy() { return this.waitStrategy; }
+    public boolean isKeepRunningOnAbort() { return this.keepRunningOnAbort; }
+    public long getCancelGracePeriodSeconds() { return this.cancelGracePeriodSeconds; }
+
+    public String getClusterName() {
+        if (Strings.isNullOrEmpty(clusterName)) {
+            clusterName = TektonUtils.DEFAULT_CLIENT_KEY;
+        }
+        return clusterName;
+    }
+
+    /**
+     * @param fireAndForget if true the step only creates the TaskRun rather than streaming its logs and
+     *                      failing the build if it fails
+     */
+    @DataBoundSetter
+    public void setFireAndForget(boolean fireAndForget) {
+        this.fireAndForget = fireAndForget;
+    }
+
+    @DataBoundSetter
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * @param keepRunningOnAbort if true the TaskRun is not cancelled when the build is aborted
+     */
+    @DataBoundSetter
+    public void setKeepRunningOnAbort(boolean keepRunningOnAbort) {
+        this.keepRunningOnAbort = keepRunningOnAbort;
+    }
+
+    /**
+     * @param cancelGracePeriodSeconds if positive, a cancelled TaskRun which has not stopped within this many seconds
+     *                                 is deleted
+     */
+    @DataBoundSetter
+    public void setCancelGracePeriodSeconds(long cancelGracePeriodSeconds) {
+        this.cancelGracePeriodSeconds = cancelGracePeriodSeconds;
+    }
+
+    void setLogSources(LogSources logSources) {
+        this.logSources = logSources;
+    }
+
+    /**
+     * @param matrix if not empty a TaskRun is created for every combination of the values of these params
+     */
+    @DataBoundSetter
+    public void setMatrix(List<TektonMatrixAxis> matrix) {
+        this.matrix = matrix;
+    }
+
+    /**
+     * @param maxConcurrentTaskRuns the maximum number of matrix TaskRuns in flight at once
+     */
+    @DataBoundSetter
+    public void setMaxConcurrentTaskRuns(int maxConcurrentTaskRuns) {
+        this.maxConcurrentTaskRuns = maxConcurrentTaskRuns;
+    }
 
     @Override
     public void perform(@Nonnull Run<?, ?> run, @Nonnull FilePath filePath, @Nonnull Launcher launcher, @Nonnull TaskListener taskListener) throws InterruptedException, IOException {
         consoleLogger = taskListener.getLogger();
         logTektonTaskrun();
-        runCreate();
+        if (matrix != null && !matrix.isEmpty()) {
+            runMatrix(run);
+            return;
+        }
+        TaskRun taskRun = runCreate();
+        if (!fireAndForget) {
+            streamTaskRunLogsToConsole(run, taskRun);
+        }
+    }
+
+    private TaskRun runCreate() throws IOException {
+        TaskRun taskRun = buildTaskRun(getName(), getGenerateName(), paramsToParamList());
+        TektonClient tc = TektonUtils.getTektonClient(getClusterName());
+        if (taskRunClient == null) {
+            if (tc == null) {
+                throw new IOException("no tektonClient for cluster " + getClusterName());
+            }
+            setTaskRunClient(tc.v1beta1().taskRuns());
+        }
+        if (tc != null) {
+            validateTaskRun(tc, taskRun);
+        }
+        taskRun = taskRunClient.create(taskRun);
+        String resourceName = taskRun.getMetadata().getName();
+
+        consoleLogger.println(String.format("Created TaskRun with Name %s", resourceName));
+        return taskRun;
+    }
+
+    /**
+     * Streams the logs of the TaskRun until it completes using the same watches as <code>tektonCreateRaw</code>
+     */
+    private void streamTaskRunLogsToConsole(Run<?, ?> run, TaskRun taskRun) throws InterruptedException, IOException {
+        KubernetesClient kc = TektonUtils.getKubernetesClient(getClusterName());
+        TektonClient tc = TektonUtils.getTektonClient(getClusterName());
+        if (kc == null || tc == null) {
+            throw new IOException("no clients for cluster " + getClusterName());
+        }
+        if (Strings.isNullOrEmpty(taskRun.getMetadata().getNamespace())) {
+            taskRun.getMetadata().setNamespace(tc.getNamespace());
+        }
+        TaskRunLogWatch logWatch = new TaskRunLogWatch(kc, tc, taskRun, consoleLogger);
+        logWatch.setWaitStrategy(waitStrategy);
+        logWatch.setLogSources(logSources);
+        Thread logWatchTask = new Thread(logWatch);
+        logWatchTask.start();
+        try {
+            logWatchTask.join();
+        } catch (InterruptedException interrupted) {
+            logWatchTask.interrupt();
+            if (!keepRunningOnAbort) {
+                consoleLogger.println("[Tekton] Build aborted so cancelling TaskRun " + taskRun.getMetadata().getName());
+                CancelUtils.cancelTaskRun(tc, taskRun.getMetadata().getNamespace(), taskRun.getMetadata().getName(), cancelGracePeriodSeconds);
+            }
+            throw interrupted;
+        }
+        Exception e = logWatch.getException();
+        if (e != null) {
+            consoleLogger.println("[Tekton] TaskRun " + taskRun.getMetadata().getName() + " failed: " + e.getMessage());
+            run.setResult(Result.FAILURE);
+        }
     }
 
-    private void runCreate(){
+    private void runMatrix(Run<?, ?> run) throws InterruptedException, IOException {
+        TektonClient tc = TektonUtils.getTektonClient(getClusterName());
+        if (tc == null) {
+            throw new IOException("no tektonClient for cluster " + getClusterName());
+        }
+        String ns = !Strings.isNullOrEmpty(getNamespace()) ? getNamespace() : tc.getNamespace();
+        String matrixId = UUID.randomUUID().toString();
+        String prefix = !Strings.isNullOrEmpty(getGenerateName()) ? getGenerateName() :
+                (!Strings.isNullOrEmpty(getName()) ? getName() : getTaskRef()) + "-";
+
+        TaskRunMatrix taskRunMatrix = new TaskRunMatrix(tc, ns, matrixId,
+                maxConcurrentTaskRuns > 0 ? maxConcurrentTaskRuns : DEFAULT_MAX_CONCURRENT_TASK_RUNS, consoleLogger);
+        taskRunMatrix.setCancelOnAbort(!keepRunningOnAbort, cancelGracePeriodSeconds);
+        List<Map<String, String>> combinations = TaskRunMatrix.combinations(matrix);
+        for (int i = 0; i < combinations.size(); i++) {
+            Map<String, String> combination = combinations.get(i);
+            List<Param> paramList = paramsToParamList();
+            paramList.removeIf(p -> combination.containsKey(p.getName()));
+            for (Map.Entry<String, String> entry : combination.entrySet()) {
+                paramList.add(new Param(entry.getKey(), new ArrayOrString(entry.getValue())));
+            }
+            TaskRun taskRun = buildTaskRun(null, prefix, paramList);
+            taskRun.getMetadata().setNamespace(ns);
+            Map<String, String> labels = new HashMap<>();
+            labels.put(TaskRunMatrix.MATRIX_ID_LABEL, matrixId);
+            labels.put(TaskRunMatrix.MATRIX_INDEX_LABEL, Integer.toString(i));
+            LabelUtils.addLabels(taskRun, labels);
+            validateTaskRun(tc, taskRun);
+            taskRunMatrix.add(combination, taskRun);
+        }
+        if (!taskRunMatrix.run()) {
+            run.setResult(Result.FAILURE);
+        }
+    }
+
+    /**
+     * Checks the params and workspaces against those declared by the referenced Task using the cached Task specs so
+     * that mistakes fail the build before a pod is scheduled
+     */
+    private void validateTaskRun(TektonClient tc, TaskRun taskRun) throws IOException {
+        String ns = !Strings.isNullOrEmpty(taskRun.getMetadata().getNamespace()) ?
+                taskRun.getMetadata().getNamespace() : tc.getNamespace();
+        TaskDefinitionCache cache = TaskDefinitionCache.get(getClusterName(), tc, ns);
+        TaskSpec spec = cache.getTaskSpec(getTaskRef());
+        if (!cache.isSynced()) {
+            logger.fine("Not validating TaskRun as the Tasks in namespace " + ns + " could not be listed");
+            return;
+        }
+        if (spec == null) {
+            throw new IOException("Task " + getTaskRef() + " does not exist in namespace " + ns);
+        }
+        List<String> problems = TaskDefinitionCache.validate(spec, taskRun.getSpec().getParams(), taskRun.getSpec().getWorkspaces());
+        if (!problems.isEmpty()) {
+            throw new IOException("TaskRun does not match Task " + getTaskRef() + ": " + String.join(", ", problems));
+        }
+    }
+
+    private TaskRun buildTaskRun(String name, String generateName, List<Param> paramList) {
         ObjectMeta metadata = new ObjectMeta();
-        metadata.setName(getName());
+        metadata.setName(name);
         metadata.setNamespace(getNamespace());
-        metadata.setGenerateName(getGenerateName());
+        metadata.setGenerateName(generateName);
 
         TaskRef taskRef = new TaskRef();
         taskRef.setKind("Task");
@@ -90,7 +292,7 @@ public class CreateCustomTaskrun extends BaseStep {
         TaskRunSpec spec =  new TaskRunSpec();
         spec.setTaskRef(taskRef);
         spec.setWorkspaces(workspacesToWorkspaceBindingList());
-        spec.setParams(paramsToParamList());
+        spec.setParams(paramList);
 
         TaskRunBuilder taskRunBuilder = new TaskRunBuilder();
         taskRunBuilder.withApiVersion("tekton.dev/v1beta1");
@@ -98,19 +300,14 @@ public class CreateCustomTaskrun extends BaseStep {
         taskRunBuilder.withMetadata(metadata);
         taskRunBuilder.withSpec(spec);
 
-        TaskRun taskRun = taskRunBuilder.build();
-        if (taskClient == null) {
-            TektonClient tc = TektonUtils.getTektonClient(clusterName);
-            setTaskRunClient(tc.v1beta1().taskRuns());
-        }
-        taskRun = taskRunClient.create(taskRun);
-        String resourceName = taskRun.getMetadata().getName();
-
-        consoleLogger.print(String.format("Created Task with Name %s", resourceName));
+        return taskRunBuilder.build();
     }
 
     private List<Param> paramsToParamList() {
         List<Param> paramList = new ArrayList<>();
+        if (this.params == null) {
+            return paramList;
+        }
         for (TektonParam p: this.params) {
             Param param = new Param();
             param.setName(p.getName());
@@ -126,6 +323,9 @@ public class CreateCustomTaskrun extends BaseStep {
 
     public List<WorkspaceBinding> workspacesToWorkspaceBindingList() {
         List<WorkspaceBinding> wsbList = new ArrayList<>();
+        if (this.workspaces == null) {
+            return wsbList;
+        }
         for (TektonWorkspaceBind w: this.workspaces){
             WorkspaceBinding wsb = new WorkspaceBinding();
             wsb.setName(w.getName());
@@ -1,48 +1,52 @@
 package org.waveywaves.jenkins.plugins.tekton.client.build.create;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
-import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 import com.google.common.base.Strings;
-import com.google.common.io.ByteStreams;
-import com.google.common.io.Files;
-import com.google.common.io.Resources;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.model.AbstractProject;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
-import hudson.remoting.VirtualChannel;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import hudson.util.LogTaskListener;
 import io.fabric8.knative.internal.pkg.apis.Condition;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.tekton.client.TektonClient;
 import io.fabric8.tekton.pipeline.v1beta1.ArrayOrString;
 import io.fabric8.tekton.pipeline.v1beta1.Param;
 import io.fabric8.tekton.pipeline.v1beta1.Pipeline;
 import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
 import io.fabric8.tekton.pipeline.v1beta1.PipelineRunSpec;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineTask;
+import io.fabric8.tekton.pipeline.v1beta1.Sidecar;
+import io.fabric8.tekton.pipeline.v1beta1.Step;
 import io.fabric8.tekton.pipeline.v1beta1.Task;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRef;
 import io.fabric8.tekton.pipeline.v1beta1.TaskRun;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRunSpec;
+import io.fabric8.tekton.pipeline.v1beta1.TaskSpec;
+import io.fabric8.tekton.pipeline.v1beta1.WorkspaceBinding;
 import io.jenkins.plugins.checks.api.ChecksConclusion;
 import io.jenkins.plugins.checks.api.ChecksDetails;
 import io.jenkins.plugins.checks.api.ChecksOutput;
 import io.jenkins.plugins.checks.api.ChecksPublisher;
 import io.jenkins.plugins.checks.api.ChecksPublisherFactory;
 import io.jenkins.plugins.checks.api.ChecksStatus;
+import jenkins.model.Jenkins;
 import java.net.MalformedURLException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.Symbol;
@@ -50,25 +54,48 @@ import org.jenkinsci.plugins.displayurlapi.DisplayURLProvider;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
-import org.waveywaves.jenkins.plugins.tekton.client.LogUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.AdmissionQueue;
+import org.waveywaves.jenkins.plugins.tekton.client.CancelUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.ClusterPlacement;
+import org.waveywaves.jenkins.plugins.tekton.client.CompressionUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.DiagnosticsUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.LabelUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.PvcTransfer;
+import org.waveywaves.jenkins.plugins.tekton.client.ResourceNotReadyException;
+import org.waveywaves.jenkins.plugins.tekton.client.ResourceReadiness;
+import org.waveywaves.jenkins.plugins.tekton.client.SerializationUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.TaskDefinitionCache;
 import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils;
 import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils.TektonResourceType;
 import org.waveywaves.jenkins.plugins.tekton.client.ToolUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.UrlFetcher;
+import org.waveywaves.jenkins.plugins.tekton.client.build.AsyncChecksPublisher;
 import org.waveywaves.jenkins.plugins.tekton.client.build.BaseStep;
+import org.waveywaves.jenkins.plugins.tekton.client.build.ConsoleSink;
+import org.waveywaves.jenkins.plugins.tekton.client.build.DebugDump;
+import org.waveywaves.jenkins.plugins.tekton.client.build.PipelineRunChecks;
+import org.waveywaves.jenkins.plugins.tekton.client.global.ClusterConfig;
+import org.waveywaves.jenkins.plugins.tekton.client.global.TektonGlobalConfiguration;
 import org.waveywaves.jenkins.plugins.tekton.client.logwatch.PipelineRunLogWatch;
 import org.waveywaves.jenkins.plugins.tekton.client.logwatch.TaskRunLogWatch;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.WaitStrategy;
 
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,15 +103,53 @@ import java.util.logging.Logger;
 public class CreateRaw extends BaseStep {
     private static final Logger LOGGER = Logger.getLogger(CreateRaw.class.getName());
 
+    static final String RESULTS_DIR = "tekton-results";
+    static final long DEFAULT_RESULTS_MAX_BYTES = Long.getLong(CreateRaw.class.getName() + ".resultsMaxBytes", 100L * 1024 * 1024);
+    static final long CHECKS_FLUSH_TIMEOUT_MILLIS = Long.getLong(CreateRaw.class.getName() + ".checksFlushTimeoutMillis", 30000);
+    static final long TRANSFER_POD_TIMEOUT_MILLIS = Long.getLong(CreateRaw.class.getName() + ".transferPodTimeoutMillis", 120000);
+    // the reasons Tekton gives when a run refers to a Task or Pipeline that does not exist
+    private static final Set<String> MISSING_DEFINITION_REASONS = new HashSet<>(Arrays.asList("CouldntGetTask", "CouldntGetPipeline"));
+
     private final String input;
     private final String inputType;
     private String namespace;
     private String clusterName;
     private boolean enableCatalog;
+    private WaitStrategy waitStrategy;
+    private boolean keepRunningOnAbort;
+    private long cancelGracePeriodSeconds;
+    private boolean supersede;
+    private boolean debugDump;
+    private String clusterNames;
+    private String clusterSelector;
+    private int minSuccessfulClusters;
+    private String placementStrategy;
+    private int priority;
+    private boolean contentHashNames;
+    private List<TektonLogFilter> logFilters;
+    private String resultsFile;
+    private String resultsWorkspace;
+    private String resultsPaths;
+    private long resultsMaxBytes;
+    private String syncWorkspace;
+    private String syncExcludes;
+    private int syncParallelism;
+    private boolean syncBack;
+    private boolean preflight;
 
     private transient PrintStream consoleLogger;
     private transient ClassLoader toolClassLoader;
     private transient ChecksPublisher checksPublisher;
+    private transient PipelineRunChecks pipelineRunChecks;
+    private transient DebugDump dump;
+    private transient byte[] preparedInput;
+    private transient String checkName;
+    private transient boolean fanOutChild;
+    private transient Result result;
+    private transient ContentHashNames names;
+    private transient TektonResults results;
+    private transient FilePath workspace;
+    private transient volatile OutputStream activeSource;
 
     @DataBoundConstructor
     public CreateRaw(String input, String inputType) {
@@ -112,6 +177,186 @@ public class CreateRaw extends BaseStep {
         this.enableCatalog = enableCatalog;
     }
 
+    @DataBoundSetter
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * @param debugDump if true the input, environment and created resources are archived as a build artifact
+     */
+    @DataBoundSetter
+    public void setDebugDump(boolean debugDump) {
+        this.debugDump = debugDump;
+    }
+
+    /**
+     * @param keepRunningOnAbort if true the PipelineRun or TaskRun is not cancelled when the build is aborted
+     */
+    @DataBoundSetter
+    public void setKeepRunningOnAbort(boolean keepRunningOnAbort) {
+        this.keepRunningOnAbort = keepRunningOnAbort;
+    }
+
+    /**
+     * @param cancelGracePeriodSeconds if positive, a cancelled PipelineRun or TaskRun which has not stopped
+     *                                 within this many seconds is deleted
+     */
+    @DataBoundSetter
+    public void setCancelGracePeriodSeconds(long cancelGracePeriodSeconds) {
+        this.cancelGracePeriodSeconds = cancelGracePeriodSeconds;
+    }
+
+    /**
+     * @param supersede if true any in flight PipelineRuns or TaskRuns from older builds of the same job and branch
+     *                  are cancelled when this step creates a new one
+     */
+    @DataBoundSetter
+    public void setSupersede(boolean supersede) {
+        this.supersede = supersede;
+    }
+
+    /**
+     * @param contentHashNames if true Tasks and Pipelines are named after a hash of their spec so that identical
+     *                         definitions are only created once, and later runs in the build refer to them by that name
+     */
+    @DataBoundSetter
+    public void setContentHashNames(boolean contentHashNames) {
+        this.contentHashNames = contentHashNames;
+    }
+
+    /**
+     * @param clusterNames a comma separated list of clusters to create the resource on concurrently
+     */
+    @DataBoundSetter
+    public void setClusterNames(String clusterNames) {
+        this.clusterNames = clusterNames;
+    }
+
+    /**
+     * @param clusterSelector a <code>key=value,...</code> selector of the clusters, by their labels, to create
+     *                        the resource on concurrently
+     */
+    @DataBoundSetter
+    public void setClusterSelector(String clusterSelector) {
+        this.clusterSelector = clusterSelector;
+    }
+
+    /**
+     * @param minSuccessfulClusters how many clusters must succeed for the build to succeed when creating on
+     *                              multiple clusters; 0 means all of them
+     */
+    @DataBoundSetter
+    public void setMinSuccessfulClusters(int minSuccessfulClusters) {
+        this.minSuccessfulClusters = minSuccessfulClusters;
+    }
+
+    /**
+     * @param placementStrategy the name of a {@link ClusterPlacement.Strategy} used to pick the cluster when no
+     *                          cluster name is given, or empty to use the default cluster
+     */
+    @DataBoundSetter
+    public void setPlacementStrategy(String placementStrategy) {
+        this.placementStrategy = placementStrategy;
+    }
+
+    /**
+     * @param priority builds with a higher priority are admitted first when the cluster has too many runs in flight
+     */
+    @DataBoundSetter
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * @param logFilters filters the logs of the steps before they are written to the console, the first filter
+     *                   which applies to a step is used
+     */
+    @DataBoundSetter
+    public void setLogFilters(List<TektonLogFilter> logFilters) {
+        this.logFilters = logFilters;
+    }
+
+    /**
+     * @param resultsFile the file in the workspace to write the results of the TaskRun or PipelineRun to as JSON
+     */
+    @DataBoundSetter
+    public void setResultsFile(String resultsFile) {
+        this.resultsFile = Util.fixEmptyAndTrim(resultsFile);
+    }
+
+    /**
+     * @param resultsWorkspace the name of the workspace of the TaskRun or PipelineRun to copy result files from,
+     *                         which must be bound to a PersistentVolumeClaim
+     */
+    @DataBoundSetter
+    public void setResultsWorkspace(String resultsWorkspace) {
+        this.resultsWorkspace = Util.fixEmptyAndTrim(resultsWorkspace);
+    }
+
+    /**
+     * @param resultsPaths comma separated paths of the files to copy from the results workspace into the
+     *                     <code>tekton-results</code> directory of the Jenkins workspace, such as
+     *                     <code>target/surefire-reports/*.xml</code>
+     */
+    @DataBoundSetter
+    public void setResultsPaths(String resultsPaths) {
+        this.resultsPaths = Util.fixEmptyAndTrim(resultsPaths);
+    }
+
+    /**
+     * @param resultsMaxBytes fails the copy of the result files once more than this many compressed bytes have been
+     *                        copied, 0 uses the default
+     */
+    @DataBoundSetter
+    public void setResultsMaxBytes(long resultsMaxBytes) {
+        this.resultsMaxBytes = resultsMaxBytes;
+    }
+
+    /**
+     * @param syncWorkspace the name of the workspace of the TaskRun or PipelineRun, which must be bound to a
+     *                      PersistentVolumeClaim, to sync the Jenkins workspace into before the run is created
+     */
+    @DataBoundSetter
+    public void setSyncWorkspace(String syncWorkspace) {
+        this.syncWorkspace = Util.fixEmptyAndTrim(syncWorkspace);
+    }
+
+    /**
+     * @param syncExcludes comma separated Ant patterns of the files in the Jenkins workspace not to sync
+     */
+    @DataBoundSetter
+    public void setSyncExcludes(String syncExcludes) {
+        this.syncExcludes = Util.fixEmptyAndTrim(syncExcludes);
+    }
+
+    /**
+     * @param syncParallelism the number of concurrent transfers used to sync the workspace, 0 uses the default
+     */
+    @DataBoundSetter
+    public void setSyncParallelism(int syncParallelism) {
+        this.syncParallelism = syncParallelism;
+    }
+
+    /**
+     * @param syncBack if true the files the run adds or changes in the synced workspace are copied back into the
+     *                 Jenkins workspace once it completes
+     */
+    @DataBoundSetter
+    public void setSyncBack(boolean syncBack) {
+        this.syncBack = syncBack;
+    }
+
+    /**
+     * @param preflight if true the images of the steps and the claims of the workspaces are checked before the
+     *                  run is created, so that a missing claim or an image which recently failed to pull fails the
+     *                  build straight away
+     */
+    @DataBoundSetter
+    public void setPreflight(boolean preflight) {
+        this.preflight = preflight;
+    }
+
     protected ClassLoader getToolClassLoader() {
         if (toolClassLoader == null) {
             toolClassLoader = ToolUtils.class.getClassLoader();
@@ -128,6 +373,12 @@ public class CreateRaw extends BaseStep {
         this.toolClassLoader = toolClassLoader;
     }
 
+    /**
+     * Uses the given publisher as is; when the step creates its own publisher it is wrapped in an
+     * {@link AsyncChecksPublisher} so that publishing never blocks the build
+     *
+     * @param checksPublisher the publisher
+     */
     public void setChecksPublisher(ChecksPublisher checksPublisher) {
         this.checksPublisher = checksPublisher;
     }
@@ -149,6 +400,263 @@ public class CreateRaw extends BaseStep {
         return namespace;
     }
 
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public boolean isKeepRunningOnAbort() {
+        return keepRunningOnAbort;
+    }
+
+    public long getCancelGracePeriodSeconds() {
+        return cancelGracePeriodSeconds;
+    }
+
+    public boolean isDebugDump() {
+        return this.debugDump;
+    }
+
+    public boolean isContentHashNames() {
+        return contentHashNames;
+    }
+
+    public boolean isSupersede() {
+        return supersede;
+    }
+
+    public String getClusterNames() {
+        return clusterNames;
+    }
+
+    public String getClusterSelector() {
+        return clusterSelector;
+    }
+
+    public int getMinSuccessfulClusters() {
+        return minSuccessfulClusters;
+    }
+
+    public String getPlacementStrategy() {
+        return placementStrategy;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public List<TektonLogFilter> getLogFilters() {
+        return logFilters;
+    }
+
+    public String getResultsFile() {
+        return resultsFile;
+    }
+
+    public String getResultsWorkspace() {
+        return resultsWorkspace;
+    }
+
+    public String getResultsPaths() {
+        return resultsPaths;
+    }
+
+    public long getResultsMaxBytes() {
+        return resultsMaxBytes;
+    }
+
+    public String getSyncWorkspace() {
+        return syncWorkspace;
+    }
+
+    public String getSyncExcludes() {
+        return syncExcludes;
+    }
+
+    public int getSyncParallelism() {
+        return syncParallelism;
+    }
+
+    public boolean isSyncBack() {
+        return syncBack;
+    }
+
+    public boolean isPreflight() {
+        return preflight;
+    }
+
+    protected String getCheckName() {
+        return Strings.isNullOrEmpty(checkName) ? PipelineRunChecks.CHECK_NAME : checkName;
+    }
+
+    /**
+     * @return the outcome of the last {@link #runCreate(Run, FilePath, EnvVars)}
+     */
+    protected Result getResult() {
+        return result;
+    }
+
+    /**
+     * @return the clusters to create the resource on concurrently, which is empty unless
+     *         {@link #setClusterNames(String)} or {@link #setClusterSelector(String)} is used
+     */
+    public List<String> resolveClusterNames() {
+        Set<String> answer = new LinkedHashSet<>();
+        if (!Strings.isNullOrEmpty(clusterNames)) {
+            for (String name : clusterNames.split("[,\\s]+")) {
+                if (!name.isEmpty()) {
+                    answer.add(name);
+                }
+            }
+        }
+        Map<String, String> selector = LabelUtils.parseSelector(clusterSelector);
+        if (!selector.isEmpty() && Jenkins.getInstanceOrNull() != null) {
+            TektonGlobalConfiguration config = TektonGlobalConfiguration.get();
+            if (config != null && config.getClusterConfigs() != null) {
+                for (ClusterConfig cc : config.getClusterConfigs()) {
+                    if (cc.matches(selector)) {
+                        answer.add(cc.getName());
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(answer);
+    }
+
+    private String placeOnCluster() throws IOException {
+        ClusterPlacement.Strategy strategy;
+        try {
+            strategy = ClusterPlacement.Strategy.valueOf(placementStrategy);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("unknown placement strategy " + placementStrategy);
+        }
+        if (Jenkins.getInstanceOrNull() == null) {
+            return null;
+        }
+        TektonGlobalConfiguration config = TektonGlobalConfiguration.get();
+        if (config == null) {
+            return null;
+        }
+        return ClusterPlacement.choose(strategy, config.getClusterConfigs(), namespace);
+    }
+
+    /**
+     * @param cluster the name of the cluster
+     * @return a copy of this step which creates the resource on the given cluster
+     */
+    protected CreateRaw copyForCluster(String cluster) {
+        CreateRaw answer = new CreateRaw(input, inputType);
+        answer.setClusterName(cluster);
+        answer.setNamespace(namespace);
+        answer.setEnableCatalog(enableCatalog);
+        answer.setWaitStrategy(waitStrategy);
+        answer.setKeepRunningOnAbort(keepRunningOnAbort);
+        answer.setCancelGracePeriodSeconds(cancelGracePeriodSeconds);
+        answer.setSupersede(supersede);
+        answer.setContentHashNames(contentHashNames);
+        answer.setDebugDump(debugDump);
+        answer.setPriority(priority);
+        answer.setLogFilters(logFilters);
+        answer.setResultsFile(resultsFile);
+        answer.setResultsWorkspace(resultsWorkspace);
+        answer.setResultsPaths(resultsPaths);
+        answer.setResultsMaxBytes(resultsMaxBytes);
+        answer.setSyncWorkspace(syncWorkspace);
+        answer.setSyncExcludes(syncExcludes);
+        answer.setSyncParallelism(syncParallelism);
+        answer.setSyncBack(syncBack);
+        answer.setPreflight(preflight);
+        answer.setToolClassLoader(toolClassLoader);
+        answer.setChecksPublisher(checksPublisher);
+        return answer;
+    }
+
+    /**
+     * Reads the input and applies the catalog here so that the copy creates exactly what this step would have
+     *
+     * @return a copy of this step which creates the prepared input on the given cluster
+     */
+    CreateRaw copyForPlacement(String cluster, FilePath workspace, EnvVars envVars) throws Exception {
+        byte[] data = readInput(workspace, envVars);
+        CreateRaw answer = copyForCluster(cluster);
+        answer.preparedInput = data;
+        return answer;
+    }
+
+    byte[] getPreparedInput() {
+        return preparedInput;
+    }
+
+    /**
+     * Prepares a copy from {@link #copyForCluster(String)} to run as one of several concurrent creations
+     */
+    void prepareFanOut(byte[] data, PrintStream consoleLogger, ChecksPublisher checksPublisher, String checkName) {
+        this.preparedInput = data;
+        this.consoleLogger = consoleLogger;
+        this.checksPublisher = checksPublisher;
+        this.checkName = checkName;
+        this.fanOutChild = true;
+    }
+
+    /**
+     * Waits a while for the final check to be published so that it is not sent after the build has completed
+     */
+    void flushChecks() {
+        if (!(checksPublisher instanceof AsyncChecksPublisher)) {
+            return;
+        }
+        // lets not lose the interrupt status of an aborted build while waiting
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!((AsyncChecksPublisher) checksPublisher).flush(CHECKS_FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOGGER.warning("timed out waiting for checks of " + getCheckName() + " to be published");
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static int getMaxInFlightRuns() {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return 0;
+        }
+        TektonGlobalConfiguration config = TektonGlobalConfiguration.get();
+        return config != null ? config.getMaxInFlightRuns() : 0;
+    }
+
+    private PrintStream consoleLogger() {
+        if (consoleLogger == null) {
+            // lets not lose the messages of a step run without a build listener, e.g. in tests
+            consoleLogger = new LogTaskListener(LOGGER, Level.INFO).getLogger();
+        }
+        return consoleLogger;
+    }
+
+    private ContentHashNames getNames() {
+        if (names == null) {
+            names = ContentHashNames.forRun(null);
+        }
+        return names;
+    }
+
+    protected TektonResults getResults() {
+        if (results == null) {
+            results = TektonResults.forRun(null);
+        }
+        return results;
+    }
+
+    private void setResult(Run<?, ?> run, Result result) {
+        this.result = result;
+        // the fan out works out the result of the build from all the clusters
+        if (!fanOutChild) {
+            run.setResult(result);
+        }
+    }
+
     public String getClusterName() {
         if (Strings.isNullOrEmpty(clusterName)) {
             clusterName = TektonUtils.DEFAULT_CLIENT_KEY;
@@ -156,12 +664,27 @@ public class CreateRaw extends BaseStep {
         return clusterName;
     }
 
+    /**
+     * Parses the resource with the shared reader, failing like the fabric8 <code>load()</code> methods we used before
+     */
+    private static <T> T loadResource(InputStream inputStream, Class<T> type) {
+        try {
+            return SerializationUtils.readYaml(inputStream, type);
+        } catch (IOException e) {
+            throw new KubernetesClientException("failed to parse " + type.getSimpleName() + ": " + e.getMessage(), e);
+        }
+    }
+
     protected String createWithResourceSpecificClient(TektonResourceType resourceType, InputStream inputStream, EnvVars envVars) throws Exception {
         switch (resourceType) {
             case task:
                 return createTask(inputStream);
             case taskrun:
-                return createTaskRun(inputStream);
+                // lets still call subclasses which only override the older signature
+                if (Util.isOverridden(CreateRaw.class, getClass(), "createTaskRun", InputStream.class)) {
+                    return createTaskRun(inputStream);
+                }
+                return createTaskRun(inputStream, envVars);
             case pipeline:
                 return createPipeline(inputStream);
             case pipelinerun:
@@ -172,16 +695,33 @@ public class CreateRaw extends BaseStep {
     }
 
     public String createTaskRun(InputStream inputStream) throws Exception {
+        return createTaskRun(inputStream, new EnvVars());
+    }
+
+    public String createTaskRun(InputStream inputStream, EnvVars envVars) throws Exception {
         if (taskRunClient == null) {
             TektonClient tc = (TektonClient) tektonClient;
             setTaskRunClient(tc.v1beta1().taskRuns());
         }
         String resourceName;
-        TaskRun taskrun = taskRunClient.load(inputStream).get();
+        TaskRun taskrun = loadResource(inputStream, TaskRun.class);
         if (!Strings.isNullOrEmpty(namespace) && Strings.isNullOrEmpty(taskrun.getMetadata().getNamespace())) {
             taskrun.getMetadata().setNamespace(namespace);
         }
+        if (taskrun.getSpec() != null) {
+            getNames().rewrite(taskrun.getSpec().getTaskRef());
+        }
+        Map<String, String> labels = LabelUtils.buildLabels(envVars);
+        LabelUtils.addLabels(taskrun, labels);
         String ns = taskrun.getMetadata().getNamespace();
+        if (supersede) {
+            supersedeTaskRuns(ns, labels);
+        }
+        List<WorkspaceBinding> bindings = taskrun.getSpec() != null ? taskrun.getSpec().getWorkspaces() : null;
+        if (preflight) {
+            checkReadiness(taskrun.getMetadata().getName(), ns, taskRunImages(ns, taskrun.getSpec()), bindings);
+        }
+        Map<String, String> synced = syncToClaim(taskrun.getMetadata().getName(), ns, bindings);
         if (Strings.isNullOrEmpty(ns)) {
             taskrun = taskRunClient.create(taskrun);
         } else {
@@ -189,7 +729,27 @@ public class CreateRaw extends BaseStep {
         }
         resourceName = taskrun.getMetadata().getName();
 
-        streamTaskRunLogsToConsole(taskrun);
+        Exception failure = null;
+        try {
+            streamTaskRunLogsToConsole(taskrun);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            // failed tests usually fail the TaskRun so lets still harvest its results
+            failure = e;
+        }
+        TaskRun reloaded = Strings.isNullOrEmpty(ns) ?
+                taskRunClient.withName(resourceName).get() :
+                taskRunClient.inNamespace(ns).withName(resourceName).get();
+        if (reloaded != null) {
+            forgetMissingDefinitions(ns, reloaded.getStatus() != null ? reloaded.getStatus().getConditions() : null);
+            harvestResults(resourceName, TektonResults.fromTaskRun(reloaded), ns,
+                    reloaded.getSpec() != null ? reloaded.getSpec().getWorkspaces() : null);
+        }
+        syncFromClaim(resourceName, ns, bindings, synced);
+        if (failure != null) {
+            throw failure;
+        }
         return resourceName;
     }
 
@@ -199,11 +759,23 @@ public class CreateRaw extends BaseStep {
             setTaskClient(tc.v1beta1().tasks());
         }
         String resourceName;
-        Task task = taskClient.load(inputStream).get();
+        Task task = loadResource(inputStream, Task.class);
         if (!Strings.isNullOrEmpty(namespace) && Strings.isNullOrEmpty(task.getMetadata().getNamespace())) {
             task.getMetadata().setNamespace(namespace);
         }
         String ns = task.getMetadata().getNamespace();
+        if (contentHashNames) {
+            String hashedName = ContentHashNames.hashedName(task.getMetadata().getName(), task.getSpec());
+            getNames().putTaskName(task.getMetadata().getName(), hashedName);
+            task.getMetadata().setName(hashedName);
+            Task hashedTask = task;
+            boolean created = ContentHashNames.createIfMissing(getClusterName(), ns, "Task", hashedName,
+                    () -> Strings.isNullOrEmpty(ns) ? taskClient.create(hashedTask) : taskClient.inNamespace(ns).create(hashedTask));
+            if (!created) {
+                logMessage("Reusing existing Task " + hashedName);
+            }
+            return hashedName;
+        }
         if (Strings.isNullOrEmpty(ns)) {
             task = taskClient.create(task);
         } else {
@@ -219,11 +791,24 @@ public class CreateRaw extends BaseStep {
             setPipelineClient(tc.v1beta1().pipelines());
         }
         String resourceName;
-        Pipeline pipeline = pipelineClient.load(inputStream).get();
+        Pipeline pipeline = loadResource(inputStream, Pipeline.class);
         if (!Strings.isNullOrEmpty(namespace) && Strings.isNullOrEmpty(pipeline.getMetadata().getNamespace())) {
             pipeline.getMetadata().setNamespace(namespace);
         }
+        getNames().rewrite(pipeline.getSpec());
         String ns = pipeline.getMetadata().getNamespace();
+        if (contentHashNames) {
+            String hashedName = ContentHashNames.hashedName(pipeline.getMetadata().getName(), pipeline.getSpec());
+            getNames().putPipelineName(pipeline.getMetadata().getName(), hashedName);
+            pipeline.getMetadata().setName(hashedName);
+            Pipeline hashedPipeline = pipeline;
+            boolean created = ContentHashNames.createIfMissing(getClusterName(), ns, "Pipeline", hashedName,
+                    () -> Strings.isNullOrEmpty(ns) ? pipelineClient.create(hashedPipeline) : pipelineClient.inNamespace(ns).create(hashedPipeline));
+            if (!created) {
+                logMessage("Reusing existing Pipeline " + hashedName);
+            }
+            return hashedName;
+        }
         if (Strings.isNullOrEmpty(ns)) {
             pipeline = pipelineClient.create(pipeline);
         } else {
@@ -239,18 +824,32 @@ public class CreateRaw extends BaseStep {
             setPipelineRunClient(tc.v1beta1().pipelineRuns());
         }
         String resourceName;
-        final PipelineRun pipelineRun = pipelineRunClient.load(inputStream).get();
+        final PipelineRun pipelineRun = loadResource(inputStream, PipelineRun.class);
         if (!Strings.isNullOrEmpty(namespace) && Strings.isNullOrEmpty(pipelineRun.getMetadata().getNamespace())) {
             pipelineRun.getMetadata().setNamespace(namespace);
         }
 
-        LOGGER.info("Using environment variables " + envVars);
+        if (pipelineRun.getSpec() != null) {
+            getNames().rewrite(pipelineRun.getSpec().getPipelineRef());
+            getNames().rewrite(pipelineRun.getSpec().getPipelineSpec());
+        }
+
+        debug("Using environment variables", () -> DiagnosticsUtils.redactEnvVars(envVars).toString());
 
         enhancePipelineRunWithEnvVars(pipelineRun, envVars);
 
         String ns = pipelineRun.getMetadata().getNamespace();
+        if (supersede) {
+            supersedePipelineRuns(ns, LabelUtils.buildLabels(envVars));
+        }
+
+        List<WorkspaceBinding> bindings = pipelineRun.getSpec() != null ? pipelineRun.getSpec().getWorkspaces() : null;
+        if (preflight) {
+            checkReadiness(pipelineRun.getMetadata().getName(), ns, pipelineRunImages(ns, pipelineRun.getSpec()), bindings);
+        }
+        Map<String, String> synced = syncToClaim(pipelineRun.getMetadata().getName(), ns, bindings);
 
-        LOGGER.info("Creating PipelineRun\n" + marshall(pipelineRun));
+        debug("Creating PipelineRun", () -> SerializationUtils.toYaml(pipelineRun));
 
         PipelineRun updatedPipelineRun = Strings.isNullOrEmpty(ns) ?
                 pipelineRunClient.create(pipelineRun) :
@@ -258,27 +857,36 @@ public class CreateRaw extends BaseStep {
 
         resourceName = updatedPipelineRun.getMetadata().getName();
 
-        ChecksDetails checkDetails = new ChecksDetails.ChecksDetailsBuilder()
-                .withName("tekton")
-                .withOutput(new ChecksOutput.ChecksOutputBuilder()
-                        .withTitle(updatedPipelineRun.getMetadata().getName())
-                        .withSummary("PipelineRun is running...")
-                        .build())
-                .withStartedAt(LocalDateTime.now())
-                .withStatus(ChecksStatus.IN_PROGRESS)
-                .withConclusion(ChecksConclusion.NONE)
-                .build();
-        checksPublisher.publish(checkDetails);
+        pipelineRunChecks = new PipelineRunChecks(checksPublisher, getCheckName(), resourceName);
+        pipelineRunChecks.publishInProgress();
 
-        streamPipelineRunLogsToConsole(updatedPipelineRun);
+        Exception failure = null;
+        try {
+            streamPipelineRunLogsToConsole(updatedPipelineRun);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            failure = e;
+        }
 
         PipelineRun reloaded = pipelineRunClient.inNamespace(ns).withName(resourceName).get();
-        List<Condition> conditions = reloaded
-                .getStatus()
-                .getConditions();
+        if (reloaded != null) {
+            forgetMissingDefinitions(ns, reloaded.getStatus() != null ? reloaded.getStatus().getConditions() : null);
+            harvestResults(resourceName, TektonResults.fromPipelineRun(reloaded), ns,
+                    reloaded.getSpec() != null ? reloaded.getSpec().getWorkspaces() : null);
+        }
+        syncFromClaim(resourceName, ns, bindings, synced);
+        if (failure != null) {
+            throw failure;
+        }
+        if (reloaded == null) {
+            throw new Exception("PipelineRun " + ns + "/" + resourceName + " was deleted before it completed");
+        }
+        List<Condition> conditions = reloaded.getStatus() != null && reloaded.getStatus().getConditions() != null ?
+                reloaded.getStatus().getConditions() : Collections.emptyList();
         Optional<Condition> succeeded = conditions
                 .stream()
-                .filter(c -> c.getType().equalsIgnoreCase("Succeeded"))
+                .filter(c -> "Succeeded".equalsIgnoreCase(c.getType()))
                 .findFirst();
 
         if (succeeded.isPresent() && succeeded.get().getStatus().equalsIgnoreCase("false")) {
@@ -289,6 +897,202 @@ public class CreateRaw extends BaseStep {
         return resourceName;
     }
 
+    /**
+     * Forgets the content hashed Tasks and Pipelines of this build when a run could not find them so the next build
+     * creates them again rather than reusing definitions which have been deleted from the cluster
+     */
+    private void forgetMissingDefinitions(String ns, List<Condition> conditions) {
+        if (!contentHashNames || conditions == null) {
+            return;
+        }
+        boolean missing = conditions.stream()
+                .anyMatch(c -> MISSING_DEFINITION_REASONS.contains(c.getReason()));
+        if (missing) {
+            logMessage("[Tekton] Could not find a Task or Pipeline so they will be created again by the next build");
+            getNames().forgetAll(getClusterName(), ns);
+        }
+    }
+
+    /**
+     * Records the results of a TaskRun or PipelineRun on the build and copies any result files into the workspace
+     */
+    private void harvestResults(String name, Map<String, String> values, String ns, List<WorkspaceBinding> bindings) throws InterruptedException {
+        if (!values.isEmpty()) {
+            getResults().putAll(values);
+            logMessage("[Tekton] Results of " + name + ": " + String.join(", ", values.keySet()));
+        }
+        if (resultsFile != null && workspace != null) {
+            // the clusters of a fan out each write their own results rather than those of the whole build
+            String file = fanOutChild ? forCluster(resultsFile, getClusterName()) : resultsFile;
+            Map<String, String> written = fanOutChild ? values : getResults().getResults();
+            try {
+                workspace.child(file).write(SerializationUtils.toJson(written), StandardCharsets.UTF_8.name());
+            } catch (IOException e) {
+                logMessage("[Tekton] Failed to write results to " + file + ": " + e);
+            }
+        }
+        if (resultsWorkspace == null || resultsPaths == null || workspace == null) {
+            return;
+        }
+        WorkspaceBinding binding = findClaimBinding(bindings, resultsWorkspace);
+        if (binding == null) {
+            logMessage("[Tekton] Cannot copy results as workspace " + resultsWorkspace + " of " + name + " is not bound to a PersistentVolumeClaim");
+            return;
+        }
+        List<String> patterns = new ArrayList<>();
+        for (String path : resultsPaths.split(",")) {
+            if (!path.trim().isEmpty()) {
+                patterns.add(path.trim());
+            }
+        }
+        String claimName = binding.getPersistentVolumeClaim().getClaimName();
+        long maxBytes = resultsMaxBytes > 0 ? resultsMaxBytes : DEFAULT_RESULTS_MAX_BYTES;
+        String dir = fanOutChild ? forCluster(RESULTS_DIR, getClusterName()) : RESULTS_DIR;
+        try (PvcTransfer transfer = PvcTransfer.start((KubernetesClient) kubernetesClient, claimNamespace(ns), claimName, TRANSFER_POD_TIMEOUT_MILLIS)) {
+            long bytes = transfer.download(binding.getSubPath(), patterns, workspace.child(dir), maxBytes);
+            logMessage("[Tekton] Copied " + bytes + " bytes of results from " + claimName + " to " + dir);
+        } catch (IOException | KubernetesClientException e) {
+            logMessage("[Tekton] Failed to copy results from " + claimName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param path a file or directory in the workspace
+     * @param cluster the name of the cluster
+     * @return the path with the cluster added to its name, before any extension
+     */
+    static String forCluster(String path, String cluster) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot > slash + 1) {
+            return path.substring(0, dot) + "-" + cluster + path.substring(dot);
+        }
+        return path + "-" + cluster;
+    }
+
+    /**
+     * Syncs the Jenkins workspace into the claim of the sync workspace before the run is created
+     *
+     * @return the content hash of every file in the claim by path, or null if the workspace is not synced
+     */
+    private Map<String, String> syncToClaim(String name, String ns, List<WorkspaceBinding> bindings) throws IOException, InterruptedException {
+        if (syncWorkspace == null || workspace == null) {
+            return null;
+        }
+        WorkspaceBinding binding = findClaimBinding(bindings, syncWorkspace);
+        if (binding == null) {
+            throw new IOException("cannot sync the workspace as workspace " + syncWorkspace + " of " + name + " is not bound to a PersistentVolumeClaim");
+        }
+        WorkspaceSync sync = new WorkspaceSync(workspace, syncExcludes, syncParallelism, this::logMessage);
+        return sync.upload((KubernetesClient) kubernetesClient, claimNamespace(ns), binding.getPersistentVolumeClaim().getClaimName(),
+                binding.getSubPath(), TRANSFER_POD_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Copies the files the run changed in the claim of the sync workspace back into the Jenkins workspace
+     */
+    private void syncFromClaim(String name, String ns, List<WorkspaceBinding> bindings, Map<String, String> synced) throws InterruptedException {
+        if (!syncBack || synced == null) {
+            return;
+        }
+        WorkspaceBinding binding = findClaimBinding(bindings, syncWorkspace);
+        String claimName = binding.getPersistentVolumeClaim().getClaimName();
+        WorkspaceSync sync = new WorkspaceSync(workspace, syncExcludes, syncParallelism, this::logMessage);
+        try {
+            sync.download((KubernetesClient) kubernetesClient, claimNamespace(ns), claimName, binding.getSubPath(), synced, TRANSFER_POD_TIMEOUT_MILLIS);
+        } catch (IOException | KubernetesClientException e) {
+            logMessage("[Tekton] Failed to sync " + claimName + " of " + name + " back to the workspace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fails if the pods of the run could never start as a claim is missing or an image recently failed to pull
+     */
+    private void checkReadiness(String name, String ns, Set<String> images, List<WorkspaceBinding> bindings) throws IOException {
+        Set<String> claimNames = new LinkedHashSet<>();
+        for (WorkspaceBinding binding : bindings != null ? bindings : Collections.<WorkspaceBinding>emptyList()) {
+            if (binding.getPersistentVolumeClaim() != null) {
+                claimNames.add(binding.getPersistentVolumeClaim().getClaimName());
+            }
+        }
+        List<String> problems = ResourceReadiness.preflight((KubernetesClient) kubernetesClient, claimNamespace(ns), images, claimNames);
+        if (!problems.isEmpty()) {
+            throw new IOException(name + " cannot start: " + String.join(", ", problems));
+        }
+    }
+
+    private Set<String> taskRunImages(String ns, TaskRunSpec spec) {
+        Set<String> images = new LinkedHashSet<>();
+        if (spec != null && spec.getTaskSpec() != null) {
+            addImages(images, spec.getTaskSpec().getSteps(), spec.getTaskSpec().getSidecars());
+        } else if (spec != null) {
+            addImages(images, ns, spec.getTaskRef());
+        }
+        return images;
+    }
+
+    private Set<String> pipelineRunImages(String ns, PipelineRunSpec spec) {
+        Set<String> images = new LinkedHashSet<>();
+        if (spec == null || spec.getPipelineSpec() == null) {
+            return images;
+        }
+        List<PipelineTask> tasks = new ArrayList<>();
+        if (spec.getPipelineSpec().getTasks() != null) {
+            tasks.addAll(spec.getPipelineSpec().getTasks());
+        }
+        if (spec.getPipelineSpec().getFinally() != null) {
+            tasks.addAll(spec.getPipelineSpec().getFinally());
+        }
+        for (PipelineTask task : tasks) {
+            if (task.getTaskSpec() != null) {
+                addImages(images, task.getTaskSpec().getSteps(), task.getTaskSpec().getSidecars());
+            } else {
+                addImages(images, ns, task.getTaskRef());
+            }
+        }
+        return images;
+    }
+
+    /**
+     * Adds the images of a referenced Task using the cached Task specs, ClusterTasks are not checked
+     */
+    private void addImages(Set<String> images, String ns, TaskRef taskRef) {
+        if (taskRef == null || Strings.isNullOrEmpty(taskRef.getName())
+                || (!Strings.isNullOrEmpty(taskRef.getKind()) && !"Task".equals(taskRef.getKind()))) {
+            return;
+        }
+        TaskSpec spec = TaskDefinitionCache.get(getClusterName(), (TektonClient) tektonClient, claimNamespace(ns)).getTaskSpec(taskRef.getName());
+        if (spec != null) {
+            addImages(images, spec.getSteps(), spec.getSidecars());
+        }
+    }
+
+    private static void addImages(Set<String> images, List<Step> steps, List<Sidecar> sidecars) {
+        for (Step step : steps != null ? steps : Collections.<Step>emptyList()) {
+            if (!Strings.isNullOrEmpty(step.getImage())) {
+                images.add(step.getImage());
+            }
+        }
+        for (Sidecar sidecar : sidecars != null ? sidecars : Collections.<Sidecar>emptyList()) {
+            if (!Strings.isNullOrEmpty(sidecar.getImage())) {
+                images.add(sidecar.getImage());
+            }
+        }
+    }
+
+    private static WorkspaceBinding findClaimBinding(List<WorkspaceBinding> bindings, String workspaceName) {
+        for (WorkspaceBinding binding : bindings != null ? bindings : Collections.<WorkspaceBinding>emptyList()) {
+            if (workspaceName.equals(binding.getName()) && binding.getPersistentVolumeClaim() != null) {
+                return binding;
+            }
+        }
+        return null;
+    }
+
+    private String claimNamespace(String ns) {
+        return !Strings.isNullOrEmpty(ns) ? ns : ((KubernetesClient) kubernetesClient).getNamespace();
+    }
+
     protected void enhancePipelineRunWithEnvVars(PipelineRun pr, EnvVars envVars) {
         setParamOnPipelineRunSpec(pr.getSpec(), "BUILD_ID", envVars.get("BUILD_ID"));
         setParamOnPipelineRunSpec(pr.getSpec(), "JOB_NAME", envVars.get("JOB_NAME"));
@@ -311,15 +1115,71 @@ public class CreateRaw extends BaseStep {
             String[] parts = gitUrl.getPath().split("/");
             setParamOnPipelineRunSpec(pr.getSpec(), "REPO_URL", gitUrl.toString());
             setParamOnPipelineRunSpec(pr.getSpec(), "REPO_OWNER", parts[1]);
-            setParamOnPipelineRunSpec(pr.getSpec(), "REPO_NAME", removeGitSuffix(parts[2]));
+            setParamOnPipelineRunSpec(pr.getSpec(), "REPO_NAME", LabelUtils.removeGitSuffix(parts[2]));
+        }
+
+        LabelUtils.addLabels(pr, LabelUtils.buildLabels(envVars));
+    }
+
+    /**
+     * Cancels any in flight PipelineRuns created by older builds of the same job and branch
+     */
+    private void supersedePipelineRuns(String ns, Map<String, String> labels) {
+        Map<String, String> selector = LabelUtils.supersedeSelector(labels);
+        if (!selector.containsKey(LabelUtils.JOB_LABEL)) {
+            return;
+        }
+        TektonClient tc = (TektonClient) tektonClient;
+        List<PipelineRun> pipelineRuns = Strings.isNullOrEmpty(ns) ?
+                pipelineRunClient.withLabels(selector).list().getItems() :
+                pipelineRunClient.inNamespace(ns).withLabels(selector).list().getItems();
+        for (PipelineRun pr : pipelineRuns) {
+            if (pr.getStatus() != null && CancelUtils.isDone(pr.getStatus().getConditions())) {
+                continue;
+            }
+            String olderBuild = pr.getMetadata().getLabels().get(LabelUtils.BUILD_ID_LABEL);
+            if (isOlderBuild(olderBuild, labels.get(LabelUtils.BUILD_ID_LABEL))) {
+                String name = pr.getMetadata().getName();
+                logMessage("[Tekton] Cancelling PipelineRun " + name + " from build " + olderBuild + " as it has been superseded");
+                CancelUtils.cancelPipelineRun(tc, pr.getMetadata().getNamespace(), name, cancelGracePeriodSeconds);
+            }
+        }
+    }
+
+    /**
+     * Cancels any in flight TaskRuns created by older builds of the same job and branch
+     */
+    private void supersedeTaskRuns(String ns, Map<String, String> labels) {
+        Map<String, String> selector = LabelUtils.supersedeSelector(labels);
+        if (!selector.containsKey(LabelUtils.JOB_LABEL)) {
+            return;
+        }
+        TektonClient tc = (TektonClient) tektonClient;
+        List<TaskRun> taskRuns = Strings.isNullOrEmpty(ns) ?
+                taskRunClient.withLabels(selector).list().getItems() :
+                taskRunClient.inNamespace(ns).withLabels(selector).list().getItems();
+        for (TaskRun tr : taskRuns) {
+            if (tr.getStatus() != null && CancelUtils.isDone(tr.getStatus().getConditions())) {
+                continue;
+            }
+            String olderBuild = tr.getMetadata().getLabels().get(LabelUtils.BUILD_ID_LABEL);
+            if (isOlderBuild(olderBuild, labels.get(LabelUtils.BUILD_ID_LABEL))) {
+                String name = tr.getMetadata().getName();
+                logMessage("[Tekton] Cancelling TaskRun " + name + " from build " + olderBuild + " as it has been superseded");
+                CancelUtils.cancelTaskRun(tc, tr.getMetadata().getNamespace(), name, cancelGracePeriodSeconds);
+            }
         }
     }
 
-    private String removeGitSuffix(String part) {
-        if (part.endsWith(".git")) {
-            return part.replaceAll("\\.git$", "");
+    static boolean isOlderBuild(String buildId, String currentBuildId) {
+        if (Strings.isNullOrEmpty(buildId) || Strings.isNullOrEmpty(currentBuildId) || buildId.equals(currentBuildId)) {
+            return false;
+        }
+        try {
+            return Long.parseLong(buildId) < Long.parseLong(currentBuildId);
+        } catch (NumberFormatException e) {
+            return false;
         }
-        return part;
     }
 
     private void setParamOnPipelineRunSpec(@NonNull PipelineRunSpec spec, String paramName, String paramValue) {
@@ -341,11 +1201,33 @@ public class CreateRaw extends BaseStep {
         KubernetesClient kc = (KubernetesClient) kubernetesClient;
         TektonClient tc = (TektonClient) tektonClient;
         Thread logWatchTask = null;
-        TaskRunLogWatch logWatch = new TaskRunLogWatch(kc, tc, taskRun, consoleLogger);
+        ConsoleSink sink = new ConsoleSink(consoleLogger());
+        OutputStream source = sink.newSource("");
+        // lets keep our messages in order with the queued logs
+        activeSource = source;
+        TaskRunLogWatch logWatch = new TaskRunLogWatch(kc, tc, taskRun, source);
+        logWatch.setWaitStrategy(waitStrategy);
+        logWatch.setLogFilters(logFilters);
         logWatchTask = new Thread(logWatch);
         logWatchTask.start();
-        logWatchTask.join();
+        try {
+            logWatchTask.join();
+        } catch (InterruptedException interrupted) {
+            logWatchTask.interrupt();
+            if (!keepRunningOnAbort) {
+                logMessage("[Tekton] Build aborted so cancelling TaskRun " + taskRun.getMetadata().getName());
+                CancelUtils.cancelTaskRun(tc, taskRun.getMetadata().getNamespace(), taskRun.getMetadata().getName(), cancelGracePeriodSeconds);
+            }
+            throw interrupted;
+        } finally {
+            activeSource = null;
+            closeSink(sink, source);
+        }
         Exception e = logWatch.getException();
+        if (e instanceof ResourceNotReadyException && !keepRunningOnAbort) {
+            logMessage("[Tekton] Cancelling TaskRun " + taskRun.getMetadata().getName() + " as it cannot start");
+            CancelUtils.cancelTaskRun(tc, taskRun.getMetadata().getNamespace(), taskRun.getMetadata().getName(), cancelGracePeriodSeconds);
+        }
         if (e != null) {
             throw e;
         }
@@ -355,11 +1237,34 @@ public class CreateRaw extends BaseStep {
         KubernetesClient kc = (KubernetesClient) kubernetesClient;
         TektonClient tc = (TektonClient) tektonClient;
         Thread logWatchTask;
-        PipelineRunLogWatch logWatch = new PipelineRunLogWatch(kc, tc, pipelineRun, consoleLogger);
+        ConsoleSink sink = new ConsoleSink(consoleLogger());
+        OutputStream source = sink.newSource("");
+        // lets keep our messages in order with the queued logs
+        activeSource = source;
+        PipelineRunLogWatch logWatch = new PipelineRunLogWatch(kc, tc, pipelineRun, source);
+        logWatch.setWaitStrategy(waitStrategy);
+        logWatch.setProgressListener(pipelineRunChecks);
+        logWatch.setLogFilters(logFilters);
         logWatchTask = new Thread(logWatch);
         logWatchTask.start();
-        logWatchTask.join();
+        try {
+            logWatchTask.join();
+        } catch (InterruptedException interrupted) {
+            logWatchTask.interrupt();
+            if (!keepRunningOnAbort) {
+                logMessage("[Tekton] Build aborted so cancelling PipelineRun " + pipelineRun.getMetadata().getName());
+                CancelUtils.cancelPipelineRun(tc, pipelineRun.getMetadata().getNamespace(), pipelineRun.getMetadata().getName(), cancelGracePeriodSeconds);
+            }
+            throw interrupted;
+        } finally {
+            activeSource = null;
+            closeSink(sink, source);
+        }
         Exception e = logWatch.getException();
+        if (e instanceof ResourceNotReadyException && !keepRunningOnAbort) {
+            logMessage("[Tekton] Cancelling PipelineRun " + pipelineRun.getMetadata().getName() + " as it cannot start");
+            CancelUtils.cancelPipelineRun(tc, pipelineRun.getMetadata().getNamespace(), pipelineRun.getMetadata().getName(), cancelGracePeriodSeconds);
+        }
         if (e != null) {
             throw e;
         }
@@ -369,6 +1274,39 @@ public class CreateRaw extends BaseStep {
     public void perform(@NonNull Run<?, ?> run, @NonNull FilePath workspace, @NonNull EnvVars envVars, @NonNull Launcher launcher, @NonNull TaskListener listener) throws InterruptedException, IOException {
         consoleLogger = listener.getLogger();
 
+        List<String> clusters = resolveClusterNames();
+        if (!clusters.isEmpty()) {
+            ChecksPublisher injected = checksPublisher;
+            Supplier<ChecksPublisher> publishers = injected != null ? () -> injected :
+                    () -> new AsyncChecksPublisher(ChecksPublisherFactory.fromRun(run, listener));
+            new ClusterFanOut(this, clusters, minSuccessfulClusters, publishers).perform(run, workspace, envVars, listener);
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Tekton build aborted");
+            }
+            return;
+        }
+
+        if (!Strings.isNullOrEmpty(placementStrategy) && TektonUtils.DEFAULT_CLIENT_KEY.equals(getClusterName())) {
+            String placed = placeOnCluster();
+            if (placed != null) {
+                logMessage("[Tekton] Placing on cluster " + placed + " using " + placementStrategy);
+                // lets use a copy so that the placement is not saved in the job configuration
+                CreateRaw placedStep;
+                try {
+                    placedStep = copyForPlacement(placed, workspace, envVars);
+                } catch (InterruptedException | IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    logMessage("[Tekton] Failed: " + e.getMessage());
+                    LOGGER.log(Level.WARNING, "failed to read the input", e);
+                    setResult(run, Result.FAILURE);
+                    return;
+                }
+                placedStep.perform(run, workspace, envVars, launcher, listener);
+                return;
+            }
+        }
+
         String clusterName = getClusterName();
         LOGGER.info("connecting using cluster name " + clusterName);
 
@@ -387,56 +1325,102 @@ public class CreateRaw extends BaseStep {
         }
 
         if (checksPublisher == null) {
-            checksPublisher = ChecksPublisherFactory.fromRun(run, listener);
+            checksPublisher = new AsyncChecksPublisher(ChecksPublisherFactory.fromRun(run, listener));
         }
 
-        runCreate(run, workspace, envVars);
+        dump = debugDump ? new DebugDump() : null;
+        try {
+            runCreate(run, workspace, envVars);
+        } finally {
+            try {
+                if (dump != null) {
+                    archiveDebugDump(run, workspace, launcher, listener);
+                }
+            } finally {
+                flushChecks();
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Tekton build aborted");
+        }
     }
 
-    protected String runCreate(Run<?, ?> run, FilePath workspace, EnvVars envVars) {
-        URL url = null;
+    /**
+     * Reads the input and applies the Tekton catalog if enabled
+     *
+     * @param workspace the workspace
+     * @param envVars the build environment
+     * @return the resource to create or null if there is no input
+     * @throws Exception if the input could not be read or converted
+     */
+    protected byte[] readInput(FilePath workspace, EnvVars envVars) throws Exception {
         byte[] data = null;
         String inputData = this.getInput();
         String inputType = this.getInputType();
+        if (inputType.equals(InputType.URL.toString())) {
+            URL url = new URL(inputData);
+            data = UrlFetcher.get().fetch(url);
+        } else if (inputType.equals(InputType.YAML.toString())) {
+            data = inputData.getBytes(StandardCharsets.UTF_8);
+        } else if (inputType.equals(InputType.FILE.toString())) {
+            FilePath inputFile = workspace.child(inputData);
+            LOGGER.info("Reading from " + inputFile);
+            data = ReadInputCallable.read(inputFile);
+        }
+
+        if (data != null) {
+            byte[] input = data;
+            debug("Got data before enhancement", () -> new String(input, StandardCharsets.UTF_8));
+        }
+
+        return convertTektonData(workspace, envVars, data);
+    }
+
+    protected String runCreate(Run<?, ?> run, FilePath workspace, EnvVars envVars) {
+        byte[] data;
         String createdResourceName = "";
         TektonResourceType resourceType = null;
+        result = Result.SUCCESS;
         try {
-            if (inputType.equals(InputType.URL.toString())) {
-                url = new URL(inputData);
-                data = Resources.toByteArray(url);
-            } else if (inputType.equals(InputType.YAML.toString())) {
-                data = inputData.getBytes(StandardCharsets.UTF_8);
-            } else if (inputType.equals(InputType.FILE.toString())) {
-                FilePath inputFile = workspace.child(inputData);
-                LOGGER.info("Reading from " + inputFile + ", exists:" + inputFile.exists());
-                data = ByteStreams.toByteArray(inputFile.read());
-            }
-
-            if (data != null) {
-                LOGGER.info("Got data before enhancement\n" + new String(data, StandardCharsets.UTF_8));
-            }
-
-            data = convertTektonData(workspace, envVars, null, data);
+            names = ContentHashNames.forRun(run);
+            results = TektonResults.forRun(run);
+            this.workspace = workspace;
+            data = preparedInput != null ? preparedInput : readInput(workspace, envVars);
             if (data != null) {
-                List<TektonResourceType> kind = TektonUtils.getKindFromInputStream(new ByteArrayInputStream(data), this.getInputType());
+                List<TektonResourceType> kind = TektonUtils.getKindFromBytes(data, this.getInputType());
                 if (kind.size() > 1){
                     LOGGER.warning("Multiple Objects in YAML not supported yet");
                     logMessage("Multiple Objects in YAML not supported yet");
-                    run.setResult(Result.FAILURE);
+                    setResult(run, Result.FAILURE);
                 } else {
                     resourceType = kind.get(0);
                     LOGGER.info("creating kind " + resourceType.name());
-                    createdResourceName = createWithResourceSpecificClient(resourceType, new ByteArrayInputStream(data), envVars);
+                    AdmissionQueue queue = null;
+                    AdmissionQueue.Ticket ticket = null;
+                    if (resourceType == TektonResourceType.pipelinerun || resourceType == TektonResourceType.taskrun) {
+                        queue = AdmissionQueue.get(getClusterName(), namespace);
+                    }
+                    try {
+                        if (queue != null) {
+                            ticket = queue.acquire(run != null ? run.getParent().getFullName() : "", priority, getMaxInFlightRuns(), consoleLogger());
+                        }
+                        createdResourceName = createWithResourceSpecificClient(resourceType, new ByteArrayInputStream(data), envVars);
+                    } finally {
+                        if (queue != null) {
+                            queue.release(ticket);
+                        }
+                    }
                 }
             }
 
             // only recording checks for pipelineruns
             if (resourceType != null && resourceType == TektonResourceType.pipelinerun) {
                 ChecksDetails checkDetails = new ChecksDetails.ChecksDetailsBuilder()
-                        .withName("tekton")
+                        .withName(getCheckName())
                         .withOutput(new ChecksOutput.ChecksOutputBuilder()
                                 .withTitle(createdResourceName)
                                 .withSummary("PipelineRun completed")
+                                .withText(pipelineRunChecks != null ? pipelineRunChecks.toMarkdown() : "")
                                 .build())
                         .withCompletedAt(LocalDateTime.now())
                         .withStatus(ChecksStatus.COMPLETED)
@@ -444,6 +1428,26 @@ public class CreateRaw extends BaseStep {
                         .build();
                 checksPublisher.publish(checkDetails);
             }
+        } catch (InterruptedException e) {
+            logMessage("[Tekton] Aborted");
+            LOGGER.info("Interrupted while creating " + createdResourceName);
+            setResult(run, Result.ABORTED);
+            // lets let perform() know so that it can abort the build
+            Thread.currentThread().interrupt();
+
+            if (resourceType != null && resourceType == TektonResourceType.pipelinerun) {
+                ChecksDetails checkDetails = new ChecksDetails.ChecksDetailsBuilder()
+                        .withName(getCheckName())
+                        .withStatus(ChecksStatus.COMPLETED)
+                        .withConclusion(ChecksConclusion.CANCELED)
+                        .withOutput(new ChecksOutput.ChecksOutputBuilder()
+                                .withTitle(createdResourceName)
+                                .withSummary("PipelineRun Cancelled")
+                                .build())
+                        .withCompletedAt(LocalDateTime.now(ZoneOffset.UTC))
+                        .build();
+                checksPublisher.publish(checkDetails);
+            }
         } catch (Throwable e) {
             logMessage("Failed: " + e.getMessage());
             StringWriter buffer = new StringWriter();
@@ -455,12 +1459,12 @@ public class CreateRaw extends BaseStep {
             LOGGER.warning("Caught: " + e.toString());
             e.printStackTrace();
 
-            run.setResult(Result.FAILURE);
+            setResult(run, Result.FAILURE);
 
             // only recording checks for pipelineruns
             if (resourceType != null && resourceType == TektonResourceType.pipelinerun) {
                 ChecksDetails checkDetails = new ChecksDetails.ChecksDetailsBuilder()
-                        .withName("tekton")
+                        .withName(getCheckName())
                         .withStatus(ChecksStatus.COMPLETED)
                         .withConclusion(ChecksConclusion.FAILURE)
                         .withOutput(new ChecksOutput.ChecksOutputBuilder()
@@ -478,146 +1482,80 @@ public class CreateRaw extends BaseStep {
         return createdResourceName;
     }
 
-    protected void logMessage(String text) {
-        synchronized (this.consoleLogger) {
-            try {
-                this.consoleLogger.write((text + "\n").getBytes(StandardCharsets.UTF_8));
-            } catch (IOException e) {
-                LOGGER.warning("failed to log to console: " + e);
-            }
-        }
-    }
-
     /**
-     * Performs any conversion on the Tekton resources before we apply it to Kubernetes
+     * Logs a redacted preview of the payload at FINE and adds the whole payload to the debug dump if enabled.
+     * The payload is only created if it is going to be used.
      */
-    private byte[] convertTektonData(FilePath workspace, EnvVars envVars, File inputFile, byte[] data) throws Exception {
-        if (enableCatalog) {
-            // lets use the workspace relative path
-            if (workspace == null) {
-                throw new IOException("no workspace");
-            }
-
-            // lets work relative to the workspace
-            File dir = new File(workspace.getRemote());
-
-            // lets make sure the dir exists
-            if (dir.mkdirs()) {
-                LOGGER.log(Level.FINE, "created workspace dir " + dir);
-            }
-
-            if (inputFile != null) {
-                String path = inputFile.getPath();
-                inputFile = new File(dir, path);
-
-                // if the workspace is remote then lets make a local copy
-                if (workspace.isRemote()) {
-                    // lets switch to a temp dir for the local copy
-                    dir = Files.createTempDir();
-                    inputFile = new File(dir, path);
-
-                    LOGGER.info("Workspace is remote so lets copy the file " + path);
-
-                    VirtualChannel channel = workspace.getChannel();
-                    File remotePath = new File(workspace.getRemote(), path);
-
-                    LOGGER.info("Getting the remote file: " + remotePath + " copying to local file " + inputFile);
-
-                    FilePath inputFilePath = new FilePath(inputFile);
-                    FilePath parent = inputFilePath.getParent();
-                    if (parent != null) {
-                        parent.mkdirs();
-                    }
-
-                    try {
-                        FilePath newFile = new FilePath(channel, remotePath.toString());
-                        newFile.copyTo(inputFilePath);
-                    } catch (Exception e) {
-                        LOGGER.info("Failed to copy remote file locally: " + remotePath);
-                        e.printStackTrace();
-                        throw new IOException("failed to copy remote file locally: " + remotePath, e);
-                    }
+    private void debug(String title, Supplier<String> content) {
+        boolean loggable = LOGGER.isLoggable(Level.FINE);
+        if (!loggable && dump == null) {
+            return;
+        }
+        String text = content.get();
+        if (loggable) {
+            LOGGER.fine(title + "\n" + DiagnosticsUtils.preview(text));
+        }
+        if (dump != null) {
+            dump.add(title, text);
+        }
+    }
 
-                    try {
-                        long size = inputFilePath.length();
-                        if (size == 0) {
-                            LOGGER.warning("failed to find a size ");
-                        } else {
-                            LOGGER.info("size of new local file is " + size);
-                        }
-                    } catch (Exception e) {
-                        LOGGER.info("failed to find size of local file " + inputFile);
-                        e.printStackTrace();
-                    }
-                }
+    private void archiveDebugDump(Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener) {
+        // lets not lose the interrupt status of an aborted build while archiving
+        boolean interrupted = Thread.interrupted();
+        try {
+            dump.add("Result", String.valueOf(run.getResult()));
+            dump.archive(run, workspace, launcher, listener);
+            logMessage("[Tekton] Archived debug dump " + DebugDump.ARTIFACT_NAME);
+        } catch (IOException | InterruptedException e) {
+            LOGGER.log(Level.WARNING, "failed to archive debug dump", e);
+        } finally {
+            dump = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
-            LOGGER.info("Processing the tekton catalog at dir " + dir);
-            return processTektonCatalog(envVars, dir, inputFile, data);
         }
+    }
 
-        if (data == null && inputFile != null) {
-            data = Files.toByteArray(inputFile);
+    private static void closeSink(ConsoleSink sink, OutputStream source) {
+        try {
+            ConsoleSink.endLine(source);
+        } catch (IOException e) {
+            LOGGER.warning("failed to log to console: " + e);
+        } finally {
+            sink.close();
         }
-        return data;
     }
 
+    protected void logMessage(String text) {
+        try {
+            OutputStream source = activeSource;
+            ConsoleSink.writeLine(source != null ? source : consoleLogger(), text);
+        } catch (IOException e) {
+            LOGGER.warning("failed to log to console: " + e);
+        }
+    }
 
     /**
-     * Lets process any <code>image: uses:sourceURI</code> blocks in the tekton <code>Pipeline</code>,
-     * <code>PipelineRun</code>, <code>Task</code> or <code>TaskRun</code> resources so that we can reuse Tasks or Steps
-     * from Tekton Catalog or any other git repository.
-     *
-     * For background see: https://jenkins-x.io/blog/2021/02/25/gitops-pipelines/
-     *
-     * @param envVars
-     * @param file optional file name to process
-     * @param data data to process if no file name is given
-     * @return the processed data
-     * @throws Exception
+     * Performs any conversion on the Tekton resources before we apply it to Kubernetes
      */
-    private byte[] processTektonCatalog(EnvVars envVars, File dir, File file, byte[] data) throws Exception {
-        boolean deleteInputFile = false;
-        if (file == null) {
-            // the following fails when not running in the controller so lets not use a temp file for now
-            //file = File.createTempFile("tekton-input-", ".yaml", dir);
-            file = new File(dir, "tekton-input-pipeline.yaml");
-            Files.write(data, file);
-            LOGGER.info("Saved file: " + file.getPath());
-        }
-
-        // the following fails when not running in the controller so lets not use a temp file for now
-        //File outputFile = File.createTempFile("tekton-effective-", ".yaml", dir);
-        File outputFile = new File(dir, "tekton-effective-pipeline.yaml");
-
-        String filePath = file.getPath();
-        String binary = ToolUtils.getJXPipelineBinary(getToolClassLoader());
-
-        LOGGER.info("Using tekton pipeline binary " + binary);
-
-        ProcessBuilder builder = new ProcessBuilder();
-        builder.command(binary, "-b", "--add-defaults", "-f", filePath, "-o", outputFile.getPath());
-        if (envVars != null) {
-            for (Map.Entry<String, String> entry : envVars.entrySet()) {
-                LOGGER.info("Adding env var " + entry.getKey() + "=" + entry.getValue());
-                builder.environment().put(entry.getKey(), entry.getValue());
+    private byte[] convertTektonData(FilePath workspace, EnvVars envVars, byte[] data) throws Exception {
+        if (enableCatalog) {
+            // lets use the workspace relative path
+            if (workspace == null) {
+                throw new IOException("no workspace");
+            }
+            if (data == null) {
+                return null;
             }
-        }
-        Process process = builder.start();
-        int exitCode = process.waitFor();
-
-        LogUtils.logStream(process.getInputStream(), LOGGER, false);
-        LogUtils.logStream(process.getErrorStream(), LOGGER, true);
 
-        if (exitCode != 0) {
-            throw new Exception("failed to apply tekton catalog to file " + filePath);
+            // lets resolve the catalog on the node which owns the workspace; the class loader is only used locally
+            LOGGER.info("Processing the tekton catalog at dir " + workspace.getRemote());
+            byte[] effective = workspace.act(new TektonCatalogCallable(envVars, data, getToolClassLoader()));
+            byte[] generated = CompressionUtils.gunzip(effective);
+            debug("Generated contents", () -> new String(generated, StandardCharsets.UTF_8));
+            data = generated;
         }
-
-        LOGGER.info("Generated file: " + outputFile.getPath());
-
-        data = Files.toByteArray(outputFile);
-
-        LOGGER.info("Generated contents:\n" + new String(data, StandardCharsets.UTF_8));
-
         return data;
     }
 
@@ -647,6 +1585,15 @@ public class CreateRaw extends BaseStep {
             return items;
         }
 
+        public ListBoxModel doFillPlacementStrategyItems(@QueryParameter(value = "placementStrategy") final String placementStrategy){
+            ListBoxModel items = new ListBoxModel();
+            items.add("None", "");
+            for (ClusterPlacement.Strategy strategy : ClusterPlacement.Strategy.values()) {
+                items.add(strategy.name());
+            }
+            return items;
+        }
+
         @Override
         public boolean isApplicable(Class<? extends AbstractProject> jobType) {
             return true;
@@ -657,15 +1604,4 @@ public class CreateRaw extends BaseStep {
             return "Tekton : Create Resource (Raw)";
         }
     }
-
-    private String marshall(PipelineRun pipelineRun) {
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory().disable(YAMLGenerator.Feature.WRITE_DOC_START_MARKER));
-        String output = null;
-        try {
-            output = mapper.writeValueAsString(pipelineRun);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
-        return output;
-    }
 }
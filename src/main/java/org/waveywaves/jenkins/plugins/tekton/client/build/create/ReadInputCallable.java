@@ -0,0 +1,69 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.waveywaves.jenkins.plugins.tekton.client.CompressionUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads a <code>FILE</code> input in a single remoting call, compressing it on the agent when it is large.
+ */
+public class ReadInputCallable extends MasterToSlaveFileCallable<byte[]> {
+    private static final long serialVersionUID = 1L;
+
+    static final long COMPRESS_THRESHOLD_BYTES = Long.getLong(ReadInputCallable.class.getName() + ".compressThresholdBytes", 64 * 1024);
+
+    private final long compressThresholdBytes;
+
+    /**
+     * @param compressThresholdBytes files larger than this are gzip compressed before being returned
+     */
+    public ReadInputCallable(long compressThresholdBytes) {
+        this.compressThresholdBytes = compressThresholdBytes;
+    }
+
+    /**
+     * Reads the file, only compressing it when it has to cross the remoting channel
+     *
+     * @param file the file to read
+     * @return the uncompressed contents of the file
+     * @throws IOException if the file could not be read
+     * @throws InterruptedException if the build was aborted
+     */
+    public static byte[] read(FilePath file) throws IOException, InterruptedException {
+        long threshold = file.isRemote() ? COMPRESS_THRESHOLD_BYTES : Long.MAX_VALUE;
+        byte[] data = file.act(new ReadInputCallable(threshold));
+        return CompressionUtils.isGzipped(data) ? CompressionUtils.gunzip(data) : data;
+    }
+
+    /**
+     * @param file the input file
+     * @param channel the channel back to the controller
+     * @return the contents of the file which are gzip compressed if the file is larger than the threshold
+     */
+    @Override
+    public byte[] invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException("input file " + file + " does not exist");
+        }
+        long length = file.length();
+        if (length <= compressThresholdBytes) {
+            return Files.toByteArray(file);
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, Math.max(32, length / 4)));
+        try (InputStream in = new FileInputStream(file); GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            ByteStreams.copy(in, out);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,226 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import com.google.common.base.Strings;
+import io.fabric8.kubernetes.api.model.EnvVar;
+import io.fabric8.tekton.pipeline.v1beta1.ArrayOrString;
+import io.fabric8.tekton.pipeline.v1beta1.Param;
+import io.fabric8.tekton.pipeline.v1beta1.ParamSpec;
+import io.fabric8.tekton.pipeline.v1beta1.Pipeline;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineTask;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineWorkspaceDeclaration;
+import io.fabric8.tekton.pipeline.v1beta1.Step;
+import io.fabric8.tekton.pipeline.v1beta1.StepBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.Task;
+import io.fabric8.tekton.pipeline.v1beta1.TaskBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRef;
+import io.fabric8.tekton.pipeline.v1beta1.TaskResult;
+import io.fabric8.tekton.pipeline.v1beta1.WorkspaceDeclaration;
+import io.fabric8.tekton.pipeline.v1beta1.WorkspacePipelineTaskBinding;
+import org.waveywaves.jenkins.plugins.tekton.client.SerializationUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compiles the describables of <code>tektonCreateTask</code> and <code>tektonCreatePipeline</code> straight into
+ * fabric8 model objects.
+ *
+ * Compiled resources are cached by a hash of the configuration so that repeated builds of an unchanged job only
+ * submit the resource; callers always get their own copy.
+ */
+final class ResourceCompiler {
+    static final int MAX_CACHED = Integer.getInteger(ResourceCompiler.class.getName() + ".maxCached", 256);
+
+    private static final Map<String, Object> CACHE = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    private ResourceCompiler() {
+    }
+
+    static Task compileTask(String name,
+                            String description,
+                            List<TektonStringParamSpec> params,
+                            List<TektonWorkspaceDecl> workspaces,
+                            List<TektonTaskResult> results,
+                            List<TektonStep> steps) {
+        String key = "Task/" + SerializationUtils.fingerprint(Arrays.asList(name, description, params, workspaces, results, steps));
+        Task task = cached(key, Task.class, k -> new TaskBuilder()
+                .withApiVersion("tekton.dev/v1beta1")
+                .withKind("Task")
+                .withNewMetadata()
+                    .withName(name)
+                .endMetadata()
+                .withNewSpec()
+                    .withDescription(description)
+                    .withParams(toParamSpecs(params))
+                    .withWorkspaces(toWorkspaceDeclarations(workspaces))
+                    .withResults(toTaskResults(results))
+                    .withSteps(toSteps(steps))
+                .endSpec()
+                .build());
+        return new TaskBuilder(task).build();
+    }
+
+    static Pipeline compilePipeline(String name,
+                                    String description,
+                                    List<TektonStringParamSpec> params,
+                                    List<TektonWorkspaceDecl> workspaces,
+                                    List<TektonPipelineTask> tasks) {
+        String key = "Pipeline/" + SerializationUtils.fingerprint(Arrays.asList(name, description, params, workspaces, tasks));
+        Pipeline pipeline = cached(key, Pipeline.class, k -> new PipelineBuilder()
+                .withApiVersion("tekton.dev/v1beta1")
+                .withKind("Pipeline")
+                .withNewMetadata()
+                    .withName(name)
+                .endMetadata()
+                .withNewSpec()
+                    .withDescription(description)
+                    .withParams(toParamSpecs(params))
+                    .withWorkspaces(toPipelineWorkspaceDeclarations(workspaces))
+                    .withTasks(toPipelineTasks(tasks))
+                .endSpec()
+                .build());
+        return new PipelineBuilder(pipeline).build();
+    }
+
+    static int cacheSize() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    static void reset() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static <T> T cached(String key, Class<T> type, Function<String, T> compiler) {
+        synchronized (CACHE) {
+            return type.cast(CACHE.computeIfAbsent(key, compiler));
+        }
+    }
+
+    private static List<ParamSpec> toParamSpecs(List<TektonStringParamSpec> params) {
+        List<ParamSpec> answer = new ArrayList<>();
+        for (TektonStringParamSpec p : nullToEmpty(params)) {
+            ParamSpec spec = new ParamSpec();
+            spec.setName(p.getName());
+            spec.setType("string");
+            spec.setDescription(Strings.emptyToNull(p.getDescription()));
+            if (p.getDefaultValue() != null) {
+                spec.setDefault(new ArrayOrString(p.getDefaultValue()));
+            }
+            answer.add(spec);
+        }
+        return answer;
+    }
+
+    private static List<WorkspaceDeclaration> toWorkspaceDeclarations(List<TektonWorkspaceDecl> workspaces) {
+        List<WorkspaceDeclaration> answer = new ArrayList<>();
+        for (TektonWorkspaceDecl w : nullToEmpty(workspaces)) {
+            WorkspaceDeclaration declaration = new WorkspaceDeclaration();
+            declaration.setName(w.getName());
+            declaration.setDescription(Strings.emptyToNull(w.getDescription()));
+            declaration.setMountPath(Strings.emptyToNull(w.getMountPath()));
+            declaration.setReadOnly(w.getReadOnly());
+            answer.add(declaration);
+        }
+        return answer;
+    }
+
+    private static List<PipelineWorkspaceDeclaration> toPipelineWorkspaceDeclarations(List<TektonWorkspaceDecl> workspaces) {
+        List<PipelineWorkspaceDeclaration> answer = new ArrayList<>();
+        for (TektonWorkspaceDecl w : nullToEmpty(workspaces)) {
+            PipelineWorkspaceDeclaration declaration = new PipelineWorkspaceDeclaration();
+            declaration.setName(w.getName());
+            declaration.setDescription(Strings.emptyToNull(w.getDescription()));
+            answer.add(declaration);
+        }
+        return answer;
+    }
+
+    private static List<TaskResult> toTaskResults(List<TektonTaskResult> results) {
+        List<TaskResult> answer = new ArrayList<>();
+        for (TektonTaskResult r : nullToEmpty(results)) {
+            TaskResult result = new TaskResult();
+            result.setName(r.getName());
+            result.setDescription(Strings.emptyToNull(r.getDescription()));
+            answer.add(result);
+        }
+        return answer;
+    }
+
+    private static List<Step> toSteps(List<TektonStep> steps) {
+        List<Step> answer = new ArrayList<>();
+        for (TektonStep s : nullToEmpty(steps)) {
+            List<String> args = new ArrayList<>();
+            for (TektonArg arg : nullToEmpty(s.getArgs())) {
+                args.add(arg.getValue());
+            }
+            List<String> command = new ArrayList<>();
+            for (TektonCommandI part : nullToEmpty(s.getCommand())) {
+                command.add(part.getValue());
+            }
+            List<EnvVar> env = new ArrayList<>();
+            for (TektonEnv e : nullToEmpty(s.getEnvs())) {
+                env.add(new EnvVar(e.getName(), e.getValue(), null));
+            }
+            answer.add(new StepBuilder()
+                    .withName(s.getName())
+                    .withImage(s.getImage())
+                    .withArgs(args)
+                    .withCommand(command)
+                    .withEnv(env)
+                    .withScript(Strings.emptyToNull(s.getScript()))
+                    .withTty(s.getTty())
+                    .withWorkingDir(Strings.emptyToNull(s.getWorkingDir()))
+                    .build());
+        }
+        return answer;
+    }
+
+    private static List<PipelineTask> toPipelineTasks(List<TektonPipelineTask> tasks) {
+        List<PipelineTask> answer = new ArrayList<>();
+        for (TektonPipelineTask t : nullToEmpty(tasks)) {
+            TaskRef taskRef = new TaskRef();
+            taskRef.setKind("Task");
+            taskRef.setName(t.getTaskRef());
+
+            List<Param> params = new ArrayList<>();
+            for (TektonParam p : nullToEmpty(t.getParams())) {
+                params.add(new Param(p.getName(), new ArrayOrString(p.getValue())));
+            }
+            List<WorkspacePipelineTaskBinding> workspaces = new ArrayList<>();
+            for (TektonPipelineTaskWorkspace w : nullToEmpty(t.getWorkspaces())) {
+                WorkspacePipelineTaskBinding binding = new WorkspacePipelineTaskBinding();
+                binding.setName(w.getName());
+                binding.setWorkspace(!Strings.isNullOrEmpty(w.getWorkspace()) ? w.getWorkspace() : w.getName());
+                workspaces.add(binding);
+            }
+
+            PipelineTask pipelineTask = new PipelineTask();
+            pipelineTask.setName(t.getName());
+            pipelineTask.setTaskRef(taskRef);
+            pipelineTask.setParams(params);
+            pipelineTask.setWorkspaces(workspaces);
+            pipelineTask.setRunAfter(t.getRunAfterList());
+            answer.add(pipelineTask);
+        }
+        return answer;
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : Collections.emptyList();
+    }
+}
@@ -0,0 +1,317 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import io.fabric8.knative.internal.pkg.apis.Condition;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRun;
+import org.waveywaves.jenkins.plugins.tekton.client.CancelUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.WaitStrategy;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates a TaskRun for every combination of the matrix axes, keeping at most a window of them in flight, and
+ * follows all of them through a single watch on the matrix label rather than one watcher per TaskRun.
+ */
+class TaskRunMatrix {
+    private static final Logger LOGGER = Logger.getLogger(TaskRunMatrix.class.getName());
+
+    static final String MATRIX_ID_LABEL = "tekton.jenkins.io/matrix-id";
+    static final String MATRIX_INDEX_LABEL = "tekton.jenkins.io/matrix-index";
+
+    /**
+     * How often we list the TaskRuns in case the watch missed an event, or could not be opened
+     */
+    static final long RESYNC_MILLIS = Long.getLong(TaskRunMatrix.class.getName() + ".resyncMillis", TimeUnit.SECONDS.toMillis(30));
+    private static final long POLL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private final TektonClient tektonClient;
+    private final String namespace;
+    private final String matrixId;
+    private final int window;
+    private final PrintStream console;
+    private final List<Cell> cells = new ArrayList<>();
+    private boolean cancelOnAbort = true;
+    private long cancelGracePeriodSeconds;
+    private int submitted;
+    private int completed;
+
+    /**
+     * @param tektonClient the client
+     * @param namespace the namespace to create the TaskRuns in
+     * @param matrixId the value of the {@link #MATRIX_ID_LABEL} label shared by the TaskRuns
+     * @param window the maximum number of TaskRuns in flight
+     * @param console the build console
+     */
+    TaskRunMatrix(TektonClient tektonClient, String namespace, String matrixId, int window, PrintStream console) {
+        this.tektonClient = tektonClient;
+        this.namespace = namespace;
+        this.matrixId = matrixId;
+        this.window = Math.max(1, window);
+        this.console = console;
+    }
+
+    /**
+     * @param cancelOnAbort if false the TaskRuns in flight are left running when the build is aborted
+     * @param cancelGracePeriodSeconds if positive, a cancelled TaskRun which has not stopped within this many seconds
+     *                                 is deleted
+     */
+    void setCancelOnAbort(boolean cancelOnAbort, long cancelGracePeriodSeconds) {
+        this.cancelOnAbort = cancelOnAbort;
+        this.cancelGracePeriodSeconds = cancelGracePeriodSeconds;
+    }
+
+    /**
+     * @param axes the param names and their values
+     * @return every combination of the values of the axes in order
+     */
+    static List<Map<String, String>> combinations(List<TektonMatrixAxis> axes) {
+        List<Map<String, String>> answer = new ArrayList<>();
+        answer.add(new LinkedHashMap<>());
+        if (axes == null) {
+            return answer;
+        }
+        for (TektonMatrixAxis axis : axes) {
+            List<String> values = axis.getValueList();
+            if (values.isEmpty()) {
+                continue;
+            }
+            List<Map<String, String>> expanded = new ArrayList<>(answer.size() * values.size());
+            for (Map<String, String> combination : answer) {
+                for (String value : values) {
+                    Map<String, String> copy = new LinkedHashMap<>(combination);
+                    copy.put(axis.getName(), value);
+                    expanded.add(copy);
+                }
+            }
+            answer = expanded;
+        }
+        return answer;
+    }
+
+    /**
+     * @param params the matrix params of the TaskRun
+     * @param taskRun the TaskRun to create which must have the matrix labels
+     */
+    void add(Map<String, String> params, TaskRun taskRun) {
+        cells.add(new Cell(cells.size(), params, taskRun));
+    }
+
+    /**
+     * Creates all the TaskRuns and waits for them to complete
+     *
+     * @return true if every TaskRun succeeded
+     * @throws InterruptedException if the build was aborted, in which case the TaskRuns in flight are cancelled
+     */
+    boolean run() throws InterruptedException {
+        console.println("[Tekton] Creating " + cells.size() + " TaskRuns with at most " + window + " in flight");
+        Watch watch = WaitStrategy.watchQuietly(() -> tektonClient.v1beta1().taskRuns().inNamespace(namespace)
+                .withLabel(MATRIX_ID_LABEL, matrixId).watch(new MatrixWatcher()));
+        long resyncMillis = watch != null ? RESYNC_MILLIS : POLL_MILLIS;
+        try {
+            int next = 0;
+            while (true) {
+                List<Cell> toSubmit = new ArrayList<>();
+                boolean resync = false;
+                synchronized (this) {
+                    if (completed == cells.size()) {
+                        break;
+                    }
+                    while (next < cells.size() && submitted - completed < window) {
+                        toSubmit.add(cells.get(next++));
+                        submitted++;
+                    }
+                    if (toSubmit.isEmpty()) {
+                        int before = completed;
+                        wait(resyncMillis);
+                        resync = completed == before;
+                    }
+                }
+                for (Cell cell : toSubmit) {
+                    submit(cell);
+                }
+                if (resync) {
+                    resync();
+                }
+            }
+        } catch (InterruptedException e) {
+            if (cancelOnAbort) {
+                cancelInFlight();
+            }
+            throw e;
+        } finally {
+            WaitStrategy.closeQuietly(watch);
+        }
+        printSummary();
+        for (Cell cell : cells) {
+            if (!Boolean.TRUE.equals(cell.succeeded)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void submit(Cell cell) {
+        try {
+            TaskRun created = tektonClient.v1beta1().taskRuns().inNamespace(namespace).create(cell.taskRun);
+            synchronized (this) {
+                cell.name = created.getMetadata().getName();
+            }
+            LOGGER.fine(() -> "Created TaskRun " + cell.name + " for " + cell.params);
+        } catch (KubernetesClientException e) {
+            LOGGER.log(Level.WARNING, "failed to create TaskRun for " + cell.params, e);
+            console.println("[Tekton] Failed to create TaskRun for " + cell.params + ": " + e.getMessage());
+            complete(cell, false);
+        }
+    }
+
+    private void resync() {
+        try {
+            Set<String> names = new HashSet<>();
+            for (TaskRun taskRun : tektonClient.v1beta1().taskRuns().inNamespace(namespace)
+                    .withLabel(MATRIX_ID_LABEL, matrixId).list().getItems()) {
+                names.add(taskRun.getMetadata().getName());
+                update(taskRun);
+            }
+            // lets not wait forever for TaskRuns which were deleted before they completed
+            List<Cell> deleted = new ArrayList<>();
+            synchronized (this) {
+                for (Cell cell : cells) {
+                    if (cell.name != null && cell.succeeded == null && !names.contains(cell.name)) {
+                        deleted.add(cell);
+                    }
+                }
+            }
+            for (Cell cell : deleted) {
+                console.println("[Tekton] TaskRun " + cell.name + " was deleted");
+                complete(cell, false);
+            }
+        } catch (KubernetesClientException e) {
+            LOGGER.log(Level.WARNING, "failed to list the TaskRuns of matrix " + matrixId, e);
+        }
+    }
+
+    private void update(TaskRun taskRun) {
+        if (taskRun.getMetadata() == null || taskRun.getMetadata().getLabels() == null || taskRun.getStatus() == null) {
+            return;
+        }
+        List<Condition> conditions = taskRun.getStatus().getConditions();
+        if (!CancelUtils.isDone(conditions)) {
+            return;
+        }
+        int index;
+        try {
+            index = Integer.parseInt(taskRun.getMetadata().getLabels().get(MATRIX_INDEX_LABEL));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (index < 0 || index >= cells.size()) {
+            return;
+        }
+        Cell cell = cells.get(index);
+        synchronized (this) {
+            if (cell.name == null) {
+                cell.name = taskRun.getMetadata().getName();
+            }
+        }
+        complete(cell, isSucceeded(conditions));
+    }
+
+    private synchronized void complete(Cell cell, boolean succeeded) {
+        if (cell.succeeded != null) {
+            return;
+        }
+        cell.succeeded = succeeded;
+        completed++;
+        console.println("[Tekton] TaskRun " + cell.name + " " + cell.params + (succeeded ? " succeeded" : " failed") +
+                " (" + completed + "/" + cells.size() + ")");
+        notifyAll();
+    }
+
+    private void cancelInFlight() {
+        List<String> names = new ArrayList<>();
+        synchronized (this) {
+            for (Cell cell : cells) {
+                if (cell.name != null && cell.succeeded == null) {
+                    names.add(cell.name);
+                }
+            }
+        }
+        console.println("[Tekton] Build aborted so cancelling " + names.size() + " TaskRuns");
+        for (String name : names) {
+            CancelUtils.cancelTaskRun(tektonClient, namespace, name, cancelGracePeriodSeconds);
+        }
+    }
+
+    private synchronized void printSummary() {
+        int failed = 0;
+        StringBuilder builder = new StringBuilder("| # | Params | TaskRun | Status |\n| --- | --- | --- | --- |\n");
+        for (Cell cell : cells) {
+            boolean succeeded = Boolean.TRUE.equals(cell.succeeded);
+            if (!succeeded) {
+                failed++;
+            }
+            builder.append("| ").append(cell.index)
+                    .append(" | ").append(cell.params)
+                    .append(" | ").append(cell.name != null ? cell.name : "")
+                    .append(" | ").append(succeeded ? "Succeeded" : "Failed")
+                    .append(" |\n");
+        }
+        console.print(builder);
+        console.println("[Tekton] " + (cells.size() - failed) + "/" + cells.size() + " TaskRuns succeeded");
+    }
+
+    static boolean isSucceeded(List<Condition> conditions) {
+        if (conditions == null) {
+            return false;
+        }
+        for (Condition condition : conditions) {
+            if ("Succeeded".equalsIgnoreCase(condition.getType())) {
+                return "True".equalsIgnoreCase(condition.getStatus());
+            }
+        }
+        return false;
+    }
+
+    private class MatrixWatcher implements Watcher<TaskRun> {
+        @Override
+        public void eventReceived(Action action, TaskRun taskRun) {
+            if (action == Action.ADDED || action == Action.MODIFIED) {
+                update(taskRun);
+            }
+        }
+
+        @Override
+        public void onClose(WatcherException cause) {
+            if (cause != null) {
+                LOGGER.log(Level.FINE, "matrix watch closed", cause);
+            }
+        }
+    }
+
+    private static class Cell {
+        private final int index;
+        private final Map<String, String> params;
+        private final TaskRun taskRun;
+        private String name;
+        private Boolean succeeded;
+
+        private Cell(int index, Map<String, String> params, TaskRun taskRun) {
+            this.index = index;
+            this.params = params;
+            this.taskRun = taskRun;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import com.google.common.io.Files;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.waveywaves.jenkins.plugins.tekton.client.CompressionUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.DiagnosticsUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.LogUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.ToolUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lets process any <code>image: uses:sourceURI</code> blocks in the tekton <code>Pipeline</code>,
+ * <code>PipelineRun</code>, <code>Task</code> or <code>TaskRun</code> resources so that we can reuse Tasks or Steps
+ * from Tekton Catalog or any other git repository.
+ *
+ * This runs on the node which owns the workspace so that the catalog is resolved next to the source code; only
+ * the input and the gzip compressed effective YAML cross the remoting channel.
+ *
+ * For background see: https://jenkins-x.io/blog/2021/02/25/gitops-pipelines/
+ */
+public class TektonCatalogCallable extends MasterToSlaveFileCallable<byte[]> {
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = Logger.getLogger(TektonCatalogCallable.class.getName());
+
+    private final Map<String, String> envVars;
+    private final byte[] compressedData;
+    /**
+     * Only available when the workspace is local; on an agent we load the binary via our own class loader
+     */
+    private final transient ClassLoader toolClassLoader;
+
+    /**
+     * @param envVars the environment to pass to the binary
+     * @param data the resource to process
+     * @param toolClassLoader the class loader to find the binary with when running locally
+     * @throws IOException if the data could not be compressed
+     */
+    public TektonCatalogCallable(Map<String, String> envVars, byte[] data, ClassLoader toolClassLoader) throws IOException {
+        this.envVars = envVars != null ? new HashMap<>(envVars) : null;
+        this.compressedData = CompressionUtils.gzip(data);
+        this.toolClassLoader = toolClassLoader;
+    }
+
+    /**
+     * @param dir the workspace directory
+     * @param channel the channel back to the controller
+     * @return the gzip compressed effective YAML
+     */
+    @Override
+    public byte[] invoke(File dir, VirtualChannel channel) throws IOException, InterruptedException {
+        // lets make sure the dir exists
+        if (dir.mkdirs()) {
+            LOGGER.log(Level.FINE, "created workspace dir " + dir);
+        }
+
+        // the following fails when not running in the controller so lets not use a temp file for now
+        //file = File.createTempFile("tekton-input-", ".yaml", dir);
+        File file = new File(dir, "tekton-input-pipeline.yaml");
+        Files.write(CompressionUtils.gunzip(compressedData), file);
+        LOGGER.info("Saved file: " + file.getPath());
+
+        // the following fails when not running in the controller so lets not use a temp file for now
+        //File outputFile = File.createTempFile("tekton-effective-", ".yaml", dir);
+        File outputFile = new File(dir, "tekton-effective-pipeline.yaml");
+
+        String filePath = file.getPath();
+        String binary = getBinary();
+
+        LOGGER.info("Using tekton pipeline binary " + binary);
+
+        ProcessBuilder builder = new ProcessBuilder();
+        builder.command(binary, "-b", "--add-defaults", "-f", filePath, "-o", outputFile.getPath());
+        if (envVars != null) {
+            LOGGER.fine(() -> "Adding env vars " + DiagnosticsUtils.redactEnvVars(envVars));
+            builder.environment().putAll(envVars);
+        }
+        // lets read the output before waiting so the binary cannot block on a full pipe
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        LogUtils.logStream(process.getInputStream(), LOGGER, false);
+        int exitCode = process.waitFor();
+
+        if (exitCode != 0) {
+            throw new IOException("failed to apply tekton catalog to file " + filePath);
+        }
+
+        LOGGER.info("Generated file: " + outputFile.getPath());
+
+        return CompressionUtils.gzip(Files.toByteArray(outputFile));
+    }
+
+    /**
+     * @return the path of the <code>jx-pipeline-effective</code> binary
+     */
+    String getBinary() throws IOException {
+        ClassLoader classLoader = toolClassLoader != null ? toolClassLoader : ToolUtils.class.getClassLoader();
+        return ToolUtils.getJXPipelineBinary(classLoader);
+    }
+}
@@ -0,0 +1,154 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.FilteredLogStream;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.LogFilter;
+
+import java.io.OutputStream;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Filters the log of the step containers whose name matches <code>container</code> before it reaches the console.
+ */
+public final class TektonLogFilter extends AbstractDescribableImpl<TektonLogFilter> implements LogFilter {
+    private static final String STEP_CONTAINER_PREFIX = "step-";
+
+    private final String container;
+    private String include;
+    private String exclude;
+    private int sampleEvery;
+    private int tailLines;
+    private transient Pattern containerPattern;
+    private transient Pattern includePattern;
+    private transient Pattern excludePattern;
+
+    /**
+     * @param container a regular expression matching the names of the steps or containers to filter, all of them
+     *                  if blank
+     */
+    @DataBoundConstructor
+    public TektonLogFilter(String container) {
+        this.container = Util.fixEmptyAndTrim(container);
+    }
+
+    public String getContainer() {
+        return container;
+    }
+
+    public String getInclude() {
+        return include;
+    }
+
+    /**
+     * @param include a regular expression which lines must contain to be kept
+     */
+    @DataBoundSetter
+    public void setInclude(String include) {
+        this.include = Util.fixEmpty(include);
+        this.includePattern = null;
+    }
+
+    public String getExclude() {
+        return exclude;
+    }
+
+    /**
+     * @param exclude a regular expression which omits the lines that contain it
+     */
+    @DataBoundSetter
+    public void setExclude(String exclude) {
+        this.exclude = Util.fixEmpty(exclude);
+        this.excludePattern = null;
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * @param sampleEvery keeps only every nth line if greater than 1
+     */
+    @DataBoundSetter
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    public int getTailLines() {
+        return tailLines;
+    }
+
+    /**
+     * @param tailLines keeps only the last lines of the log if greater than 0, unless the container failed
+     */
+    @DataBoundSetter
+    public void setTailLines(int tailLines) {
+        this.tailLines = tailLines;
+    }
+
+    @Override
+    public boolean appliesTo(String containerName) {
+        if (container == null) {
+            return true;
+        }
+        if (containerPattern == null) {
+            containerPattern = Pattern.compile(container);
+        }
+        if (containerPattern.matcher(containerName).matches()) {
+            return true;
+        }
+        return containerName.startsWith(STEP_CONTAINER_PREFIX)
+                && containerPattern.matcher(containerName.substring(STEP_CONTAINER_PREFIX.length())).matches();
+    }
+
+    @Override
+    public OutputStream filter(String containerName, OutputStream out, boolean failed) {
+        if (include != null && includePattern == null) {
+            includePattern = Pattern.compile(include);
+        }
+        if (exclude != null && excludePattern == null) {
+            excludePattern = Pattern.compile(exclude);
+        }
+        // the whole log of a failed container is usually needed to work out what went wrong
+        return new FilteredLogStream(containerName, out, includePattern, excludePattern, sampleEvery, failed ? 0 : tailLines);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<TektonLogFilter> {
+        @Override
+        public String getDisplayName() {
+            return "logFilter";
+        }
+
+        public FormValidation doCheckContainer(@QueryParameter String value) {
+            return checkPattern(value);
+        }
+
+        public FormValidation doCheckInclude(@QueryParameter String value) {
+            return checkPattern(value);
+        }
+
+        public FormValidation doCheckExclude(@QueryParameter String value) {
+            return checkPattern(value);
+        }
+
+        private static FormValidation checkPattern(String value) {
+            if (Util.fixEmpty(value) == null) {
+                return FormValidation.ok();
+            }
+            try {
+                Pattern.compile(value);
+                return FormValidation.ok();
+            } catch (PatternSyntaxException e) {
+                return FormValidation.error(e.getDescription());
+            }
+        }
+    }
+}
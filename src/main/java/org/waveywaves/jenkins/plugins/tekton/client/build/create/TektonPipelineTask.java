@@ -0,0 +1,75 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TektonPipelineTask extends AbstractDescribableImpl<TektonPipelineTask> {
+    private final String name;
+    private final String taskRef;
+    private final List<TektonParam> params;
+    private final List<TektonPipelineTaskWorkspace> workspaces;
+    private final String runAfter;
+
+    @DataBoundConstructor
+    public TektonPipelineTask(final String name,
+                              final String taskRef,
+                              final List<TektonParam> params,
+                              final List<TektonPipelineTaskWorkspace> workspaces,
+                              final String runAfter) {
+        this.name = name;
+        this.taskRef = taskRef;
+        this.params = params;
+        this.workspaces = workspaces;
+        this.runAfter = runAfter;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getTaskRef() {
+        return this.taskRef;
+    }
+
+    public List<TektonParam> getParams() {
+        return this.params;
+    }
+
+    public List<TektonPipelineTaskWorkspace> getWorkspaces() {
+        return this.workspaces;
+    }
+
+    public String getRunAfter() {
+        return this.runAfter;
+    }
+
+    /**
+     * @return the names of the tasks in the comma separated <code>runAfter</code>
+     */
+    public List<String> getRunAfterList() {
+        List<String> answer = new ArrayList<>();
+        if (runAfter == null) {
+            return answer;
+        }
+        for (String value : runAfter.split(",")) {
+            String trimmed = value.trim();
+            if (!trimmed.isEmpty()) {
+                answer.add(trimmed);
+            }
+        }
+        return answer;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<TektonPipelineTask> {
+        @Override
+        public String getDisplayName() {
+            return "task";
+        }
+    }
+}
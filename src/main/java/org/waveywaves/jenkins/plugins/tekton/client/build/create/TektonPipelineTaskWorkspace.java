@@ -0,0 +1,33 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+public final class TektonPipelineTaskWorkspace extends AbstractDescribableImpl<TektonPipelineTaskWorkspace> {
+    private final String name;
+    private final String workspace;
+
+    @DataBoundConstructor
+    public TektonPipelineTaskWorkspace(String name, String workspace) {
+        this.name = name;
+        this.workspace = workspace;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getWorkspace() {
+        return workspace;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<TektonPipelineTaskWorkspace> {
+        @Override
+        public String getDisplayName() {
+            return "workspace";
+        }
+    }
+}
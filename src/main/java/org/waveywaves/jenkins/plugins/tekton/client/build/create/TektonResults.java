@@ -0,0 +1,135 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import com.google.common.base.Strings;
+import hudson.EnvVars;
+import hudson.model.EnvironmentContributingAction;
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRunResult;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRunStatus;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRunTaskRunStatus;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRun;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRunResult;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRunStatus;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The results of the TaskRuns and PipelineRuns created by a build, so that later stages can use them rather than
+ * parsing the console.
+ *
+ * Each result is added to the build environment as <code>TEKTON_RESULT_&lt;NAME&gt;</code>; the results of the
+ * TaskRuns of a PipelineRun are named <code>&lt;pipelineTask&gt;.&lt;result&gt;</code>.
+ */
+public class TektonResults extends InvisibleAction implements EnvironmentContributingAction {
+    static final String ENV_VAR_PREFIX = "TEKTON_RESULT_";
+
+    private final Map<String, String> results = new LinkedHashMap<>();
+
+    /**
+     * @param run the build which may be null
+     * @return the results of the build, which are not remembered if there is no build
+     */
+    public static TektonResults forRun(Run<?, ?> run) {
+        if (run == null) {
+            return new TektonResults();
+        }
+        synchronized (run) {
+            TektonResults answer = run.getAction(TektonResults.class);
+            if (answer == null) {
+                answer = new TektonResults();
+                run.addAction(answer);
+            }
+            return answer;
+        }
+    }
+
+    /**
+     * @param taskRun the completed TaskRun
+     * @return the results of the TaskRun by name
+     */
+    public static Map<String, String> fromTaskRun(TaskRun taskRun) {
+        Map<String, String> answer = new LinkedHashMap<>();
+        if (taskRun != null) {
+            putTaskResults(answer, "", taskRun.getStatus());
+        }
+        return answer;
+    }
+
+    /**
+     * @param pipelineRun the completed PipelineRun
+     * @return the results of the PipelineRun and of its TaskRuns by name
+     */
+    public static Map<String, String> fromPipelineRun(PipelineRun pipelineRun) {
+        Map<String, String> answer = new LinkedHashMap<>();
+        PipelineRunStatus status = pipelineRun != null ? pipelineRun.getStatus() : null;
+        if (status == null) {
+            return answer;
+        }
+        if (status.getTaskRuns() != null) {
+            for (PipelineRunTaskRunStatus taskRun : status.getTaskRuns().values()) {
+                if (!Strings.isNullOrEmpty(taskRun.getPipelineTaskName())) {
+                    putTaskResults(answer, taskRun.getPipelineTaskName() + ".", taskRun.getStatus());
+                }
+            }
+        }
+        for (PipelineRunResult result : nullToEmpty(status.getPipelineResults())) {
+            answer.put(result.getName(), result.getValue());
+        }
+        return answer;
+    }
+
+    private static void putTaskResults(Map<String, String> answer, String prefix, TaskRunStatus status) {
+        if (status == null) {
+            return;
+        }
+        for (TaskRunResult result : nullToEmpty(status.getTaskResults())) {
+            answer.put(prefix + result.getName(), result.getValue());
+        }
+    }
+
+    /**
+     * @param name the name of a result
+     * @return the name of the environment variable for the result
+     */
+    public static String toEnvVarName(String name) {
+        return ENV_VAR_PREFIX + name.toUpperCase(Locale.ENGLISH).replaceAll("[^A-Z0-9_]", "_");
+    }
+
+    public synchronized void putAll(Map<String, String> results) {
+        this.results.putAll(results);
+    }
+
+    /**
+     * @return the results of the build so far by name
+     */
+    public synchronized Map<String, String> getResults() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(results));
+    }
+
+    /**
+     * @param name the name of the result
+     * @return the value of the result or null if there is no such result
+     */
+    public synchronized String get(String name) {
+        return results.get(name);
+    }
+
+    @Override
+    public synchronized void buildEnvironment(Run<?, ?> run, EnvVars env) {
+        for (Map.Entry<String, String> entry : results.entrySet()) {
+            if (entry.getValue() != null) {
+                env.put(toEnvVarName(entry.getKey()), entry.getValue().trim());
+            }
+        }
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : Collections.emptyList();
+    }
+}
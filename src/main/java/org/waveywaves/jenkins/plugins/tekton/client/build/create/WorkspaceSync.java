@@ -0,0 +1,315 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DirScanner;
+import hudson.util.FileVisitor;
+import hudson.util.io.Archiver;
+import hudson.util.io.ArchiverFactory;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.PvcTransfer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Syncs a Jenkins workspace into the PersistentVolumeClaim of a Tekton workspace before a run, and the files the run
+ * changed back into the Jenkins workspace afterwards, so that a checkout does not have to be cloned again by the run.
+ *
+ * The files are compared with the content hashes of the files in the claim, which a run may have changed, so that
+ * only the files which differ are sent. They are split into chunks of about the same size which are compressed on
+ * the agent and extracted by concurrent transfers into the claim. A manifest of the synced files is kept in the claim
+ * so that files removed from the workspace are deleted from it without deleting the files created by runs.
+ */
+final class WorkspaceSync {
+    static final int DEFAULT_PARALLELISM = 4;
+    static final int MAX_FILES_PER_DOWNLOAD = 200;
+
+    private final FilePath workspace;
+    private final String excludes;
+    private final int parallelism;
+    private final Consumer<String> log;
+
+    /**
+     * @param workspace the Jenkins workspace
+     * @param excludes comma separated Ant patterns of the files not to sync, which may be null
+     * @param parallelism the number of concurrent transfers, the default if 0 or less
+     * @param log writes a line to the console
+     */
+    WorkspaceSync(FilePath workspace, String excludes, int parallelism, Consumer<String> log) {
+        this.workspace = workspace;
+        this.excludes = excludes;
+        this.parallelism = parallelism > 0 ? parallelism : DEFAULT_PARALLELISM;
+        this.log = log;
+    }
+
+    /**
+     * Sends the files which changed since the last sync into the claim and deletes those which have been removed
+     *
+     * @return the content hash of every file now in the claim by path
+     */
+    Map<String, String> upload(KubernetesClient client, String ns, String claimName, String subPath, long podTimeoutMillis) throws IOException, InterruptedException {
+        Map<String, FileState> local = workspace.act(new ScanCallable(excludes));
+        try (PvcTransfer transfer = PvcTransfer.start(client, ns, claimName, podTimeoutMillis)) {
+            Map<String, String> synced = parseManifest(transfer.readManifest(subPath));
+            // a run may have changed the files since the last sync so lets compare with what is in the claim
+            Map<String, String> current = parseManifest(transfer.hashFiles(subPath));
+            List<String> changed = changedPaths(local, current);
+            long changedBytes = 0;
+            for (String path : changed) {
+                changedBytes += local.get(path).size;
+            }
+            List<String> deleted = deletedPaths(local, synced, current);
+            if (!deleted.isEmpty()) {
+                transfer.delete(subPath, deleted);
+            }
+            uploadChunks(transfer, subPath, chunk(local, changed, parallelism));
+
+            Map<String, String> answer = new TreeMap<>();
+            for (Map.Entry<String, FileState> entry : local.entrySet()) {
+                answer.put(entry.getKey(), entry.getValue().hash);
+            }
+            transfer.writeManifest(subPath, formatManifest(answer));
+            log.accept("[Tekton] Synced " + changed.size() + " changed files (" + changedBytes + " bytes) of "
+                    + local.size() + " and deleted " + deleted.size() + " files from the workspace to " + claimName);
+            return answer;
+        }
+    }
+
+    /**
+     * Copies the files which the run added or changed in the claim back into the Jenkins workspace
+     *
+     * @param synced the content hash of every file in the claim after the upload by path
+     * @return the number of files copied
+     */
+    int download(KubernetesClient client, String ns, String claimName, String subPath, Map<String, String> synced, long podTimeoutMillis) throws IOException, InterruptedException {
+        try (PvcTransfer transfer = PvcTransfer.start(client, ns, claimName, podTimeoutMillis)) {
+            Map<String, String> current = parseManifest(transfer.hashFiles(subPath));
+            List<String> changed = new ArrayList<>();
+            for (Map.Entry<String, String> entry : current.entrySet()) {
+                if (!entry.getValue().equals(synced.get(entry.getKey()))) {
+                    changed.add(entry.getKey());
+                }
+            }
+            long bytes = 0;
+            for (int i = 0; i < changed.size(); i += MAX_FILES_PER_DOWNLOAD) {
+                bytes += transfer.downloadFiles(subPath, changed.subList(i, Math.min(changed.size(), i + MAX_FILES_PER_DOWNLOAD)), workspace, 0);
+            }
+            // the workspace now matches the claim so the next sync only needs to send what changes in between
+            transfer.writeManifest(subPath, formatManifest(current));
+            log.accept("[Tekton] Synced " + changed.size() + " changed files (" + bytes + " compressed bytes) from " + claimName + " to the workspace");
+            return changed.size();
+        }
+    }
+
+    private void uploadChunks(PvcTransfer transfer, String subPath, List<List<String>> chunks) throws IOException, InterruptedException {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (List<String> paths : chunks) {
+                futures.add(executor.submit(() -> {
+                    uploadChunk(transfer, subPath, paths);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException("failed to sync the workspace", cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void uploadChunk(PvcTransfer transfer, String subPath, List<String> paths) throws IOException, InterruptedException {
+        // the size of the archive has to be known up front so lets write it to a temporary file on the agent
+        FilePath archive = new FilePath(workspace.getChannel(), workspace.act(new ArchiveCallable(paths)));
+        try (InputStream in = archive.read()) {
+            transfer.upload(subPath, in, archive.length());
+        } finally {
+            archive.delete();
+        }
+    }
+
+    /**
+     * @param local the files in the workspace
+     * @param current the content hash of every file in the claim by path
+     * @return the files of the workspace which are missing or differ in the claim
+     */
+    static List<String> changedPaths(Map<String, FileState> local, Map<String, String> current) {
+        List<String> answer = new ArrayList<>();
+        for (Map.Entry<String, FileState> entry : local.entrySet()) {
+            if (!entry.getValue().hash.equals(current.get(entry.getKey()))) {
+                answer.add(entry.getKey());
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * @param local the files in the workspace
+     * @param synced the content hash of every file of the last sync by path
+     * @param current the content hash of every file in the claim by path
+     * @return the synced files which have since been removed from the workspace
+     */
+    static List<String> deletedPaths(Map<String, FileState> local, Map<String, String> synced, Map<String, String> current) {
+        List<String> answer = new ArrayList<>();
+        for (String path : synced.keySet()) {
+            if (!local.containsKey(path) && current.containsKey(path)) {
+                answer.add(path);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Splits the paths into at most the given number of chunks of about the same total size
+     */
+    static List<List<String>> chunk(Map<String, FileState> files, List<String> paths, int chunks) {
+        List<String> sorted = new ArrayList<>(paths);
+        sorted.sort((a, b) -> Long.compare(files.get(b).size, files.get(a).size));
+        int count = Math.min(chunks, sorted.size());
+        List<List<String>> answer = new ArrayList<>();
+        long[] sizes = new long[count];
+        for (int i = 0; i < count; i++) {
+            answer.add(new ArrayList<>());
+        }
+        for (String path : sorted) {
+            // the largest remaining file goes into the smallest chunk
+            int smallest = 0;
+            for (int i = 1; i < count; i++) {
+                if (sizes[i] < sizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            answer.get(smallest).add(path);
+            sizes[smallest] += files.get(path).size;
+        }
+        return answer;
+    }
+
+    /**
+     * @param text the output of <code>sha256sum</code>
+     * @return the hash of each file by its path relative to the synced directory
+     */
+    static Map<String, String> parseManifest(String text) {
+        Map<String, String> answer = new TreeMap<>();
+        for (String line : text.split("\n")) {
+            int separator = line.indexOf("  ");
+            if (separator <= 0) {
+                continue;
+            }
+            String path = line.substring(separator + 2);
+            if (path.startsWith("./")) {
+                path = path.substring(2);
+            }
+            answer.put(path, line.substring(0, separator));
+        }
+        return answer;
+    }
+
+    static String formatManifest(Map<String, String> hashes) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            builder.append(entry.getValue()).append("  ").append(entry.getKey()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    static final class FileState implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final String hash;
+        final long size;
+
+        FileState(String hash, long size) {
+            this.hash = hash;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Hashes every file in the workspace which is not excluded
+     */
+    static final class ScanCallable extends MasterToSlaveFileCallable<Map<String, FileState>> {
+        private static final long serialVersionUID = 1L;
+
+        private final String excludes;
+
+        ScanCallable(String excludes) {
+            this.excludes = excludes;
+        }
+
+        @Override
+        public Map<String, FileState> invoke(File dir, VirtualChannel channel) throws IOException {
+            Map<String, FileState> answer = new TreeMap<>();
+            new DirScanner.Glob("**/*", excludes).scan(dir, new FileVisitor() {
+                @Override
+                public void visit(File f, String relativePath) throws IOException {
+                    if (!f.isFile() || f.getName().equals(PvcTransfer.MANIFEST_NAME)) {
+                        return;
+                    }
+                    try (InputStream in = new FileInputStream(f)) {
+                        answer.put(relativePath.replace('\\', '/'), new FileState(DigestUtils.sha256Hex(in), f.length()));
+                    }
+                }
+            });
+            return answer;
+        }
+    }
+
+    /**
+     * Writes the given files of the workspace to a temporary compressed tar on the agent
+     */
+    static final class ArchiveCallable extends MasterToSlaveFileCallable<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> paths;
+
+        ArchiveCallable(List<String> paths) {
+            this.paths = new ArrayList<>(paths);
+        }
+
+        @Override
+        public String invoke(File dir, VirtualChannel channel) throws IOException {
+            File archive = File.createTempFile("tekton-sync", ".tar.gz");
+            try (OutputStream out = new FileOutputStream(archive); Archiver archiver = ArchiverFactory.TARGZ.create(out)) {
+                for (String path : paths) {
+                    archiver.visit(new File(dir, path), path);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!archive.delete()) {
+                    archive.deleteOnExit();
+                }
+                throw e;
+            }
+            return archive.getAbsolutePath();
+        }
+    }
+}
@@ -4,11 +4,17 @@ import hudson.Extension;
 import hudson.model.AbstractDescribableImpl;
 import hudson.model.Descriptor;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.waveywaves.jenkins.plugins.tekton.client.LabelUtils;
+
+import java.util.Map;
 
 public final class ClusterConfig extends AbstractDescribableImpl<ClusterConfig> {
     private final String name;
     private final String masterUrl;
     private final String defaultNamespace;
+    private String labels;
+    private int weight = 1;
 
     @DataBoundConstructor
     public ClusterConfig(final String name,
@@ -31,6 +37,44 @@ public final class ClusterConfig extends AbstractDescribableImpl<ClusterConfig>
         return name;
     }
 
+    public String getLabels() {
+        return labels;
+    }
+
+    /**
+     * @param labels labels such as <code>env=ci,region=eu</code> used to select clusters
+     */
+    @DataBoundSetter
+    public void setLabels(String labels) {
+        this.labels = labels;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @param weight the relative share of PipelineRuns this cluster gets with weighted round robin placement
+     */
+    @DataBoundSetter
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * @param selector the labels to match
+     * @return true if this cluster has all of the labels in the selector
+     */
+    public boolean matches(Map<String, String> selector) {
+        Map<String, String> labelMap = LabelUtils.parseSelector(labels);
+        for (Map.Entry<String, String> entry : selector.entrySet()) {
+            if (!entry.getValue().equals(labelMap.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Extension
     public static class DescriptorImpl extends Descriptor<ClusterConfig> {
         @Override
@@ -1,12 +1,14 @@
 package org.waveywaves.jenkins.plugins.tekton.client.global;
 
 import hudson.Extension;
+import hudson.Util;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import jenkins.model.GlobalConfiguration;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
 import org.kohsuke.stapler.StaplerRequest;
 import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.WaitStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,6 +20,9 @@ import static java.util.logging.Level.SEVERE;
 public class TektonGlobalConfiguration extends GlobalConfiguration {
     private static final Logger logger = Logger.getLogger(TektonGlobalConfiguration.class.getName());
     private transient List<ClusterConfig> clusterConfigs = new ArrayList<>();
+    private WaitStrategy waitStrategy;
+    private int maxInFlightRuns;
+    private String logArchiveDir;
 
     public TektonGlobalConfiguration(){
         load();
@@ -32,6 +37,41 @@ public class TektonGlobalConfiguration extends GlobalConfiguration {
         this.clusterConfigs = clusterConfigs;
     }
 
+    /**
+     * @return the default strategy used by the log watchers when a step does not configure its own
+     */
+    public WaitStrategy getWaitStrategy() {
+        return this.waitStrategy;
+    }
+
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * @return the maximum number of PipelineRuns and TaskRuns the plugin has in flight per cluster and namespace,
+     *         0 for no limit
+     */
+    public int getMaxInFlightRuns() {
+        return this.maxInFlightRuns;
+    }
+
+    public void setMaxInFlightRuns(int maxInFlightRuns) {
+        this.maxInFlightRuns = maxInFlightRuns;
+    }
+
+    /**
+     * @return the directory containing logs archived as <code>namespace/pod/container.log</code> which are used when
+     *         the pod of a TaskRun has been deleted before its logs could be streamed
+     */
+    public String getLogArchiveDir() {
+        return this.logArchiveDir;
+    }
+
+    public void setLogArchiveDir(String logArchiveDir) {
+        this.logArchiveDir = logArchiveDir;
+    }
+
     public static TektonGlobalConfiguration get() {
         return GlobalConfiguration.all().get(TektonGlobalConfiguration.class);
     }
@@ -40,6 +80,10 @@ public class TektonGlobalConfiguration extends GlobalConfiguration {
     public boolean configure(final StaplerRequest req, final JSONObject formData) {
         Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
          setClusterConfigs(req.bindJSONToList(ClusterConfig.class, formData.get("clusterConfigs")));
+        JSONObject waitStrategyData = formData.optJSONObject("waitStrategy");
+        setWaitStrategy(waitStrategyData != null ? req.bindJSON(WaitStrategy.class, waitStrategyData) : null);
+        setMaxInFlightRuns(formData.optInt("maxInFlightRuns", 0));
+        setLogArchiveDir(Util.fixEmptyAndTrim(formData.optString("logArchiveDir")));
         save();
         return true;
     }
@@ -0,0 +1,40 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Reads archived logs from a directory laid out as <code>namespace/pod/container.log</code>, e.g. a volume written
+ * by an in-cluster log shipper
+ */
+public class FileLogArchive extends LogArchive {
+    private final File dir;
+
+    public FileLogArchive(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @return the file the log of the container is archived in
+     */
+    public File getLogFile(String ns, String podName, String containerName) {
+        return new File(new File(new File(dir, ns), podName), containerName + ".log");
+    }
+
+    @Override
+    public boolean copyLog(String ns, String podName, String containerName, OutputStream out) throws IOException {
+        File file = getLogFile(ns, podName, containerName);
+        if (!file.isFile()) {
+            return false;
+        }
+        Files.copy(file.toPath(), out);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "FileLogArchive[" + dir + "]";
+    }
+}
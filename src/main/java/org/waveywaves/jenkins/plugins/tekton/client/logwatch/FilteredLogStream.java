@@ -0,0 +1,104 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Passes on the lines of a container log which match the include and exclude patterns, optionally only every
+ * <code>sampleEvery</code>th of them or only the last <code>tailLines</code> of them, and reports how many lines
+ * were omitted once the log has been copied.
+ *
+ * The stream it writes to is not closed as it is shared with the rest of the build. The summary and the tail are
+ * written when this stream is closed so it must only be closed once the whole log has been copied; any line written
+ * after that is passed on unfiltered rather than lost.
+ */
+public class FilteredLogStream extends LineTransformationOutputStream {
+    private final String containerName;
+    private final OutputStream out;
+    private final Pattern include;
+    private final Pattern exclude;
+    private final int sampleEvery;
+    private final int tailLines;
+    private final ArrayDeque<byte[]> tail = new ArrayDeque<>();
+    private long matched;
+    private long omitted;
+    private boolean closed;
+
+    /**
+     * @param containerName the name of the container whose log is filtered
+     * @param out where to write the lines which are kept
+     * @param include only lines matching this pattern are kept, if not null
+     * @param exclude lines matching this pattern are omitted, if not null
+     * @param sampleEvery keeps the first line and every <code>sampleEvery</code>th line after it, if greater than 1
+     * @param tailLines keeps only the last <code>tailLines</code> lines, if greater than 0
+     */
+    public FilteredLogStream(String containerName, OutputStream out, Pattern include, Pattern exclude, int sampleEvery, int tailLines) {
+        this.containerName = containerName;
+        this.out = out;
+        this.include = include;
+        this.exclude = exclude;
+        this.sampleEvery = sampleEvery;
+        this.tailLines = tailLines;
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        if (closed) {
+            out.write(b, 0, len);
+            return;
+        }
+        if (include != null || exclude != null) {
+            String line = trimEOL(new String(b, 0, len, StandardCharsets.UTF_8));
+            if ((include != null && !include.matcher(line).find()) || (exclude != null && exclude.matcher(line).find())) {
+                omitted++;
+                return;
+            }
+        }
+        long index = matched++;
+        if (sampleEvery > 1 && index % sampleEvery != 0) {
+            omitted++;
+            return;
+        }
+        if (tailLines > 0) {
+            tail.add(Arrays.copyOf(b, len));
+            if (tail.size() > tailLines) {
+                tail.poll();
+                omitted++;
+            }
+            return;
+        }
+        out.write(b, 0, len);
+    }
+
+    /**
+     * @return the number of lines omitted so far
+     */
+    public long getOmitted() {
+        return omitted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        forceEol();
+        closed = true;
+        if (omitted > 0) {
+            String message = "[Tekton] Omitted " + omitted + " lines of the log of container " + containerName
+                    + (tailLines > 0 ? ", showing the last " + tail.size() : "") + "\n";
+            out.write(message.getBytes(StandardCharsets.UTF_8));
+        }
+        for (byte[] line : tail) {
+            out.write(line);
+        }
+        tail.clear();
+        out.flush();
+    }
+}
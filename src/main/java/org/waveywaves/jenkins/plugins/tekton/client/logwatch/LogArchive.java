@@ -0,0 +1,27 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+import jenkins.model.Jenkins;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A store of container logs kept outside the cluster, e.g. collected by a sidecar, which is used when the pod of a
+ * TaskRun has already been deleted.
+ *
+ * Plugins can contribute their own archives with <code>@Extension</code>.
+ */
+public abstract class LogArchive implements ExtensionPoint, LogSource {
+
+    /**
+     * @return the archives contributed by plugins
+     */
+    public static List<LogArchive> all() {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return Collections.emptyList();
+        }
+        return ExtensionList.lookup(LogArchive.class);
+    }
+}
@@ -0,0 +1,23 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import java.io.OutputStream;
+
+/**
+ * Filters the log of the containers it applies to before it reaches the console
+ */
+public interface LogFilter {
+
+    /**
+     * @param containerName the name of the container, such as <code>step-build</code>
+     * @return true if the log of the container should be filtered by this filter
+     */
+    boolean appliesTo(String containerName);
+
+    /**
+     * @param containerName the name of the container
+     * @param out where the filtered log is written
+     * @param failed true if the container failed
+     * @return the stream to copy the log into, which is closed once the log has been copied
+     */
+    OutputStream filter(String containerName, OutputStream out, boolean failed);
+}
@@ -0,0 +1,20 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Somewhere the log of a container of a Tekton pod can be read from
+ */
+public interface LogSource {
+
+    /**
+     * @param ns the namespace of the pod
+     * @param podName the name of the pod
+     * @param containerName the name of the container
+     * @param out where to write the log
+     * @return true if this source had the log, false if the next source should be tried
+     * @throws IOException if the log could not be written
+     */
+    boolean copyLog(String ns, String podName, String containerName, OutputStream out) throws IOException;
+}
@@ -0,0 +1,105 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.LogWatch;
+import jenkins.model.Jenkins;
+import org.waveywaves.jenkins.plugins.tekton.client.global.TektonGlobalConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads container logs from the first source which has them: the live pod, then the terminated container, then any
+ * {@link LogArchive} so that logs are not lost when a step finishes quickly or the pod has been deleted
+ */
+public class LogSources implements LogSource {
+    private static final Logger LOGGER = Logger.getLogger(LogSources.class.getName());
+
+    private final List<LogSource> sources;
+
+    public LogSources(List<LogSource> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * @param kubernetesClient the client for the cluster
+     * @return the live pod, the terminated container and then the configured archives
+     */
+    public static LogSources create(KubernetesClient kubernetesClient) {
+        List<LogSource> sources = new ArrayList<>();
+        sources.add(live(kubernetesClient));
+        sources.add(terminated(kubernetesClient));
+        sources.addAll(archives());
+        return new LogSources(sources);
+    }
+
+    /**
+     * @return the archives contributed by plugins and the directory in the global configuration
+     */
+    public static List<LogArchive> archives() {
+        List<LogArchive> answer = new ArrayList<>(LogArchive.all());
+        TektonGlobalConfiguration config = Jenkins.getInstanceOrNull() != null ? TektonGlobalConfiguration.get() : null;
+        if (config != null && !Strings.isNullOrEmpty(config.getLogArchiveDir())) {
+            answer.add(new FileLogArchive(new File(config.getLogArchiveDir())));
+        }
+        return answer;
+    }
+
+    /**
+     * @return the archives only, for when the pod is already gone
+     */
+    public LogSources archivesOnly() {
+        List<LogSource> answer = new ArrayList<>();
+        for (LogSource source : sources) {
+            if (source instanceof LogArchive) {
+                answer.add(source);
+            }
+        }
+        return new LogSources(answer);
+    }
+
+    @Override
+    public boolean copyLog(String ns, String podName, String containerName, OutputStream out) throws IOException {
+        for (LogSource source : sources) {
+            try {
+                if (source.copyLog(ns, podName, containerName, out)) {
+                    return true;
+                }
+            } catch (KubernetesClientException e) {
+                LOGGER.log(Level.FINE, "could not read log of " + ns + "/" + podName + "/" + containerName + " from " + source, e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Follows the log of the container until it ends so that the whole log has been written when this returns
+     */
+    static LogSource live(KubernetesClient kubernetesClient) {
+        return (ns, podName, containerName, out) -> {
+            try (LogWatch watch = kubernetesClient.pods().inNamespace(ns).withName(podName).inContainer(containerName).watchLog()) {
+                return ByteStreams.copy(watch.getOutput(), out) > 0;
+            }
+        };
+    }
+
+    static LogSource terminated(KubernetesClient kubernetesClient) {
+        return (ns, podName, containerName, out) -> {
+            String log = kubernetesClient.pods().inNamespace(ns).withName(podName).inContainer(containerName).terminated().getLog();
+            if (Strings.isNullOrEmpty(log)) {
+                return false;
+            }
+            out.write(log.getBytes(StandardCharsets.UTF_8));
+            return true;
+        };
+    }
+}
@@ -1,16 +1,28 @@
 package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
 
 import com.google.common.base.Strings;
+import io.fabric8.knative.internal.pkg.apis.Condition;
 import io.fabric8.kubernetes.api.model.*;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
 import io.fabric8.tekton.client.TektonClient;
 import io.fabric8.tekton.pipeline.v1beta1.*;
+import org.waveywaves.jenkins.plugins.tekton.client.CancelUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.ResourceNotReadyException;
+import org.waveywaves.jenkins.plugins.tekton.client.build.ConsoleSink;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 public class PipelineRunLogWatch implements Runnable {
@@ -25,13 +37,12 @@ public class PipelineRunLogWatch implements Runnable {
     private KubernetesClient kubernetesClient;
     private TektonClient tektonClient;
     private Exception exception;
+    private WaitStrategy waitStrategy;
+    private TaskRunProgressListener progressListener;
+    private List<? extends LogFilter> logFilters;
+    private LogSources logSources;
     OutputStream consoleLogger;
 
-    //ConcurrentHashMap<String, TaskRun> taskRunsOnWatch = new ConcurrentHashMap<String, TaskRun>();
-    //ConcurrentHashMap<String, Boolean> taskRunsWatchDone = new ConcurrentHashMap<String, Boolean>();
-
-
-
     public PipelineRunLogWatch(KubernetesClient kubernetesClient, TektonClient tektonClient, PipelineRun pipelineRun, OutputStream consoleLogger) {
         this.kubernetesClient = kubernetesClient;
         this.tektonClient = tektonClient;
@@ -46,78 +57,287 @@ public class PipelineRunLogWatch implements Runnable {
         return exception;
     }
 
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public void setProgressListener(TaskRunProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @param logFilters the filters applied to the log of each container of the TaskRuns
+     */
+    public void setLogFilters(List<? extends LogFilter> logFilters) {
+        this.logFilters = logFilters;
+    }
+
+    /**
+     * @param logSources where to read the container logs of the TaskRuns from
+     */
+    public void setLogSources(LogSources logSources) {
+        this.logSources = logSources;
+    }
+
     @Override
     public void run() {
         String pipelineRunName = pipelineRun.getMetadata().getName();
-        String pipelineRunUid = pipelineRun.getMetadata().getUid();
         String ns = pipelineRun.getMetadata().getNamespace();
 
-        List<PipelineTask> pipelineTasks = pipelineRun.getSpec().getPipelineSpec().getTasks();
-
-        for (PipelineTask pt: pipelineTasks){
-            String pipelineTaskName = pt.getName();
-            LOGGER.info("Streaming logs for PipelineTask namespace=" + ns + ", runName=" + pipelineRunName + ", taskName=" + pipelineTaskName);
-            ListOptions lo = new ListOptions();
-            String selector = String.format("%s=%s,%s=%s", PIPELINE_TASK_LABEL_NAME, pipelineTaskName, PIPELINE_RUN_LABEL_NAME, pipelineRunName);
-            lo.setLabelSelector(selector);
-
-            // the tekton operator may not have created the TasksRuns yet so lets wait a little bit for them to show up
-            for (int i = 0; i < 60; i++) {
-                boolean taskComplete = false;
-                List<TaskRun> taskRunList = tektonClient.v1beta1().taskRuns().inNamespace(ns).list(lo).getItems();
-                LOGGER.info("Got " + taskRunList.size() + " TaskRuns");
-                for (TaskRun tr : taskRunList) {
-                    String trName = tr.getMetadata().getName();
-                    if (Strings.isNullOrEmpty(tr.getMetadata().getNamespace())) {
-                        tr.getMetadata().setNamespace(ns);
+        WaitStrategy strategy = WaitStrategy.resolve(waitStrategy);
+        long deadlineNanos = strategy.deadlineFor(pipelineRun);
+        WaitStrategy.Waiter waiter = strategy.newWaiter(deadlineNanos);
+        AtomicReference<PipelineRun> latest = new AtomicReference<>(pipelineRun);
+        Watch taskRunWatch = WaitStrategy.watchQuietly(() -> tektonClient.v1beta1().taskRuns().inNamespace(ns)
+                .withLabel(PIPELINE_RUN_LABEL_NAME, pipelineRunName).watch(waiter.wakeUpOnChange()));
+        Watch pipelineRunWatch = WaitStrategy.watchQuietly(() -> tektonClient.v1beta1().pipelineRuns().inNamespace(ns)
+                .withName(pipelineRunName).watch(new Watcher<PipelineRun>() {
+                    @Override
+                    public void eventReceived(Action action, PipelineRun resource) {
+                        latest.set(resource);
+                        waiter.wakeUp();
                     }
-                    LOGGER.info("streaming logs for TaskRun " + trName);
-
-                    List<OwnerReference> ownerReferences = tr.getMetadata().getOwnerReferences();
-                    for (OwnerReference or : ownerReferences) {
-                        if (or.getUid().equals(pipelineRunUid)) {
-                            LOGGER.info(String.format("Streaming logs for TaskRun %s/%s owned by PipelineRun %s with selector %s", ns, trName, pipelineRunName, selector));
-                            TaskRunLogWatch logWatch = new TaskRunLogWatch(kubernetesClient, tektonClient, tr, consoleLogger);
-                            Thread logWatchTask = new Thread(logWatch);
-                            logWatchTask.start();
-                            try {
-                                logWatchTask.join();
-                            } catch (InterruptedException exception) {
-                                exception.printStackTrace();
-                            }
-                            Exception e = logWatch.getException();
-                            if (e != null) {
-                                LOGGER.info("TaskRun " + trName + " failed");
-                                if (exception == null) {
-                                    exception = e;
-                                }
-                            } else {
-                                LOGGER.info("TaskRun " + trName + " completed");
+
+                    @Override
+                    public void onClose(WatcherException cause) {
+                        waiter.wakeUp();
+                    }
+                }));
+        try {
+            streamChildTaskRuns(latest, pipelineRunWatch != null, waiter, strategy);
+        } finally {
+            WaitStrategy.closeQuietly(taskRunWatch);
+            WaitStrategy.closeQuietly(pipelineRunWatch);
+        }
+    }
+
+    /**
+     * Streams the TaskRuns of the PipelineRun in the order they are created until the PipelineRun completes.
+     *
+     * We follow the TaskRuns we observe rather than the tasks in the pipeline spec so that PipelineRuns using a
+     * <code>pipelineRef</code>, <code>finally</code> tasks and skipped tasks all work without looking up the Pipeline.
+     * Every attempt of a retried TaskRun has its own pod, recorded in <code>status.retriesStatus</code>, so we track
+     * attempts by TaskRun UID and attempt number and stream each attempt's pod exactly once.
+     */
+    private void streamChildTaskRuns(AtomicReference<PipelineRun> latest, boolean watchingPipelineRun, WaitStrategy.Waiter waiter, WaitStrategy strategy) {
+        String pipelineRunName = pipelineRun.getMetadata().getName();
+        String ns = pipelineRun.getMetadata().getNamespace();
+        Set<String> streamedAttempts = new HashSet<>();
+        Set<String> streamedPods = new HashSet<>();
+        // the outcome of the latest attempt of each TaskRun so that a successful retry clears an earlier failure
+        Map<String, Exception> failures = new LinkedHashMap<>();
+
+        try {
+            while (true) {
+                if (!watchingPipelineRun) {
+                    PipelineRun current = tektonClient.v1beta1().pipelineRuns().inNamespace(ns).withName(pipelineRunName).get();
+                    if (current != null) {
+                        latest.set(current);
+                    }
+                }
+                // check before listing so that every attempt of a completed PipelineRun is in the list
+                boolean pipelineRunDone = isDone(latest.get());
+
+                boolean streamedAny = false;
+                for (TaskRun tr : listChildTaskRuns()) {
+                    String trKey = getKey(tr);
+                    List<String> podNames = getAttemptPodNames(tr);
+                    for (int attempt = 0; attempt < podNames.size(); attempt++) {
+                        String attemptKey = trKey + "/" + attempt;
+                        String podName = podNames.get(attempt);
+                        if (streamedAttempts.contains(attemptKey)) {
+                            continue;
+                        }
+                        if (Strings.isNullOrEmpty(podName)) {
+                            // the current attempt has no pod yet, unless it failed before creating one
+                            if (attempt == podNames.size() - 1 && tr.getStatus() != null && CancelUtils.isDone(tr.getStatus().getConditions())) {
+                                streamedAttempts.add(attemptKey);
+                                failures.put(trKey, logTaskRunWithoutPod(tr));
                             }
-                            taskComplete = true;
+                            continue;
                         }
+                        streamedAttempts.add(attemptKey);
+                        if (!streamedPods.add(podName)) {
+                            continue;
+                        }
+                        Exception e = streamAttempt(tr, podName, attempt, waiter, strategy);
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        if (e instanceof ResourceNotReadyException) {
+                            // the PipelineRun cannot complete so lets not wait for it to time out
+                            exception = e;
+                            return;
+                        }
+                        failures.put(trKey, e);
+                        streamedAny = true;
                     }
                 }
-
-                if (taskComplete) {
-                    logMessage("[Tekton] Completed PipelineTask " + pipelineTaskName);
-                    break;
-                } else {
-                    logMessage("[Tekton] Could not find OwnerReference for " + pipelineRunUid);
+                if (streamedAny) {
+                    // more TaskRuns or retries may have started while we were streaming
+                    waiter.reset();
+                    continue;
+                }
+                if (pipelineRunDone) {
+                    logMessage("[Tekton] Completed PipelineRun " + pipelineRunName);
+                    return;
                 }
                 try {
-                    Thread.sleep(1000);
+                    if (!waiter.await()) {
+                        // the PipelineRun is still running so lets not let the build succeed
+                        String message = "Timed out waiting for PipelineRun " + ns + "/" + pipelineRunName;
+                        logMessage("[Tekton] " + message);
+                        exception = new Exception(message);
+                        return;
+                    }
                 } catch (InterruptedException e) {
-                    // ignore
-                    e.printStackTrace();
+                    LOGGER.warning("Interrupted while waiting for PipelineRun " + pipelineRunName);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            for (Exception e : failures.values()) {
+                if (e != null && exception == null) {
+                    exception = e;
+                    break;
                 }
             }
         }
     }
 
+    private static String getKey(TaskRun tr) {
+        String uid = tr.getMetadata().getUid();
+        return !Strings.isNullOrEmpty(uid) ? uid : tr.getMetadata().getName();
+    }
+
+    /**
+     * @return the pod name of each earlier attempt followed by that of the current attempt, which may be empty
+     */
+    static List<String> getAttemptPodNames(TaskRun tr) {
+        List<String> answer = new ArrayList<>();
+        TaskRunStatus status = tr.getStatus();
+        if (status == null) {
+            answer.add("");
+            return answer;
+        }
+        if (status.getRetriesStatus() != null) {
+            for (TaskRunStatus retry : status.getRetriesStatus()) {
+                answer.add(Strings.nullToEmpty(retry.getPodName()));
+            }
+        }
+        answer.add(Strings.nullToEmpty(status.getPodName()));
+        return answer;
+    }
+
+    private Exception logTaskRunWithoutPod(TaskRun tr) {
+        String trName = tr.getMetadata().getName();
+        String message = "TaskRun " + tr.getMetadata().getNamespace() + "/" + trName + " completed without a pod";
+        for (Condition condition : tr.getStatus().getConditions()) {
+            logMessage("[Tekton] TaskRun " + trName + " " + condition.getType() + "/" + condition.getReason() + ": " + condition.getMessage());
+            if ("Succeeded".equalsIgnoreCase(condition.getType()) && "True".equalsIgnoreCase(condition.getStatus())) {
+                return null;
+            }
+        }
+        logMessage("[Tekton] " + message);
+        return new Exception(message);
+    }
+
+    /**
+     * @return the TaskRuns owned by the PipelineRun in the order they were created
+     */
+    private List<TaskRun> listChildTaskRuns() {
+        String pipelineRunName = pipelineRun.getMetadata().getName();
+        String pipelineRunUid = pipelineRun.getMetadata().getUid();
+        String ns = pipelineRun.getMetadata().getNamespace();
+
+        List<TaskRun> answer = new ArrayList<>();
+        List<TaskRun> taskRunList = tektonClient.v1beta1().taskRuns().inNamespace(ns)
+                .withLabel(PIPELINE_RUN_LABEL_NAME, pipelineRunName).list().getItems();
+        LOGGER.fine(() -> "Got " + taskRunList.size() + " TaskRuns for PipelineRun " + pipelineRunName);
+        for (TaskRun tr : taskRunList) {
+            if (Strings.isNullOrEmpty(tr.getMetadata().getNamespace())) {
+                tr.getMetadata().setNamespace(ns);
+            }
+            if (isOwnedBy(tr, pipelineRunUid)) {
+                answer.add(tr);
+            } else {
+                logMessage("[Tekton] Could not find OwnerReference for " + pipelineRunUid + " on TaskRun " + tr.getMetadata().getName());
+            }
+        }
+        // RFC 3339 timestamps sort in time order
+        answer.sort(Comparator.comparing((TaskRun tr) -> Strings.nullToEmpty(tr.getMetadata().getCreationTimestamp()))
+                .thenComparing(tr -> tr.getMetadata().getName()));
+        return answer;
+    }
+
+    private static boolean isOwnedBy(TaskRun tr, String uid) {
+        if (Strings.isNullOrEmpty(uid)) {
+            return true;
+        }
+        List<OwnerReference> ownerReferences = tr.getMetadata().getOwnerReferences();
+        if (ownerReferences != null) {
+            for (OwnerReference or : ownerReferences) {
+                if (uid.equals(or.getUid())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDone(PipelineRun pr) {
+        return pr != null && pr.getStatus() != null && CancelUtils.isDone(pr.getStatus().getConditions());
+    }
+
+    /**
+     * @return the failure of the attempt or null if it succeeded
+     */
+    private Exception streamAttempt(TaskRun tr, String podName, int attempt, WaitStrategy.Waiter waiter, WaitStrategy strategy) {
+        String trName = tr.getMetadata().getName();
+        Map<String, String> labels = tr.getMetadata().getLabels();
+        String pipelineTaskName = labels != null && labels.containsKey(PIPELINE_TASK_LABEL_NAME) ?
+                labels.get(PIPELINE_TASK_LABEL_NAME) : trName;
+        LOGGER.info(String.format("Streaming logs for TaskRun %s/%s of PipelineTask %s attempt %d", tr.getMetadata().getNamespace(), trName, pipelineTaskName, attempt));
+        if (attempt > 0) {
+            logMessage("[Tekton] Retry " + attempt + " of PipelineTask " + pipelineTaskName);
+        }
+
+        TaskRunLogWatch logWatch = new TaskRunLogWatch(kubernetesClient, tektonClient, tr, consoleLogger);
+        logWatch.setWaitStrategy(strategy);
+        logWatch.setDeadlineNanos(waiter.getDeadlineNanos());
+        logWatch.setPodName(podName);
+        logWatch.setLogFilters(logFilters);
+        logWatch.setLogSources(logSources);
+        if (progressListener != null) {
+            progressListener.onTaskRunStarted(pipelineTaskName, trName);
+        }
+        Thread logWatchTask = new Thread(logWatch);
+        logWatchTask.start();
+        try {
+            logWatchTask.join();
+        } catch (InterruptedException interrupted) {
+            LOGGER.warning("Interrupted while streaming logs for TaskRun " + trName);
+            logWatchTask.interrupt();
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        Exception e = logWatch.getException();
+        if (e != null) {
+            LOGGER.info("TaskRun " + trName + " attempt " + attempt + " failed");
+        } else {
+            LOGGER.info("TaskRun " + trName + " attempt " + attempt + " completed");
+        }
+        if (progressListener != null) {
+            progressListener.onTaskRunCompleted(pipelineTaskName, trName, e == null);
+        }
+        logMessage("[Tekton] Completed PipelineTask " + pipelineTaskName);
+        return e;
+    }
+
     protected void logMessage(String text) {
         try {
-            this.consoleLogger.write((text + "\n").getBytes(StandardCharsets.UTF_8));
+            ConsoleSink.writeLine(consoleLogger, text);
         } catch (IOException e) {
             LOGGER.warning("failed to log to console: " + e);
         }
@@ -1,5 +1,6 @@
 package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
 import io.fabric8.knative.internal.pkg.apis.Condition;
 import io.fabric8.kubernetes.api.model.Container;
@@ -11,18 +12,28 @@ import io.fabric8.kubernetes.api.model.OwnerReference;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodStatus;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.dsl.PodResource;
 import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.StepState;
 import io.fabric8.tekton.pipeline.v1beta1.TaskRun;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRunStatus;
+import org.waveywaves.jenkins.plugins.tekton.client.CancelUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.ResourceNotReadyException;
+import org.waveywaves.jenkins.plugins.tekton.client.ResourceReadiness;
 import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils.TektonResourceType;
+import org.waveywaves.jenkins.plugins.tekton.client.build.ConsoleSink;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 
@@ -30,6 +41,7 @@ public class TaskRunLogWatch implements Runnable{
     private static final Logger LOGGER = Logger.getLogger(TaskRunLogWatch.class.getName());
 
     private static final String TASK_RUN_LABEL_NAME = "tekton.dev/taskRun";
+    private static final String STEP_CONTAINER_PREFIX = "step-";
 
     // TODO should be final
     private TaskRun taskRun;
@@ -38,6 +50,11 @@ public class TaskRunLogWatch implements Runnable{
     private TektonClient tektonClient;
 
     private Exception exception;
+    private WaitStrategy waitStrategy;
+    private long deadlineNanos;
+    private String podName;
+    private LogSources logSources;
+    private List<? extends LogFilter> logFilters = Collections.emptyList();
     OutputStream consoleLogger;
 
     public TaskRunLogWatch(KubernetesClient kubernetesClient, TektonClient tektonClient, TaskRun taskRun, OutputStream consoleLogger) {
@@ -54,28 +71,86 @@ public class TaskRunLogWatch implements Runnable{
         return exception;
     }
 
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Lets the owning PipelineRun share its deadline rather than starting a new one per TaskRun
+     *
+     * @param deadlineNanos the absolute deadline in {@link System#nanoTime()} units
+     */
+    public void setDeadlineNanos(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Streams the given pod rather than looking for the pod of the TaskRun, e.g. to stream an earlier attempt of
+     * a retried TaskRun
+     *
+     * @param podName the name of the pod
+     */
+    public void setPodName(String podName) {
+        this.podName = podName;
+    }
+
+    public void setLogSources(LogSources logSources) {
+        this.logSources = logSources;
+    }
+
+    /**
+     * @param logFilters the filters applied to the log of each container, the first which applies is used
+     */
+    public void setLogFilters(List<? extends LogFilter> logFilters) {
+        this.logFilters = logFilters != null ? logFilters : Collections.emptyList();
+    }
+
     @Override
     public void run() {
+        if (logSources == null) {
+            logSources = LogSources.create(kubernetesClient);
+        }
         HashSet<String> runningPhases = Sets.newHashSet("Running", "Succeeded", "Failed");
         String ns = taskRun.getMetadata().getNamespace();
         ListOptions lo = new ListOptions();
         String selector = String.format("%s=%s", TASK_RUN_LABEL_NAME, taskRun.getMetadata().getName());
         lo.setLabelSelector(selector);
+        WaitStrategy strategy = WaitStrategy.resolve(waitStrategy);
+        if (deadlineNanos == 0) {
+            deadlineNanos = strategy.deadlineFor(taskRun);
+        }
+        WaitStrategy.Waiter waiter = strategy.newWaiter(deadlineNanos);
         List<Pod> pods = null;
-        for (int i = 0; i < 60; i++) {
-            pods = kubernetesClient.pods().inNamespace(ns).list(lo).getItems();
-            LOGGER.info("Found " + pods.size() + " pod(s) for taskRun " + taskRun.getMetadata().getName());
-            if (pods.size() > 0) {
-                break;
-            }
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        if (podName != null) {
+            Pod pod = kubernetesClient.pods().inNamespace(ns).withName(podName).get();
+            streamPod(pod != null ? Collections.singletonList(pod) : Collections.emptyList(), waiter, runningPhases);
+            return;
+        }
+        Watch podWatch = WaitStrategy.watchQuietly(() -> kubernetesClient.pods().inNamespace(ns)
+                .withLabel(TASK_RUN_LABEL_NAME, taskRun.getMetadata().getName()).watch(waiter.wakeUpOnChange()));
+        try {
+            while (true) {
+                pods = kubernetesClient.pods().inNamespace(ns).list(lo).getItems();
+                LOGGER.info("Found " + pods.size() + " pod(s) for taskRun " + taskRun.getMetadata().getName());
+                if (pods.size() > 0) {
+                    break;
+                }
+                if (!waiter.await()) {
+                    break;
+                }
             }
+        } catch (InterruptedException e) {
+            LOGGER.warning("Interrupted while waiting for the pod of TaskRun " + taskRun.getMetadata().getName());
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            WaitStrategy.closeQuietly(podWatch);
         }
+        streamPod(pods, waiter, runningPhases);
+    }
 
-
+    private void streamPod(List<Pod> pods, WaitStrategy.Waiter waiter, Set<String> runningPhases) {
+        String ns = taskRun.getMetadata().getNamespace();
         Pod taskRunPod = null;
         String podName = "";
         for (Pod pod : pods) {
@@ -98,12 +173,27 @@ public class TaskRunLogWatch implements Runnable{
             logMessage(String.format("[Tekton] Pod %s/%s", ns, podName));
 
             LOGGER.info("waiting for pod " + ns + "/" + podName + " to start running...");
-            Predicate<Pod> succeededState = i -> (runningPhases.contains(i.getStatus().getPhase()));
+            // lets stop waiting as soon as the pod can never start, e.g. as its image cannot be pulled
+            AtomicReference<String> notReady = new AtomicReference<>();
+            Predicate<Pod> succeededState = i -> {
+                String problem = ResourceReadiness.checkPod(kubernetesClient, i);
+                if (problem != null) {
+                    notReady.set(problem);
+                    return true;
+                }
+                return runningPhases.contains(i.getStatus().getPhase());
+            };
             PodResource<Pod> pr = kubernetesClient.pods().inNamespace(ns).withName(podName);
             try {
-                pr.waitUntilCondition(succeededState,60, TimeUnit.MINUTES);
+                pr.waitUntilCondition(succeededState, Math.max(1, waiter.getRemainingMillis()), TimeUnit.MILLISECONDS);
             } catch ( InterruptedException e) {
-                LOGGER.warning("Interrupted Exception Occurred");
+                LOGGER.warning("Interrupted while waiting for pod " + ns + "/" + podName);
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (notReady.get() != null) {
+                failFast(notReady.get());
+                return;
             }
             logMessage(String.format("[Tekton] Pod %s/%s - Running...", ns, podName));
             List<String> taskRunContainerNames = new ArrayList<String>();
@@ -112,6 +202,7 @@ public class TaskRunLogWatch implements Runnable{
             }
 
             for (String containerName : taskRunContainerNames) {
+                AtomicBoolean failed = new AtomicBoolean();
                 // lets write a little header per container
                 logMessage(String.format("[Tekton] Container %s/%s/%s", ns, podName, containerName));
 
@@ -119,6 +210,11 @@ public class TaskRunLogWatch implements Runnable{
                 LOGGER.info("waiting for pod: " + ns + "/" + podName + " container: " + containerName + " to start:");
 
                 Predicate<Pod> containerRunning = i -> {
+                    String problem = ResourceReadiness.checkPod(kubernetesClient, i);
+                    if (problem != null) {
+                        notReady.set(problem);
+                        return true;
+                    }
                     List<ContainerStatus> statuses = i.getStatus().getContainerStatuses();
                     for (ContainerStatus status : statuses) {
                         if (status.getName().equals(containerName)) {
@@ -128,6 +224,7 @@ public class TaskRunLogWatch implements Runnable{
                                 ContainerStateTerminated terminatedState = state.getTerminated();
                                 if (terminatedState != null && terminatedState.getStartedAt() != null) {
                                     if (terminatedState.getExitCode() != null && terminatedState.getExitCode() != 0) {
+                                        failed.set(true);
                                         logMessage(String.format("[Tekton] Container %s/%s/%s - %s", ns, selectedPodName, containerName, terminatedState.getReason()));
                                     } else {
                                         logMessage(String.format("[Tekton] Container %s/%s/%s - Completed", ns, selectedPodName, containerName));
@@ -141,23 +238,128 @@ public class TaskRunLogWatch implements Runnable{
                     return false;
                 };
                 try {
-                    pr.waitUntilCondition(containerRunning,60, TimeUnit.MINUTES);
+                    pr.waitUntilCondition(containerRunning, Math.max(1, waiter.getRemainingMillis()), TimeUnit.MILLISECONDS);
                 } catch ( InterruptedException e) {
-                    LOGGER.warning("Interrupted Exception Occurred");
+                    LOGGER.warning("Interrupted while waiting for container " + ns + "/" + podName + "/" + containerName);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (notReady.get() != null) {
+                    failFast(notReady.get());
+                    return;
                 }
 
-                pr.inContainer(containerName).watchLog(this.consoleLogger);
+                copyLog(logSources, ns, podName, containerName, failed.get());
+            }
+            Pod latest = pr.get();
+            if (latest != null) {
+                logPodFailures(latest);
+            } else {
+                logMessage(String.format("[Tekton] Pod %s/%s was deleted", ns, podName));
+                checkTaskRunSucceeded(ns, podName);
             }
-            logPodFailures(pr.get());
         } else {
             String message = "no pod could be found for TaskRun " + ns + "/" + taskRun.getMetadata().getName();
             logMessage("[Tekton] " + message);
-            exception = new Exception(message);
 
-            // lets reload to get the latest status
-            taskRun = tektonClient.v1beta1().taskRuns().inNamespace(ns).withName(taskRun.getMetadata().getName()).get();
-            logTaskRunFailure(taskRun);
+            // lets reload to get the latest status and see if the logs were archived before the pod went away
+            TaskRun reloaded = tektonClient.v1beta1().taskRuns().inNamespace(ns).withName(taskRun.getMetadata().getName()).get();
+            if (reloaded == null) {
+                exception = new Exception(message);
+                return;
+            }
+            taskRun = reloaded;
+            TaskRunStatus status = getStatusForPod(taskRun, this.podName);
+            String archivedPodName = this.podName != null ? this.podName : status != null ? status.getPodName() : null;
+            if (!Strings.isNullOrEmpty(archivedPodName) && status != null && status.getSteps() != null) {
+                LogSources archives = logSources.archivesOnly();
+                for (StepState step : status.getSteps()) {
+                    String containerName = STEP_CONTAINER_PREFIX + step.getName();
+                    logMessage(String.format("[Tekton] Container %s/%s/%s (archived)", ns, archivedPodName, containerName));
+                    boolean failed = step.getTerminated() != null && step.getTerminated().getExitCode() != null
+                            && step.getTerminated().getExitCode() != 0;
+                    copyLog(archives, ns, archivedPodName, containerName, failed);
+                }
+            }
+            if (!checkTaskRunSucceeded(ns, archivedPodName)) {
+                logTaskRunFailure(taskRun);
+            }
+        }
+    }
+
+    private void failFast(String problem) {
+        logMessage("[Tekton] " + problem);
+        exception = new ResourceNotReadyException(problem);
+    }
+
+    private void copyLog(LogSource source, String ns, String podName, String containerName, boolean failed) {
+        OutputStream out = filterFor(containerName, failed);
+        try {
+            boolean found;
+            try {
+                found = source.copyLog(ns, podName, containerName, out);
+            } finally {
+                if (out != consoleLogger) {
+                    out.close();
+                }
+                // lets not join the last line of the log onto whatever is written next
+                ConsoleSink.endLine(consoleLogger);
+            }
+            if (!found) {
+                logMessage(String.format("[Tekton] No log could be found for container %s/%s/%s", ns, podName, containerName));
+            }
+        } catch (IOException e) {
+            LOGGER.warning("failed to copy log of " + ns + "/" + podName + "/" + containerName + ": " + e);
+        }
+    }
+
+    private OutputStream filterFor(String containerName, boolean failed) {
+        for (LogFilter filter : logFilters) {
+            if (filter.appliesTo(containerName)) {
+                return filter.filter(containerName, consoleLogger, failed);
+            }
+        }
+        return consoleLogger;
+    }
+
+    /**
+     * Uses the TaskRun status to work out if the attempt which ran in the pod succeeded, for when the pod is gone
+     *
+     * @return true if it succeeded
+     */
+    private boolean checkTaskRunSucceeded(String ns, String podName) {
+        if (taskRun.getStatus() == null || !CancelUtils.isDone(taskRun.getStatus().getConditions())) {
+            TaskRun reloaded = tektonClient.v1beta1().taskRuns().inNamespace(ns).withName(taskRun.getMetadata().getName()).get();
+            if (reloaded != null) {
+                taskRun = reloaded;
+            }
+        }
+        TaskRunStatus status = getStatusForPod(taskRun, podName);
+        if (status != null && status.getConditions() != null) {
+            for (Condition condition : status.getConditions()) {
+                if ("Succeeded".equalsIgnoreCase(condition.getType()) && "True".equalsIgnoreCase(condition.getStatus())) {
+                    return true;
+                }
+            }
         }
+        exception = new Exception("TaskRun " + ns + "/" + taskRun.getMetadata().getName() + " did not succeed in pod " + podName);
+        return false;
+    }
+
+    /**
+     * @return the status of the attempt which ran in the pod, which is an entry of <code>retriesStatus</code> for an
+     *         earlier attempt of a retried TaskRun
+     */
+    static TaskRunStatus getStatusForPod(TaskRun taskRun, String podName) {
+        TaskRunStatus status = taskRun.getStatus();
+        if (status != null && podName != null && status.getRetriesStatus() != null) {
+            for (TaskRunStatus retry : status.getRetriesStatus()) {
+                if (podName.equals(retry.getPodName())) {
+                    return retry;
+                }
+            }
+        }
+        return status;
     }
 
     /**
@@ -193,10 +395,12 @@ public class TaskRunLogWatch implements Runnable{
         PodStatus status = pod.getStatus();
         String phase = status.getPhase();
         String message = "Pod " + ns + "/" + podName + " Status: " + phase;
+        if (!Strings.isNullOrEmpty(status.getReason())) {
+            // e.g. the pod was evicted
+            message += " " + status.getReason() + ": " + status.getMessage();
+        }
         logMessage("[Tekton] " + message);
 
-        // TODO we could try diagnose more information from the failed pod to log
-
         if (!phase.equals("Succeeded")) {
             exception = new Exception(message);
         }
@@ -205,7 +409,7 @@ public class TaskRunLogWatch implements Runnable{
 
     protected void logMessage(String text) {
         try {
-            this.consoleLogger.write((text + "\n").getBytes(StandardCharsets.UTF_8));
+            ConsoleSink.writeLine(consoleLogger, text);
         } catch (IOException e) {
             LOGGER.warning("failed to log to console: " + e);
         }
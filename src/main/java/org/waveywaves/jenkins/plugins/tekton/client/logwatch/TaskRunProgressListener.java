@@ -0,0 +1,20 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+/**
+ * Notified by {@link PipelineRunLogWatch} as the TaskRuns of a PipelineRun start and complete
+ */
+public interface TaskRunProgressListener {
+
+    /**
+     * @param pipelineTaskName the name of the task in the pipeline
+     * @param taskRunName the name of the TaskRun created for the task
+     */
+    void onTaskRunStarted(String pipelineTaskName, String taskRunName);
+
+    /**
+     * @param pipelineTaskName the name of the task in the pipeline
+     * @param taskRunName the name of the TaskRun created for the task
+     * @param succeeded whether the TaskRun completed successfully
+     */
+    void onTaskRunCompleted(String pipelineTaskName, String taskRunName, boolean succeeded);
+}
@@ -0,0 +1,336 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Strings;
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.waveywaves.jenkins.plugins.tekton.client.SerializationUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.global.TektonGlobalConfiguration;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Controls how the log watchers wait for Tekton to create TaskRuns, Pods and containers.
+ *
+ * Polls back off exponentially with some jitter until an overall deadline which defaults to the
+ * <code>timeout</code> of the PipelineRun or TaskRun being watched. A {@link Waiter} can be woken up early
+ * when a watch reports a change so that we don't have to wait for the next poll.
+ */
+public class WaitStrategy extends AbstractDescribableImpl<WaitStrategy> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = Logger.getLogger(WaitStrategy.class.getName());
+
+    private static final Pattern GO_DURATION_PART = Pattern.compile("([0-9]*\\.?[0-9]+)(ns|us|µs|ms|s|m|h)");
+
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 250;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+    public static final double DEFAULT_JITTER = 0.2;
+    public static final long DEFAULT_TIMEOUT_MINUTES = 60;
+
+    private long initialDelayMillis = DEFAULT_INITIAL_DELAY_MILLIS;
+    private long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+    private double multiplier = DEFAULT_MULTIPLIER;
+    private double jitter = DEFAULT_JITTER;
+    private long timeoutMinutes = DEFAULT_TIMEOUT_MINUTES;
+
+    @DataBoundConstructor
+    public WaitStrategy() {
+    }
+
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    @DataBoundSetter
+    public void setInitialDelayMillis(long initialDelayMillis) {
+        this.initialDelayMillis = Math.max(1, initialDelayMillis);
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    @DataBoundSetter
+    public void setMaxDelayMillis(long maxDelayMillis) {
+        this.maxDelayMillis = Math.max(1, maxDelayMillis);
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    @DataBoundSetter
+    public void setMultiplier(double multiplier) {
+        this.multiplier = Math.max(1.0, multiplier);
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    @DataBoundSetter
+    public void setJitter(double jitter) {
+        this.jitter = Math.min(1.0, Math.max(0.0, jitter));
+    }
+
+    /**
+     * @return the deadline used when the resource being watched does not specify a <code>timeout</code>
+     */
+    public long getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    @DataBoundSetter
+    public void setTimeoutMinutes(long timeoutMinutes) {
+        this.timeoutMinutes = Math.max(1, timeoutMinutes);
+    }
+
+    /**
+     * Returns the step level strategy if there is one, otherwise the global strategy or the defaults
+     *
+     * @param stepStrategy the optional strategy configured on the step
+     * @return the strategy to use
+     */
+    public static WaitStrategy resolve(WaitStrategy stepStrategy) {
+        if (stepStrategy != null) {
+            return stepStrategy;
+        }
+        if (Jenkins.getInstanceOrNull() != null) {
+            TektonGlobalConfiguration config = TektonGlobalConfiguration.get();
+            if (config != null && config.getWaitStrategy() != null) {
+                return config.getWaitStrategy();
+            }
+        }
+        return new WaitStrategy();
+    }
+
+    /**
+     * @param resource the PipelineRun or TaskRun being watched
+     * @return the absolute deadline in {@link System#nanoTime()} units for watching the given resource
+     */
+    public long deadlineFor(HasMetadata resource) {
+        long timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        if (resource != null) {
+            JsonNode timeout = SerializationUtils.toTree(resource).path("spec").path("timeout");
+            if (timeout.isTextual()) {
+                long parsed = parseGoDuration(timeout.asText());
+                // a timeout of 0 means no timeout in Tekton so lets keep our own default
+                if (parsed > 0) {
+                    timeoutMillis = parsed;
+                }
+            }
+        }
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Parses a Go style duration such as <code>1h30m</code> or <code>90s</code> as used by Tekton
+     *
+     * @param text the duration text
+     * @return the duration in milliseconds or -1 if it could not be parsed
+     */
+    public static long parseGoDuration(String text) {
+        if (Strings.isNullOrEmpty(text)) {
+            return -1;
+        }
+        String value = text.trim();
+        if (value.equals("0")) {
+            return 0;
+        }
+        Matcher matcher = GO_DURATION_PART.matcher(value);
+        double millis = 0;
+        int end = 0;
+        while (matcher.find()) {
+            if (matcher.start() != end) {
+                break;
+            }
+            end = matcher.end();
+            double amount = Double.parseDouble(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "h":
+                    millis += amount * 3_600_000;
+                    break;
+                case "m":
+                    millis += amount * 60_000;
+                    break;
+                case "s":
+                    millis += amount * 1000;
+                    break;
+                case "ms":
+                    millis += amount;
+                    break;
+                case "us":
+                case "µs":
+                    millis += amount / 1000;
+                    break;
+                default:
+                    millis += amount / 1_000_000;
+                    break;
+            }
+        }
+        if (end == 0 || end != value.length()) {
+            LOGGER.warning("could not parse duration " + text);
+            return -1;
+        }
+        return (long) millis;
+    }
+
+    /**
+     * @param deadlineNanos the absolute deadline in {@link System#nanoTime()} units
+     * @return a new waiter which backs off according to this strategy
+     */
+    public Waiter newWaiter(long deadlineNanos) {
+        return new Waiter(this, deadlineNanos);
+    }
+
+    /**
+     * Opens a watch if the cluster supports it; if not we just fall back to polling
+     *
+     * @param watchFactory creates the watch
+     * @return the watch or null if it could not be opened
+     */
+    public static Watch watchQuietly(Supplier<Watch> watchFactory) {
+        try {
+            return watchFactory.get();
+        } catch (KubernetesClientException e) {
+            LOGGER.log(Level.FINE, "could not open watch so falling back to polling", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param watch the watch to close which may be null
+     */
+    public static void closeQuietly(Watch watch) {
+        if (watch != null) {
+            try {
+                watch.close();
+            } catch (KubernetesClientException e) {
+                LOGGER.log(Level.FINE, "failed to close watch", e);
+            }
+        }
+    }
+
+    /**
+     * Waits between polls, backing off exponentially until either the deadline passes or it is woken up by a watch
+     */
+    public static final class Waiter {
+        private final WaitStrategy strategy;
+        private final long deadlineNanos;
+        private final Object lock = new Object();
+        private long nextDelayMillis;
+        private boolean signalled;
+
+        Waiter(WaitStrategy strategy, long deadlineNanos) {
+            this.strategy = strategy;
+            this.deadlineNanos = deadlineNanos;
+            this.nextDelayMillis = strategy.getInitialDelayMillis();
+        }
+
+        /**
+         * Waits for the next poll
+         *
+         * @return false if the deadline has passed so the caller should stop polling
+         * @throws InterruptedException if the thread is interrupted
+         */
+        public boolean await() throws InterruptedException {
+            long remaining = getRemainingMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            long delay = Math.min(remaining, jittered(nextDelayMillis));
+            nextDelayMillis = Math.min(strategy.getMaxDelayMillis(), (long) (nextDelayMillis * strategy.getMultiplier()));
+            synchronized (lock) {
+                long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                while (!signalled) {
+                    long waitMillis = TimeUnit.NANOSECONDS.toMillis(until - System.nanoTime());
+                    if (waitMillis <= 0) {
+                        break;
+                    }
+                    lock.wait(waitMillis);
+                }
+                signalled = false;
+            }
+            return getRemainingMillis() > 0;
+        }
+
+        /**
+         * Starts backing off from the initial delay again, e.g. when waiting for the next resource
+         */
+        public void reset() {
+            nextDelayMillis = strategy.getInitialDelayMillis();
+        }
+
+        /**
+         * Wakes up any pending {@link #await()} so that the caller polls again straight away
+         */
+        public void wakeUp() {
+            synchronized (lock) {
+                signalled = true;
+                lock.notifyAll();
+            }
+        }
+
+        /**
+         * @return the number of milliseconds left before the deadline
+         */
+        public long getRemainingMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        }
+
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        /**
+         * @return a watcher which wakes up this waiter whenever the watched resources change
+         */
+        public <T> Watcher<T> wakeUpOnChange() {
+            return new Watcher<T>() {
+                @Override
+                public void eventReceived(Action action, T resource) {
+                    wakeUp();
+                }
+
+                @Override
+                public void onClose(WatcherException cause) {
+                    wakeUp();
+                }
+            };
+        }
+
+        private long jittered(long delay) {
+            double jitter = strategy.getJitter();
+            if (jitter <= 0) {
+                return delay;
+            }
+            double factor = 1.0 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+            return Math.max(1, (long) (delay * factor));
+        }
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<WaitStrategy> {
+        @Override
+        public String getDisplayName() {
+            return "wait strategy";
+        }
+    }
+}
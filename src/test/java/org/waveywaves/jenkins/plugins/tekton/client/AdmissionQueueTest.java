@@ -0,0 +1,111 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionQueueTest {
+    private final PrintStream console = new PrintStream(new ByteArrayOutputStream());
+
+    @Test
+    public void testUnlimitedQueueAdmitsImmediately() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue("test");
+
+        AdmissionQueue.Ticket first = queue.acquire("job", 0, 0, console);
+        AdmissionQueue.Ticket second = queue.acquire("job", 0, 0, console);
+        assertThat(queue.getInFlight()).isEqualTo(2);
+
+        queue.release(first);
+        queue.release(second);
+        queue.release(second);
+        assertThat(queue.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void testPriorityAndFairness() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue("test");
+        AdmissionQueue.Ticket busyRunning = queue.acquire("busy", 0, 2, console);
+        AdmissionQueue.Ticket running = queue.acquire("filler", 0, 2, console);
+
+        List<String> admitted = new CopyOnWriteArrayList<>();
+        Thread busy = waiter(queue, "busy", 0, 2, admitted);
+        awaitWaiting(queue, 1);
+        Thread other = waiter(queue, "other", 0, 2, admitted);
+        awaitWaiting(queue, 2);
+        Thread urgent = waiter(queue, "urgent", 10, 2, admitted);
+        awaitWaiting(queue, 3);
+
+        // the busy job already has a run in flight so the other job goes first despite arriving later
+        queue.release(running);
+        for (Thread thread : new Thread[]{busy, other, urgent}) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertThat(admitted).containsExactly("urgent", "other", "busy");
+        queue.release(busyRunning);
+        assertThat(queue.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void testAbortedWaiterLeavesTheQueue() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue("test");
+        AdmissionQueue.Ticket running = queue.acquire("job", 0, 1, console);
+
+        Thread waiter = waiter(queue, "job", 0, 1, new CopyOnWriteArrayList<>());
+        awaitWaiting(queue, 1);
+        waiter.interrupt();
+        waiter.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(queue.getWaiting()).isEqualTo(0);
+        queue.release(running);
+        assertThat(queue.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void testQueueIsDroppedOnceEveryBuildReleasesIt() throws Exception {
+        int queues = AdmissionQueue.getQueueCount();
+        AdmissionQueue first = AdmissionQueue.get("dropped", "test");
+        AdmissionQueue second = AdmissionQueue.get("dropped", "test");
+        assertThat(second).isSameAs(first);
+        assertThat(AdmissionQueue.getQueueCount()).isEqualTo(queues + 1);
+
+        AdmissionQueue.Ticket ticket = first.acquire("job", 0, 1, console);
+        // aborted while waiting so never got a ticket
+        second.release(null);
+        assertThat(AdmissionQueue.getQueueCount()).isEqualTo(queues + 1);
+
+        first.release(ticket);
+        assertThat(AdmissionQueue.getQueueCount()).isEqualTo(queues);
+        AdmissionQueue next = AdmissionQueue.get("dropped", "test");
+        assertThat(next).isNotSameAs(first);
+        next.release(null);
+    }
+
+    private Thread waiter(AdmissionQueue queue, String job, int priority, int maxInFlight, List<String> admitted) {
+        Thread thread = new Thread(() -> {
+            try {
+                AdmissionQueue.Ticket ticket = queue.acquire(job, priority, maxInFlight, console);
+                admitted.add(job);
+                queue.release(ticket);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(AdmissionQueue queue, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (queue.getWaiting() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(queue.getWaiting()).isEqualTo(count);
+    }
+}
@@ -0,0 +1,95 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import io.fabric8.knative.internal.pkg.apis.Condition;
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import io.fabric8.tekton.client.DefaultTektonClient;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRunBuilder;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CancelUtilsTest {
+
+    @Rule
+    public KubernetesServer server = new KubernetesServer();
+
+    @Test
+    public void testCancelRunningPipelineRun() throws Exception {
+        String path = "/apis/tekton.dev/v1beta1/namespaces/test/pipelineruns/testPipelineRun";
+        server.expect().get().withPath(path)
+                .andReturn(HttpURLConnection.HTTP_OK, pipelineRun("Unknown")).always();
+        server.expect().patch().withPath(path)
+                .andReturn(HttpURLConnection.HTTP_OK, pipelineRun("Unknown")).once();
+
+        TektonClient client = new DefaultTektonClient(server.getClient().getConfiguration());
+        boolean cancelled = CancelUtils.cancelPipelineRun(client, "test", "testPipelineRun", 0);
+
+        assertThat(cancelled).isTrue();
+        RecordedRequest request = server.getLastRequest();
+        assertThat(request.getMethod()).isEqualTo("PATCH");
+        assertThat(request.getBody().readUtf8()).contains(CancelUtils.PIPELINE_RUN_CANCELLED);
+    }
+
+    @Test(timeout = 20000)
+    public void testPipelineRunWhichStopsWithinTheGracePeriodIsNotDeleted() throws Exception {
+        String path = "/apis/tekton.dev/v1beta1/namespaces/test/pipelineruns/testPipelineRun";
+        server.expect().get().withPath(path)
+                .andReturn(HttpURLConnection.HTTP_OK, pipelineRun("Unknown")).times(2);
+        server.expect().patch().withPath(path)
+                .andReturn(HttpURLConnection.HTTP_OK, pipelineRun("Unknown")).once();
+        server.expect().get().withPath(path)
+                .andReturn(HttpURLConnection.HTTP_OK, pipelineRun("False")).always();
+
+        TektonClient client = new DefaultTektonClient(server.getClient().getConfiguration());
+        boolean cancelled = CancelUtils.cancelPipelineRun(client, "test", "testPipelineRun", 60);
+
+        assertThat(cancelled).isTrue();
+        assertThat(server.getLastRequest().getMethod()).isEqualTo("GET");
+    }
+
+    @Test
+    public void testCompletedPipelineRunIsNotCancelled() throws Exception {
+        String path = "/apis/tekton.dev/v1beta1/namespaces/test/pipelineruns/testPipelineRun";
+        server.expect().get().withPath(path)
+                .andReturn(HttpURLConnection.HTTP_OK, pipelineRun("True")).always();
+
+        TektonClient client = new DefaultTektonClient(server.getClient().getConfiguration());
+        boolean cancelled = CancelUtils.cancelPipelineRun(client, "test", "testPipelineRun", 0);
+
+        assertThat(cancelled).isFalse();
+        assertThat(server.getLastRequest().getMethod()).isEqualTo("GET");
+    }
+
+    @Test
+    public void testIsDone() {
+        assertThat(CancelUtils.isDone(null)).isFalse();
+        assertThat(CancelUtils.isDone(Collections.singletonList(succeeded("Unknown")))).isFalse();
+        assertThat(CancelUtils.isDone(Collections.singletonList(succeeded("False")))).isTrue();
+        assertThat(CancelUtils.isDone(Collections.singletonList(succeeded("True")))).isTrue();
+    }
+
+    private static PipelineRun pipelineRun(String succeededStatus) {
+        return new PipelineRunBuilder()
+                .withNewMetadata()
+                    .withName("testPipelineRun")
+                    .withNamespace("test")
+                .endMetadata()
+                .withNewSpec()
+                .endSpec()
+                .withNewStatus()
+                    .withConditions(succeeded(succeededStatus))
+                .endStatus()
+                .build();
+    }
+
+    private static Condition succeeded(String status) {
+        return new Condition("lastTransitionTime", "", "", "", status, "Succeeded");
+    }
+}
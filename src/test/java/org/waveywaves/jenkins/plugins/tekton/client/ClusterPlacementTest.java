@@ -0,0 +1,85 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import io.fabric8.kubernetes.api.model.Quantity;
+import org.junit.After;
+import org.junit.Test;
+import org.waveywaves.jenkins.plugins.tekton.client.ClusterPlacement.ClusterState;
+import org.waveywaves.jenkins.plugins.tekton.client.global.ClusterConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClusterPlacementTest {
+
+    @After
+    public void after() {
+        ClusterPlacement.reset();
+    }
+
+    @Test
+    public void testWeightedRoundRobin() {
+        ClusterConfig east = cluster("east", 2);
+        ClusterConfig west = cluster("west", 1);
+        List<ClusterConfig> clusters = Arrays.asList(east, west);
+
+        List<String> chosen = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            chosen.add(ClusterPlacement.chooseWeightedRoundRobin(clusters));
+        }
+
+        assertThat(chosen).containsExactly("east", "west", "east", "east", "west", "east");
+    }
+
+    @Test
+    public void testLeastPendingSpreadsABurst() {
+        ClusterConfig east = cluster("east", 1);
+        ClusterConfig west = cluster("west", 1);
+        Map<String, ClusterState> states = new HashMap<>();
+        states.put("east", new ClusterState(0, 1, 1.0, false));
+        states.put("west", new ClusterState(0, 2, 1.0, false));
+
+        List<String> chosen = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            chosen.add(ClusterPlacement.choose(ClusterPlacement.Strategy.LEAST_PENDING, Arrays.asList(east, west),
+                    cc -> states.get(cc.getName())));
+        }
+
+        assertThat(chosen).containsExactly("east", "east", "west");
+    }
+
+    @Test
+    public void testFailedClustersAreAvoided() {
+        Map<String, ClusterState> states = new HashMap<>();
+        states.put("east", new ClusterState(0, 0, 0, true));
+        states.put("west", new ClusterState(0, 10, 0.1, false));
+
+        String chosen = ClusterPlacement.choose(ClusterPlacement.Strategy.QUOTA_HEADROOM,
+                Arrays.asList(cluster("east", 1), cluster("west", 1)), cc -> states.get(cc.getName()));
+
+        assertThat(chosen).isEqualTo("west");
+    }
+
+    @Test
+    public void testGetHeadroom() {
+        Map<String, Quantity> hard = new HashMap<>();
+        hard.put("pods", new Quantity("10"));
+        hard.put("requests.cpu", new Quantity("4"));
+        Map<String, Quantity> used = new HashMap<>();
+        used.put("pods", new Quantity("5"));
+        used.put("requests.cpu", new Quantity("3"));
+
+        assertThat(ClusterPlacement.getHeadroom(hard, used)).isEqualTo(0.25);
+        assertThat(ClusterPlacement.getHeadroom(null, used)).isEqualTo(1.0);
+    }
+
+    private static ClusterConfig cluster(String name, int weight) {
+        ClusterConfig cc = new ClusterConfig(name, "https://" + name, "default");
+        cc.setWeight(weight);
+        return cc;
+    }
+}
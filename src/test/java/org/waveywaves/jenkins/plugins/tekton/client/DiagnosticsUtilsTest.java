@@ -0,0 +1,64 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DiagnosticsUtilsTest {
+
+    @Test
+    public void testRedactAssignments() {
+        String text = "GIT_TOKEN=abc123\nJOB_NAME=demo\n  dockerPassword: hunter2\n";
+
+        String redacted = DiagnosticsUtils.redact(text);
+
+        assertThat(redacted)
+                .contains("GIT_TOKEN=" + DiagnosticsUtils.REDACTED)
+                .contains("dockerPassword: " + DiagnosticsUtils.REDACTED)
+                .contains("JOB_NAME=demo")
+                .doesNotContain("abc123")
+                .doesNotContain("hunter2");
+    }
+
+    @Test
+    public void testRedactNameValuePairs() {
+        String yaml = "params:\n" +
+                "- name: GITHUB_TOKEN\n" +
+                "  value: abc123\n" +
+                "- name: BUILD_ID\n" +
+                "  value: \"1\"\n";
+
+        String redacted = DiagnosticsUtils.redact(yaml);
+
+        assertThat(redacted).doesNotContain("abc123").contains("value: \"1\"");
+    }
+
+    @Test
+    public void testRedactEnvVars() {
+        Map<String, String> envVars = new HashMap<>();
+        envVars.put("AWS_SECRET_ACCESS_KEY", "abc123");
+        envVars.put("BUILD_ID", "1");
+
+        Map<String, String> redacted = DiagnosticsUtils.redactEnvVars(envVars);
+
+        assertThat(redacted).containsEntry("AWS_SECRET_ACCESS_KEY", DiagnosticsUtils.REDACTED).containsEntry("BUILD_ID", "1");
+        assertThat(DiagnosticsUtils.redactEnvVars(null)).isEmpty();
+    }
+
+    @Test
+    public void testPreviewIsCapped() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < DiagnosticsUtils.PREVIEW_MAX_CHARS + 100; i++) {
+            builder.append('x');
+        }
+
+        String preview = DiagnosticsUtils.preview(builder.toString().getBytes(StandardCharsets.UTF_8));
+
+        assertThat(preview).endsWith("(100 more truncated)");
+        assertThat(preview.length()).isLessThan(DiagnosticsUtils.PREVIEW_MAX_CHARS + 100);
+    }
+}
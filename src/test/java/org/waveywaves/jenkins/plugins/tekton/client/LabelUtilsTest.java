@@ -0,0 +1,58 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import hudson.EnvVars;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LabelUtilsTest {
+
+    @Test
+    public void testBranchNamesKeepTheirPath() {
+        assertThat(LabelUtils.getBranchName("origin/main")).isEqualTo("main");
+        assertThat(LabelUtils.getBranchName("origin/feature/foo")).isEqualTo("feature/foo");
+        assertThat(LabelUtils.getBranchName("refs/heads/bugfix/foo")).isEqualTo("bugfix/foo");
+        assertThat(LabelUtils.getBranchName("refs/remotes/upstream/release/1.x")).isEqualTo("release/1.x");
+        assertThat(LabelUtils.getBranchName("feature/foo")).isEqualTo("feature/foo");
+        assertThat(LabelUtils.getBranchName("")).isNull();
+    }
+
+    @Test
+    public void testBranchLabelsDoNotCollide() {
+        Map<String, String> feature = LabelUtils.buildLabels(new EnvVars("GIT_BRANCH", "origin/feature/foo"));
+        Map<String, String> bugfix = LabelUtils.buildLabels(new EnvVars("GIT_BRANCH", "origin/bugfix/foo"));
+
+        assertThat(feature.get(LabelUtils.BRANCH_LABEL)).isEqualTo("feature-foo");
+        assertThat(bugfix.get(LabelUtils.BRANCH_LABEL)).isEqualTo("bugfix-foo");
+        assertThat(LabelUtils.supersedeSelector(feature)).isNotEqualTo(LabelUtils.supersedeSelector(bugfix));
+    }
+
+    @Test
+    public void testBranchNameIsPreferred() {
+        Map<String, String> labels = LabelUtils.buildLabels(new EnvVars("BRANCH_NAME", "feature/foo", "GIT_BRANCH", "origin/feature/foo"));
+
+        assertThat(labels.get(LabelUtils.BRANCH_LABEL)).isEqualTo("feature-foo");
+    }
+
+    @Test
+    public void testLongBranchNamesAreHashed() {
+        String branch = "feature/" + repeat("very-long-branch-name-", 5);
+        String other = "bugfix/" + repeat("very-long-branch-name-", 5);
+
+        String label = LabelUtils.sanitizeLabelValue(branch);
+
+        assertThat(label).hasSizeLessThanOrEqualTo(63).matches("[A-Za-z0-9]([-A-Za-z0-9_.]*[A-Za-z0-9])?");
+        assertThat(label).isNotEqualTo(LabelUtils.sanitizeLabelValue(other));
+        assertThat(LabelUtils.sanitizeLabelValue(branch + "x")).isNotEqualTo(label);
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PvcTransferTest {
+
+    @Test
+    public void testHelperPodMountsTheClaim() {
+        Pod pod = PvcTransfer.helperPod("source-pvc");
+
+        assertThat(pod.getSpec().getVolumes().get(0).getPersistentVolumeClaim().getClaimName()).isEqualTo("source-pvc");
+        assertThat(pod.getSpec().getContainers().get(0).getVolumeMounts().get(0).getMountPath()).isEqualTo(PvcTransfer.MOUNT_PATH);
+        assertThat(pod.getSpec().getActiveDeadlineSeconds()).isEqualTo(PvcTransfer.ACTIVE_DEADLINE_SECONDS);
+    }
+
+    @Test
+    public void testPaths() {
+        assertThat(PvcTransfer.containerPath(null)).isEqualTo("/workspace");
+        assertThat(PvcTransfer.containerPath("/builds/42/")).isEqualTo("/workspace/builds/42");
+        assertThatThrownBy(() -> PvcTransfer.containerPath("../etc")).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(PvcTransfer.toFindPattern("./target/surefire-reports/*.xml")).isEqualTo("target/surefire-reports/*.xml");
+        assertThat(PvcTransfer.toFindPattern("**/TEST-*.xml")).isEqualTo("*TEST-*.xml");
+    }
+
+    @Test
+    public void testCopiesAreBounded() throws IOException {
+        PvcTransfer.BoundedInputStream in = new PvcTransfer.BoundedInputStream(new ByteArrayInputStream(new byte[100]), 64);
+
+        assertThat(in.read(new byte[50], 0, 50)).isEqualTo(50);
+        assertThatThrownBy(() -> in.read(new byte[50], 0, 50)).isInstanceOf(IOException.class);
+    }
+}
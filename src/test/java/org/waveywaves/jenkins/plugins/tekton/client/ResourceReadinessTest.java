@@ -0,0 +1,151 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaimBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResourceReadinessTest {
+
+    @Rule
+    public KubernetesServer server = new KubernetesServer(false, true);
+
+    @After
+    public void after() {
+        ResourceReadiness.reset();
+    }
+
+    @Test
+    public void testRepeatedImagePullBackOffIsFatalAndCached() {
+        KubernetesClient client = server.getClient();
+        long now = System.currentTimeMillis();
+
+        assertThat(ResourceReadiness.checkPod(client, waitingPod("ErrImagePull", "pull access denied"), now)).isNull();
+        assertThat(ResourceReadiness.checkPod(client, waitingPod("ImagePullBackOff", "Back-off pulling image"), now)).isNull();
+        assertThat(ResourceReadiness.checkPod(client, waitingPod("ErrImagePull", "pull access denied"), now)).isNull();
+        // a transient failure is not remembered for the checks made before other runs are created
+        assertThat(ResourceReadiness.checkImage(client, "test", "example.com/builder:1.0")).isNull();
+
+        assertThat(ResourceReadiness.checkPod(client, waitingPod("ImagePullBackOff", "Back-off pulling image"), now))
+                .isEqualTo("container step-build of pod test/build-pod cannot start: ImagePullBackOff: Back-off pulling image");
+        assertThat(ResourceReadiness.checkImage(client, "test", "example.com/builder:1.0"))
+                .isEqualTo("image example.com/builder:1.0 recently failed to pull: ImagePullBackOff: Back-off pulling image");
+        assertThat(ResourceReadiness.checkImage(client, "other", "example.com/builder:1.0")).isNull();
+    }
+
+    @Test
+    public void testTransientFailureIsFatalOnceItPersists() {
+        KubernetesClient client = server.getClient();
+        long now = System.currentTimeMillis();
+        Pod pod = waitingPod("CreateContainerConfigError", "secret \"registry\" not found");
+
+        assertThat(ResourceReadiness.checkPod(client, pod, now)).isNull();
+        assertThat(ResourceReadiness.checkPod(client, pod, now + ResourceReadiness.TRANSIENT_FAILURE_MILLIS - 1)).isNull();
+        assertThat(ResourceReadiness.checkPod(client, pod, now + ResourceReadiness.TRANSIENT_FAILURE_MILLIS))
+                .isEqualTo("container step-build of pod test/build-pod cannot start: CreateContainerConfigError: secret \"registry\" not found");
+    }
+
+    @Test
+    public void testRecoveredContainerStartsWaitingAgain() {
+        KubernetesClient client = server.getClient();
+        long now = System.currentTimeMillis();
+
+        assertThat(ResourceReadiness.checkPod(client, waitingPod("ImagePullBackOff", "Back-off pulling image"), now)).isNull();
+        assertThat(ResourceReadiness.checkPod(client, waitingPod("ContainerCreating", null), now)).isNull();
+        assertThat(ResourceReadiness.checkPod(client, waitingPod("ImagePullBackOff", "Back-off pulling image"),
+                now + ResourceReadiness.TRANSIENT_FAILURE_MILLIS - 1)).isNull();
+    }
+
+    @Test
+    public void testInvalidImageNameIsFatalStraightAway() {
+        assertThat(ResourceReadiness.checkPod(server.getClient(), waitingPod("InvalidImageName", "couldn't parse image reference")))
+                .isEqualTo("container step-build of pod test/build-pod cannot start: InvalidImageName: couldn't parse image reference");
+    }
+
+    @Test
+    public void testContainerCreatingIsNotFatal() {
+        Pod pod = new PodBuilder()
+                .withNewMetadata().withName("build-pod").withNamespace("test").endMetadata()
+                .withNewStatus().withPhase("Pending")
+                .addNewContainerStatus().withName("step-build").withImage("maven:3")
+                .withNewState().withNewWaiting().withReason("ContainerCreating").endWaiting().endState()
+                .endContainerStatus()
+                .endStatus()
+                .build();
+
+        assertThat(ResourceReadiness.checkPod(server.getClient(), pod)).isNull();
+    }
+
+    @Test
+    public void testImageReferences() {
+        KubernetesClient client = server.getClient();
+
+        assertThat(ResourceReadiness.checkImage(client, "test", "maven:3.8-openjdk-11")).isNull();
+        assertThat(ResourceReadiness.checkImage(client, "test", "localhost:5000/team/app@sha256:"
+                + "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef")).isNull();
+        assertThat(ResourceReadiness.checkImage(client, "test", "$(params.image)")).isNull();
+        assertThat(ResourceReadiness.checkImage(client, "test", "Team/App:latest"))
+                .isEqualTo("image Team/App:latest is not a valid image reference");
+    }
+
+    @Test
+    public void testUnschedulablePodWithMissingClaim() {
+        KubernetesClient client = server.getClient();
+        client.persistentVolumeClaims().inNamespace("test").create(new PersistentVolumeClaimBuilder()
+                .withNewMetadata().withName("cache").withNamespace("test").endMetadata()
+                .withNewStatus().withPhase("Bound").endStatus()
+                .build());
+        Pod pod = new PodBuilder()
+                .withNewMetadata().withName("build-pod").withNamespace("test").endMetadata()
+                .withNewSpec()
+                .addNewVolume().withName("cache").withNewPersistentVolumeClaim().withClaimName("cache").endPersistentVolumeClaim().endVolume()
+                .addNewVolume().withName("source").withNewPersistentVolumeClaim().withClaimName("source").endPersistentVolumeClaim().endVolume()
+                .endSpec()
+                .withNewStatus().withPhase("Pending")
+                .addNewCondition().withType("PodScheduled").withStatus("False").withReason("Unschedulable").endCondition()
+                .endStatus()
+                .build();
+
+        assertThat(ResourceReadiness.checkPod(client, pod))
+                .isEqualTo("pod test/build-pod cannot be scheduled: PersistentVolumeClaim test/source does not exist");
+        assertThat(ResourceReadiness.preflight(client, "test", Collections.singletonList("maven:3"), Arrays.asList("cache", "source")))
+                .containsExactly("PersistentVolumeClaim test/source does not exist");
+    }
+
+    @Test
+    public void testClaimStateIsCached() {
+        KubernetesClient client = server.getClient();
+        client.persistentVolumeClaims().inNamespace("test").create(new PersistentVolumeClaimBuilder()
+                .withNewMetadata().withName("source").withNamespace("test").endMetadata()
+                .withNewStatus().withPhase("Lost").endStatus()
+                .build());
+
+        assertThat(ResourceReadiness.checkClaim(client, "test", "source"))
+                .isEqualTo("PersistentVolumeClaim test/source has lost its PersistentVolume");
+
+        client.persistentVolumeClaims().inNamespace("test").withName("source").delete();
+
+        assertThat(ResourceReadiness.checkClaim(client, "test", "source"))
+                .isEqualTo("PersistentVolumeClaim test/source has lost its PersistentVolume");
+    }
+
+    private static Pod waitingPod(String reason, String message) {
+        return new PodBuilder()
+                .withNewMetadata().withName("build-pod").withNamespace("test").endMetadata()
+                .withNewStatus().withPhase("Pending")
+                .addNewContainerStatus().withName("step-build").withImage("example.com/builder:1.0")
+                .withNewState().withNewWaiting().withReason(reason).withMessage(message).endWaiting().endState()
+                .endContainerStatus()
+                .endStatus()
+                .build();
+    }
+}
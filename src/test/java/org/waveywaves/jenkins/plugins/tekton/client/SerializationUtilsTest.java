@@ -0,0 +1,36 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SerializationUtilsTest {
+
+    @Test
+    public void testYamlRoundTrip() throws Exception {
+        String yaml = "apiVersion: tekton.dev/v1beta1\n" +
+                "kind: PipelineRun\n" +
+                "metadata:\n" +
+                "  name: home-is-set-1234\n" +
+                "spec:\n" +
+                "  pipelineRef:\n" +
+                "    name: home-is-set\n" +
+                "  params:\n" +
+                "  - name: BUILD_ID\n" +
+                "    value: \"1\"\n";
+
+        PipelineRun pipelineRun = SerializationUtils.readYaml(yaml.getBytes(StandardCharsets.UTF_8), PipelineRun.class);
+        assertThat(pipelineRun.getMetadata().getName()).isEqualTo("home-is-set-1234");
+        assertThat(pipelineRun.getSpec().getPipelineRef().getName()).isEqualTo("home-is-set");
+        assertThat(pipelineRun.getSpec().getParams().get(0).getValue().getStringVal()).isEqualTo("1");
+
+        String output = SerializationUtils.toYaml(pipelineRun);
+        assertThat(output).doesNotStartWith("---").contains("name: \"home-is-set-1234\"");
+
+        PipelineRun reloaded = SerializationUtils.readYaml(output.getBytes(StandardCharsets.UTF_8), PipelineRun.class);
+        assertThat(reloaded).isEqualTo(pipelineRun);
+    }
+}
@@ -0,0 +1,109 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import io.fabric8.tekton.client.DefaultTektonClient;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.ArrayOrString;
+import io.fabric8.tekton.pipeline.v1beta1.Param;
+import io.fabric8.tekton.pipeline.v1beta1.TaskBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.TaskSpec;
+import io.fabric8.tekton.pipeline.v1beta1.TaskSpecBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.WorkspaceBinding;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaskDefinitionCacheTest {
+
+    @Rule
+    public KubernetesServer server = new KubernetesServer(false, true);
+
+    @After
+    public void after() {
+        TaskDefinitionCache.reset();
+    }
+
+    @Test
+    public void testValidTaskRun() {
+        List<String> problems = TaskDefinitionCache.validate(taskSpec(),
+                Collections.singletonList(param("url")),
+                Collections.singletonList(workspace("source")));
+
+        assertThat(problems).isEmpty();
+    }
+
+    @Test
+    public void testInvalidTaskRun() {
+        List<String> problems = TaskDefinitionCache.validate(taskSpec(),
+                Arrays.asList(param("ulr"), param("revision")),
+                Collections.singletonList(workspace("sources")));
+
+        assertThat(problems).containsExactlyInAnyOrder(
+                "param ulr is not declared by the Task which has params [url, revision]",
+                "param url is required by the Task but has no value",
+                "workspace sources is not declared by the Task which has workspaces [source, cache]",
+                "workspace source is required by the Task but is not bound");
+    }
+
+    @Test
+    public void testLookupsAreServedFromTheCache() {
+        TektonClient client = new DefaultTektonClient(server.getClient().getConfiguration());
+        client.v1beta1().tasks().inNamespace("test").create(new TaskBuilder()
+                .withNewMetadata().withName("git-clone").withNamespace("test").endMetadata()
+                .withSpec(taskSpec())
+                .build());
+
+        TaskDefinitionCache cache = TaskDefinitionCache.get("default", client, "test");
+        assertThat(cache.getTaskSpec("git-clone")).isNotNull();
+        assertThat(cache.getTaskSpec("missing")).isNull();
+        assertThat(cache.isSynced()).isTrue();
+
+        int requests = server.getMockServer().getRequestCount();
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.getTaskSpec("git-clone").getParams()).hasSize(2);
+        }
+        assertThat(server.getMockServer().getRequestCount()).isEqualTo(requests);
+    }
+
+    @Test
+    public void testTasksMissingFromTheCacheAreLookedUp() {
+        TektonClient client = new DefaultTektonClient(server.getClient().getConfiguration());
+        TaskDefinitionCache cache = TaskDefinitionCache.get("default", client, "test");
+        assertThat(cache.getTaskSpec("git-clone")).isNull();
+        assertThat(cache.isSynced()).isTrue();
+
+        // created after the list so only the watch or a direct lookup can find it
+        client.v1beta1().tasks().inNamespace("test").create(new TaskBuilder()
+                .withNewMetadata().withName("git-clone").withNamespace("test").endMetadata()
+                .withSpec(taskSpec())
+                .build());
+
+        assertThat(cache.getTaskSpec("git-clone")).isNotNull();
+        assertThat(cache.getTaskSpec("git-clone").getWorkspaces()).hasSize(2);
+    }
+
+    private static TaskSpec taskSpec() {
+        return new TaskSpecBuilder()
+                .addNewParam().withName("url").endParam()
+                .addNewParam().withName("revision").withNewDefault().withStringVal("main").endDefault().endParam()
+                .addNewWorkspace().withName("source").endWorkspace()
+                .addNewWorkspace().withName("cache").withOptional(true).endWorkspace()
+                .build();
+    }
+
+    private static Param param(String name) {
+        return new Param(name, new ArrayOrString("value"));
+    }
+
+    private static WorkspaceBinding workspace(String name) {
+        WorkspaceBinding binding = new WorkspaceBinding();
+        binding.setName(name);
+        return binding;
+    }
+}
@@ -0,0 +1,33 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import org.junit.Test;
+import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils.TektonResourceType;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TektonUtilsTest {
+
+    @Test
+    public void testGetKindFromBytes() {
+        String yaml = "apiVersion: tekton.dev/v1beta1\r\n" +
+                "kind: PipelineRun\r\n" +
+                "metadata:\r\n" +
+                "  name: test\r\n" +
+                "spec:\r\n" +
+                "  params:\r\n" +
+                "  - name: kind\r\n";
+
+        assertThat(TektonUtils.getKindFromBytes(yaml.getBytes(StandardCharsets.UTF_8), "YAML"))
+                .containsExactly(TektonResourceType.pipelinerun);
+    }
+
+    @Test
+    public void testGetKindFromBytesWithoutTrailingNewline() {
+        String yaml = "apiVersion: tekton.dev/v1beta1\nkind: Task";
+
+        assertThat(TektonUtils.getKindFromBytes(yaml.getBytes(StandardCharsets.UTF_8), "YAML"))
+                .containsExactly(TektonResourceType.task);
+    }
+}
@@ -0,0 +1,134 @@
+package org.waveywaves.jenkins.plugins.tekton.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class UrlFetcherTest {
+    private static final String BODY = "apiVersion: tekton.dev/v1beta1\nkind: Task\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    @Before
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/etag", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedResponses.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            fullResponses.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            sendBody(exchange.getResponseBody(), exchange, BODY);
+        });
+        server.createContext("/fresh", exchange -> {
+            fullResponses.incrementAndGet();
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=3600");
+            sendBody(exchange.getResponseBody(), exchange, BODY);
+        });
+        server.createContext("/large", exchange -> {
+            fullResponses.incrementAndGet();
+            sendBody(exchange.getResponseBody(), exchange, BODY + BODY + BODY);
+        });
+        server.start();
+    }
+
+    @After
+    public void after() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRevalidatesWithETag() throws Exception {
+        UrlFetcher fetcher = new UrlFetcher(temporaryFolder.getRoot(), 1024 * 1024, 1024 * 1024);
+
+        assertThat(new String(fetcher.fetch(url("/etag")), StandardCharsets.UTF_8)).isEqualTo(BODY);
+        assertThat(new String(fetcher.fetch(url("/etag")), StandardCharsets.UTF_8)).isEqualTo(BODY);
+
+        assertThat(fullResponses.get()).isEqualTo(1);
+        assertThat(notModifiedResponses.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrentFetchesShareOneResponse() throws Exception {
+        UrlFetcher fetcher = new UrlFetcher(temporaryFolder.getRoot(), 1024 * 1024, 1024 * 1024);
+        URL url = url("/fresh");
+
+        List<Future<byte[]>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> fetcher.fetch(url)));
+            }
+            for (Future<byte[]> future : futures) {
+                assertThat(new String(future.get(), StandardCharsets.UTF_8)).isEqualTo(BODY);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(fullResponses.get()).isEqualTo(1);
+        // the cache entry was written through temporary files which have all been moved into place
+        assertThat(temporaryFolder.getRoot().list()).allMatch(name -> name.endsWith(".body") || name.endsWith(".properties"));
+    }
+
+    @Test
+    public void testFreshResponseIsNotRequestedAgain() throws Exception {
+        UrlFetcher fetcher = new UrlFetcher(temporaryFolder.getRoot(), 1024 * 1024, 1024 * 1024);
+
+        fetcher.fetch(url("/fresh"));
+        assertThat(new String(fetcher.fetch(url("/fresh")), StandardCharsets.UTF_8)).isEqualTo(BODY);
+
+        assertThat(fullResponses.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testResponseSizeLimit() {
+        UrlFetcher fetcher = new UrlFetcher(temporaryFolder.getRoot(), 1024 * 1024, BODY.length());
+
+        assertThatThrownBy(() -> fetcher.fetch(url("/large"))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void testGetMaxAgeMillis() {
+        assertThat(UrlFetcher.getMaxAgeMillis(null)).isEqualTo(0);
+        assertThat(UrlFetcher.getMaxAgeMillis("public, max-age=60")).isEqualTo(60_000);
+        assertThat(UrlFetcher.getMaxAgeMillis("no-cache, max-age=60")).isEqualTo(0);
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    private static void sendBody(OutputStream out, com.sun.net.httpserver.HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        out.write(bytes);
+        out.close();
+    }
+}
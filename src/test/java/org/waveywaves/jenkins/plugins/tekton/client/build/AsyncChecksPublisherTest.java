@@ -0,0 +1,77 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build;
+
+import io.jenkins.plugins.checks.api.ChecksDetails;
+import io.jenkins.plugins.checks.api.ChecksPublisher;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncChecksPublisherTest {
+
+    @Test
+    public void testLatestStateWins() throws Exception {
+        CountDownLatch firstPublishStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstPublish = new CountDownLatch(1);
+        List<String> published = new CopyOnWriteArrayList<>();
+
+        ChecksPublisher delegate = new ChecksPublisher() {
+            @Override
+            public void publish(ChecksDetails details) {
+                if (published.isEmpty()) {
+                    firstPublishStarted.countDown();
+                    try {
+                        releaseFirstPublish.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                published.add(details.getName().orElse(""));
+            }
+        };
+
+        AsyncChecksPublisher publisher = new AsyncChecksPublisher(delegate);
+        publisher.publish(details("first"));
+        assertThat(firstPublishStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        publisher.publish(details("second"));
+        publisher.publish(details("third"));
+        publisher.publish(details("last"));
+        releaseFirstPublish.countDown();
+
+        assertThat(publisher.flush(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(published).containsExactly("first", "last");
+    }
+
+    @Test
+    public void testRetriesFailedPublish() throws Exception {
+        List<String> published = new CopyOnWriteArrayList<>();
+        ChecksPublisher delegate = new ChecksPublisher() {
+            private int calls;
+
+            @Override
+            public void publish(ChecksDetails details) {
+                if (calls++ == 0) {
+                    throw new IllegalStateException("rate limited");
+                }
+                published.add(details.getName().orElse(""));
+            }
+        };
+
+        AsyncChecksPublisher publisher = new AsyncChecksPublisher(delegate);
+        publisher.publish(details("tekton"));
+
+        assertThat(publisher.flush(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(published).containsExactly("tekton");
+    }
+
+    private static ChecksDetails details(String name) {
+        return new ChecksDetails.ChecksDetailsBuilder()
+                .withName(name)
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsoleSinkTest {
+
+    @Test
+    public void testLinesFromConcurrentSourcesAreNotInterleaved() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ConsoleSink sink = new ConsoleSink(console, 1024 * 1024, 1024, 50, 5000);
+
+        List<Thread> threads = new ArrayList<>();
+        for (String name : Arrays.asList("a", "b", "c")) {
+            OutputStream source = sink.newSource("[" + name + "] ");
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        // write each line in two halves so partial lines would show up if they were interleaved
+                        source.write(("line " + i).getBytes(StandardCharsets.UTF_8));
+                        source.write(" done\n".getBytes(StandardCharsets.UTF_8));
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.close();
+
+        String[] lines = new String(console.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(600);
+        for (String line : lines) {
+            assertThat(line).matches("\\[[abc]\\] line \\d+ done");
+        }
+        assertThat(sink.getDroppedLines()).isZero();
+    }
+
+    @Test
+    public void testBinaryOutputPassesThroughUnchanged() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ConsoleSink sink = new ConsoleSink(console);
+
+        byte[] data = {(byte) 0xff, 0x00, (byte) 0xc3, '\n', 0x1b, '[', '0', 'm', '\n'};
+        sink.newSource("").write(data);
+        sink.close();
+
+        assertThat(console.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    public void testMessagesAndPartialLastLine() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ConsoleSink sink = new ConsoleSink(console);
+
+        OutputStream source = sink.newSource("");
+        ConsoleSink.writeLine(source, "[Tekton] Pod test/hello");
+        source.write("no line break".getBytes(StandardCharsets.UTF_8));
+        source.close();
+        sink.close();
+
+        assertThat(new String(console.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("[Tekton] Pod test/hello\nno line break");
+    }
+
+    @Test
+    public void testPartialLinesAreEndedBetweenContainers() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ConsoleSink sink = new ConsoleSink(console);
+
+        OutputStream source = sink.newSource("");
+        source.write("first container".getBytes(StandardCharsets.UTF_8));
+        ConsoleSink.writeLine(source, "[Tekton] Container test/hello/step-two");
+        source.write("second container".getBytes(StandardCharsets.UTF_8));
+        ConsoleSink.endLine(source);
+        ConsoleSink.endLine(source);
+        sink.close();
+
+        assertThat(new String(console.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo("first container\n[Tekton] Container test/hello/step-two\nsecond container\n");
+    }
+
+    @Test
+    public void testLinesAreDroppedAndCountedWhenTheConsoleCannotKeepUp() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        OutputStream slowConsole = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.write(b, off, len);
+            }
+        };
+        ConsoleSink sink = new ConsoleSink(slowConsole, 64, 1, 10, 10);
+
+        OutputStream source = sink.newSource("");
+        for (int i = 0; i < 100; i++) {
+            ConsoleSink.writeLine(source, "some log line " + i);
+        }
+        assertThat(sink.getDroppedLines()).isPositive();
+
+        release.countDown();
+        sink.close();
+
+        String output = new String(written.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(output).contains("[Tekton] dropped ");
+    }
+}
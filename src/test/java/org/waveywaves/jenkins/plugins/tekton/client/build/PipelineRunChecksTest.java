@@ -0,0 +1,35 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PipelineRunChecksTest {
+
+    @Test
+    public void testTableOfTaskRuns() {
+        FakeChecksPublisher publisher = new FakeChecksPublisher();
+        PipelineRunChecks checks = new PipelineRunChecks(publisher, "release");
+        assertThat(checks.toMarkdown()).isEqualTo("Waiting for TaskRuns to start...");
+
+        checks.onTaskRunStarted("build", "release-build");
+        checks.onTaskRunStarted("test", "release-test");
+        checks.onTaskRunCompleted("build", "release-build", true);
+
+        assertThat(checks.toMarkdown()).isEqualTo("| Task | TaskRun | Status |\n" +
+                "| --- | --- | --- |\n" +
+                "| build | release-build | :white_check_mark: Succeeded |\n" +
+                "| test | release-test | :hourglass: Running |\n");
+        assertThat(publisher.getCounter()).isEqualTo(3);
+        publisher.validate();
+    }
+
+    @Test
+    public void testPipesAndLineBreaksDoNotBreakTheTable() {
+        PipelineRunChecks checks = new PipelineRunChecks(new FakeChecksPublisher(), "release");
+
+        checks.onTaskRunCompleted("lint|format", "release|lint\nformat", false);
+
+        assertThat(checks.toMarkdown()).endsWith("| lint\\|format | release\\|lint format | :x: Failed |\n");
+    }
+}
@@ -0,0 +1,29 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrefixedOutputStreamTest {
+
+    @Test
+    public void testClosingWritesThePartialLastLine() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        PrintStream east = new PrintStream(new PrefixedOutputStream(console, "[east] "), true, StandardCharsets.UTF_8.name());
+        PrintStream west = new PrintStream(new PrefixedOutputStream(console, "[west] "), true, StandardCharsets.UTF_8.name());
+
+        east.println("started");
+        east.print("no line break");
+        west.print("also partial");
+        east.close();
+        west.close();
+        console.write("done\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(new String(console.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo("[east] started\n[east] no line break\n[west] also partial\ndone\n");
+    }
+}
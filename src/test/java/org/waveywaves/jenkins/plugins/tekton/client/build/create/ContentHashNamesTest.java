@@ -0,0 +1,113 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineSpec;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineSpecBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRef;
+import io.fabric8.tekton.pipeline.v1beta1.TaskSpec;
+import io.fabric8.tekton.pipeline.v1beta1.TaskSpecBuilder;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ContentHashNamesTest {
+
+    @After
+    public void after() {
+        ContentHashNames.reset();
+    }
+
+    @Test
+    public void testHashedNameDependsOnTheSpec() {
+        String hello = ContentHashNames.hashedName("build", spec("echo hello"));
+
+        assertThat(hello).matches("build-[0-9a-f]{8}");
+        assertThat(ContentHashNames.hashedName("build", spec("echo hello"))).isEqualTo(hello);
+        assertThat(ContentHashNames.hashedName("build", spec("echo goodbye"))).isNotEqualTo(hello);
+    }
+
+    @Test
+    public void testLongNamesAreTruncated() {
+        String name = ContentHashNames.hashedName("a-very-long-task-name-that-goes-on-and-on-and-on-and-on-and-on", spec("echo"));
+
+        assertThat(name).hasSizeLessThanOrEqualTo(ContentHashNames.MAX_NAME_LENGTH);
+        assertThat(name).doesNotContain("--");
+    }
+
+    @Test
+    public void testExistingResourcesAreOnlyCreatedOnce() {
+        AtomicInteger creates = new AtomicInteger();
+
+        assertThat(ContentHashNames.createIfMissing("default", "test", "Task", "build-1234abcd", creates::incrementAndGet)).isTrue();
+        assertThat(ContentHashNames.createIfMissing("default", "test", "Task", "build-1234abcd", creates::incrementAndGet)).isFalse();
+        assertThat(ContentHashNames.createIfMissing("other", "test", "Task", "build-1234abcd", creates::incrementAndGet)).isTrue();
+
+        assertThat(creates.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testForgottenResourcesAreCreatedAgain() {
+        AtomicInteger creates = new AtomicInteger();
+        ContentHashNames names = new ContentHashNames();
+        names.putTaskName("build", "build-1234abcd");
+        names.putPipelineName("release", "release-1234abcd");
+
+        assertThat(ContentHashNames.createIfMissing("default", "test", "Task", "build-1234abcd", creates::incrementAndGet)).isTrue();
+        assertThat(ContentHashNames.createIfMissing("default", "test", "Pipeline", "release-1234abcd", creates::incrementAndGet)).isTrue();
+        assertThat(ContentHashNames.createIfMissing("default", "other", "Task", "build-1234abcd", creates::incrementAndGet)).isTrue();
+
+        // a run in the test namespace could not find the Task
+        names.forgetAll("default", "test");
+
+        assertThat(ContentHashNames.createIfMissing("default", "test", "Task", "build-1234abcd", creates::incrementAndGet)).isTrue();
+        assertThat(ContentHashNames.createIfMissing("default", "test", "Pipeline", "release-1234abcd", creates::incrementAndGet)).isTrue();
+        assertThat(ContentHashNames.createIfMissing("default", "other", "Task", "build-1234abcd", creates::incrementAndGet)).isFalse();
+
+        assertThat(creates.get()).isEqualTo(5);
+    }
+
+    @Test
+    public void testConflictMeansTheResourceExists() {
+        assertThat(ContentHashNames.createIfMissing("default", "test", "Task", "build-1234abcd", () -> {
+            throw new KubernetesClientException("already exists", HttpURLConnection.HTTP_CONFLICT, null);
+        })).isFalse();
+
+        assertThatThrownBy(() -> ContentHashNames.createIfMissing("default", "test", "Task", "deploy-1234abcd", () -> {
+            throw new KubernetesClientException("forbidden", HttpURLConnection.HTTP_FORBIDDEN, null);
+        })).isInstanceOf(KubernetesClientException.class);
+    }
+
+    @Test
+    public void testRewriteReferences() {
+        ContentHashNames names = new ContentHashNames();
+        names.putTaskName("build", "build-1234abcd");
+
+        PipelineSpec spec = new PipelineSpecBuilder()
+                .addNewTask().withName("compile").withNewTaskRef().withName("build").endTaskRef().endTask()
+                .addNewTask().withName("other").withNewTaskRef().withName("lint").endTaskRef().endTask()
+                .addNewFinally().withName("cleanup").withNewTaskRef().withName("build").endTaskRef().endFinally()
+                .build();
+        names.rewrite(spec);
+
+        assertThat(spec.getTasks().get(0).getTaskRef().getName()).isEqualTo("build-1234abcd");
+        assertThat(spec.getTasks().get(1).getTaskRef().getName()).isEqualTo("lint");
+        assertThat(spec.getFinally().get(0).getTaskRef().getName()).isEqualTo("build-1234abcd");
+
+        TaskRef clusterTask = new TaskRef();
+        clusterTask.setKind("ClusterTask");
+        clusterTask.setName("build");
+        names.rewrite(clusterTask);
+        assertThat(clusterTask.getName()).isEqualTo("build");
+    }
+
+    private static TaskSpec spec(String script) {
+        return new TaskSpecBuilder()
+                .addNewStep().withName("run").withImage("alpine").withScript(script).endStep()
+                .build();
+    }
+}
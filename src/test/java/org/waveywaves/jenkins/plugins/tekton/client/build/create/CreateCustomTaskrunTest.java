@@ -0,0 +1,185 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import io.fabric8.kubernetes.api.model.ContainerStateTerminatedBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import io.fabric8.tekton.client.DefaultTektonClient;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.TaskBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRun;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.waveywaves.jenkins.plugins.tekton.client.CancelUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.logwatch.LogSources;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CreateCustomTaskrunTest {
+
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+    public KubernetesServer kubernetesRule = new KubernetesServer(false, true);
+
+    @Rule
+    public TestRule chain =
+            RuleChain.outerRule(kubernetesRule)
+                    .around(jenkinsRule);
+
+    private String clusterName;
+    private TektonClient tektonClient;
+
+    @Before
+    public void before() {
+        // lets use a cluster of our own so the shared Task cache does not hold on to the server of another test
+        clusterName = "custom-taskrun-" + UUID.randomUUID();
+        Config config = kubernetesRule.getClient().getConfiguration();
+        tektonClient = new DefaultTektonClient(config);
+        TektonUtils.getTektonClientMap().put(clusterName, tektonClient);
+        TektonUtils.getKubernetesClientMap().put(clusterName, new DefaultKubernetesClient(config));
+
+        tektonClient.v1beta1().tasks().inNamespace("test").create(new TaskBuilder()
+                .withNewMetadata().withName("hello").withNamespace("test").endMetadata()
+                .withNewSpec().addNewStep().withName("hello").withImage("alpine").endStep().endSpec()
+                .build());
+    }
+
+    @After
+    public void after() {
+        TektonUtils.getTektonClientMap().remove(clusterName);
+        TektonUtils.getKubernetesClientMap().remove(clusterName);
+    }
+
+    @Test
+    public void testSucceededTaskRun() throws Exception {
+        kubernetesRule.getClient().pods().inNamespace("test").create(pod("Succeeded", 0));
+
+        FreeStyleProject p = jenkinsRule.jenkins.createProject(FreeStyleProject.class, "p");
+        p.getBuildersList().add(createTaskRun());
+
+        FreeStyleBuild b = jenkinsRule.assertBuildStatus(Result.SUCCESS, p.scheduleBuild2(0).get());
+
+        String log = JenkinsRule.getLog(b);
+        assertThat(log).contains("Created TaskRun with Name hello-run");
+        assertThat(log).contains("log of step-hello");
+        assertThat(log).contains("[Tekton] Container test/hello-run-pod/step-hello - Completed");
+    }
+
+    @Test
+    public void testFailedTaskRunFailsTheBuild() throws Exception {
+        kubernetesRule.getClient().pods().inNamespace("test").create(pod("Failed", 1));
+
+        FreeStyleProject p = jenkinsRule.jenkins.createProject(FreeStyleProject.class, "p");
+        p.getBuildersList().add(createTaskRun());
+
+        FreeStyleBuild b = jenkinsRule.assertBuildStatus(Result.FAILURE, p.scheduleBuild2(0).get());
+
+        String log = JenkinsRule.getLog(b);
+        assertThat(log).contains("log of step-hello");
+        assertThat(log).contains("[Tekton] Container test/hello-run-pod/step-hello - Error");
+        assertThat(log).contains("[Tekton] TaskRun hello-run failed: Pod test/hello-run-pod Status: Failed");
+    }
+
+    @Test
+    public void testAbortCancelsTheTaskRun() throws Exception {
+        FreeStyleProject p = jenkinsRule.jenkins.createProject(FreeStyleProject.class, "p");
+        p.getBuildersList().add(createTaskRun());
+
+        // no pod is ever created so the step waits until the build is aborted
+        FreeStyleBuild b = p.scheduleBuild2(0).waitForStart();
+        jenkinsRule.waitForMessage("Created TaskRun with Name hello-run", b);
+        b.getExecutor().interrupt();
+        jenkinsRule.assertBuildStatus(Result.ABORTED, jenkinsRule.waitForCompletion(b));
+
+        TaskRun taskRun = tektonClient.v1beta1().taskRuns().inNamespace("test").withName("hello-run").get();
+        assertThat(taskRun).isNotNull();
+        assertThat(taskRun.getSpec().getStatus()).isEqualTo(CancelUtils.TASK_RUN_CANCELLED);
+        assertThat(JenkinsRule.getLog(b)).contains("[Tekton] Build aborted so cancelling TaskRun hello-run");
+    }
+
+    @Test
+    public void testAbortDeletesTheTaskRunAfterTheGracePeriod() throws Exception {
+        CreateCustomTaskrun step = createTaskRun();
+        step.setCancelGracePeriodSeconds(1);
+        FreeStyleProject p = jenkinsRule.jenkins.createProject(FreeStyleProject.class, "p");
+        p.getBuildersList().add(step);
+
+        FreeStyleBuild b = p.scheduleBuild2(0).waitForStart();
+        jenkinsRule.waitForMessage("Created TaskRun with Name hello-run", b);
+        b.getExecutor().interrupt();
+        jenkinsRule.assertBuildStatus(Result.ABORTED, jenkinsRule.waitForCompletion(b));
+
+        // nothing stops the cancelled TaskRun on the mock server so it is deleted once the grace period is over
+        assertThat(tektonClient.v1beta1().taskRuns().inNamespace("test").withName("hello-run").get()).isNull();
+    }
+
+    @Test
+    public void testAbortKeepsTheTaskRunRunning() throws Exception {
+        CreateCustomTaskrun step = createTaskRun();
+        step.setKeepRunningOnAbort(true);
+        FreeStyleProject p = jenkinsRule.jenkins.createProject(FreeStyleProject.class, "p");
+        p.getBuildersList().add(step);
+
+        FreeStyleBuild b = p.scheduleBuild2(0).waitForStart();
+        jenkinsRule.waitForMessage("Created TaskRun with Name hello-run", b);
+        b.getExecutor().interrupt();
+        jenkinsRule.assertBuildStatus(Result.ABORTED, jenkinsRule.waitForCompletion(b));
+
+        TaskRun taskRun = tektonClient.v1beta1().taskRuns().inNamespace("test").withName("hello-run").get();
+        assertThat(taskRun).isNotNull();
+        assertThat(taskRun.getSpec().getStatus()).isNull();
+    }
+
+    private CreateCustomTaskrun createTaskRun() {
+        CreateCustomTaskrun step = new CreateCustomTaskrun("hello-run", null, "test", clusterName,
+                Collections.emptyList(), Collections.emptyList(), "hello");
+        step.setLogSources(new LogSources(Collections.singletonList((ns, podName, containerName, out) -> {
+            out.write(("log of " + containerName + "\n").getBytes(StandardCharsets.UTF_8));
+            return true;
+        })));
+        return step;
+    }
+
+    private static Pod pod(String phase, int exitCode) {
+        return new PodBuilder()
+                .withNewMetadata()
+                    .withName("hello-run-pod")
+                    .withNamespace("test")
+                    .addToLabels("tekton.dev/taskRun", "hello-run")
+                    .addNewOwnerReference()
+                        .withApiVersion("tekton.dev/v1beta1").withKind("TaskRun").withName("hello-run").withUid("hello-run-uid")
+                    .endOwnerReference()
+                .endMetadata()
+                .withNewSpec()
+                    .addNewContainer().withName("step-hello").withImage("alpine").endContainer()
+                .endSpec()
+                .withNewStatus()
+                    .withPhase(phase)
+                    .addNewContainerStatus()
+                        .withName("step-hello")
+                        .withNewState()
+                            .withTerminated(new ContainerStateTerminatedBuilder()
+                                    .withStartedAt("2021-01-01T00:00:00Z")
+                                    .withExitCode(exitCode)
+                                    .withReason(exitCode == 0 ? "Completed" : "Error")
+                                    .build())
+                        .endState()
+                    .endContainerStatus()
+                .endStatus()
+                .build();
+    }
+}
@@ -46,6 +46,7 @@ public class CreateRawMockServerTest {
     @After
     public void after() {
         checksPublisher.validate();
+        ContentHashNames.reset();
     }
 
     @Test
@@ -93,6 +94,104 @@ public class CreateRawMockServerTest {
         assertThat(testTaskList.getItems().size(), is(1));
     }
 
+    @Test
+    public void testContentHashedTaskIsOnlyCreatedOnce() {
+        String testTaskYaml = "apiVersion: tekton.dev/v1beta1\n" +
+                "kind: Task\n" +
+                "metadata:\n" +
+                "  name: testTask\n" +
+                "spec:\n" +
+                "  steps:\n" +
+                "  - image: alpine\n";
+
+        KubernetesClient client = server.getClient();
+        InputStream crdAsInputStream = getClass().getResourceAsStream("/task-crd.yaml");
+        CustomResourceDefinition taskCrd = client.apiextensions().v1beta1().customResourceDefinitions().load(crdAsInputStream).get();
+        MixedOperation<Task, TaskList, Resource<Task>> taskClient = client
+                .customResources(CustomResourceDefinitionContext.fromCrd(taskCrd), Task.class, TaskList.class);
+
+        server.expect().post().withPath("/apis/tekton.dev/v1beta1/namespaces/test/tasks")
+                .andReturn(HttpURLConnection.HTTP_CREATED, new TaskBuilder().build()).once();
+
+        CreateRaw createRaw = new CreateRaw(CreateRaw.InputType.YAML.toString(), testTaskYaml);
+        createRaw.setNamespace(namespace);
+        createRaw.setClusterName(TektonUtils.DEFAULT_CLIENT_KEY);
+        createRaw.setContentHashNames(true);
+        createRaw.setTektonClient(client);
+        createRaw.setTaskClient(taskClient);
+
+        String first = createRaw.createTask(new ByteArrayInputStream(testTaskYaml.getBytes(StandardCharsets.UTF_8)));
+        int requests = server.getMockServer().getRequestCount();
+        String second = createRaw.createTask(new ByteArrayInputStream(testTaskYaml.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(first.startsWith("testTask-"), is(true));
+        assertThat(second, is(first));
+        assertThat(server.getMockServer().getRequestCount(), is(requests));
+    }
+
+    @Test
+    public void testDeletedContentHashedTaskIsCreatedAgain() throws Exception {
+        String testTaskYaml = "apiVersion: tekton.dev/v1beta1\n" +
+                "kind: Task\n" +
+                "metadata:\n" +
+                "  name: testTask\n" +
+                "spec:\n" +
+                "  steps:\n" +
+                "  - image: alpine\n";
+        String testTaskRunYaml = "apiVersion: tekton.dev/v1beta1\n" +
+                "kind: TaskRun\n" +
+                "metadata:\n" +
+                "  name: testTaskRun\n" +
+                "spec:\n" +
+                "  taskRef:\n" +
+                "    name: testTask\n";
+
+        KubernetesClient client = server.getClient();
+        CustomResourceDefinition taskCrd = client.apiextensions().v1beta1().customResourceDefinitions()
+                .load(getClass().getResourceAsStream("/task-crd.yaml")).get();
+        MixedOperation<Task, TaskList, Resource<Task>> taskClient = client
+                .customResources(CustomResourceDefinitionContext.fromCrd(taskCrd), Task.class, TaskList.class);
+        CustomResourceDefinition taskRunCrd = client.apiextensions().v1beta1().customResourceDefinitions()
+                .load(getClass().getResourceAsStream("/taskrun-crd.yaml")).get();
+        MixedOperation<TaskRun, TaskRunList, Resource<TaskRun>> taskRunClient = client
+                .customResources(CustomResourceDefinitionContext.fromCrd(taskRunCrd), TaskRun.class, TaskRunList.class);
+
+        // the Task is deleted from the cluster after it is first created so the TaskRun cannot find it
+        TaskRun failedTaskRun = new TaskRunBuilder()
+                .withNewMetadata().withName("testTaskRun").endMetadata()
+                .withNewStatus()
+                    .withConditions(new Condition("lastTransitionTime", "could not find Task", "CouldntGetTask", "", "False", "Succeeded"))
+                .endStatus()
+                .build();
+        server.expect().post().withPath("/apis/tekton.dev/v1beta1/namespaces/test/tasks")
+                .andReturn(HttpURLConnection.HTTP_CREATED, new TaskBuilder().build()).times(2);
+        server.expect().post().withPath("/apis/tekton.dev/v1beta1/namespaces/test/taskruns")
+                .andReturn(HttpURLConnection.HTTP_CREATED, failedTaskRun).once();
+        server.expect().get().withPath("/apis/tekton.dev/v1beta1/namespaces/test/taskruns/testTaskRun")
+                .andReturn(HttpURLConnection.HTTP_OK, failedTaskRun).once();
+
+        CreateRaw createRaw = new CreateRaw(CreateRaw.InputType.YAML.toString(), testTaskYaml) {
+            @Override
+            public void streamTaskRunLogsToConsole(TaskRun taskRun) {
+                return;
+            }
+        };
+        createRaw.setNamespace(namespace);
+        createRaw.setClusterName(TektonUtils.DEFAULT_CLIENT_KEY);
+        createRaw.setContentHashNames(true);
+        createRaw.setTektonClient(client);
+        createRaw.setTaskClient(taskClient);
+        createRaw.setTaskRunClient(taskRunClient);
+
+        String first = createRaw.createTask(new ByteArrayInputStream(testTaskYaml.getBytes(StandardCharsets.UTF_8)));
+        createRaw.createTaskRun(new ByteArrayInputStream(testTaskRunYaml.getBytes(StandardCharsets.UTF_8)), new EnvVars());
+        int requests = server.getMockServer().getRequestCount();
+        String second = createRaw.createTask(new ByteArrayInputStream(testTaskYaml.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(second, is(first));
+        assertThat(server.getMockServer().getRequestCount(), is(requests + 1));
+    }
+
     @Test
     public void testTaskRunCreate() {
         // Given
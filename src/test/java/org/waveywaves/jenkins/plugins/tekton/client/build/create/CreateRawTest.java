@@ -6,15 +6,21 @@ import hudson.model.Run;
 import io.fabric8.tekton.pipeline.v1beta1.Param;
 import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
 import io.fabric8.tekton.pipeline.v1beta1.PipelineRunBuilder;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.waveywaves.jenkins.plugins.tekton.client.LabelUtils;
 import org.waveywaves.jenkins.plugins.tekton.client.TektonUtils;
+import org.waveywaves.jenkins.plugins.tekton.client.build.AsyncChecksPublisher;
 import org.waveywaves.jenkins.plugins.tekton.client.build.FakeChecksPublisher;
 import org.waveywaves.jenkins.plugins.tekton.client.build.create.mock.CreateRawMock;
 import org.waveywaves.jenkins.plugins.tekton.client.build.create.mock.FakeCreateRaw;
+import org.waveywaves.jenkins.plugins.tekton.client.global.ClusterConfig;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -96,6 +102,22 @@ public class CreateRawTest {
         assertThat(created, is(TektonUtils.TektonResourceType.pipelinerun.toString()));
     }
 
+    @Test
+    public void testFinalCheckIsPublishedWhenFlushed() {
+        String testPipelineRunYaml = "apiVersion: tekton.dev/v1beta1\n" +
+                "kind: PipelineRun\n" +
+                "metadata:\n" +
+                "  name: testPipelineRun\n";
+        CreateRaw createRaw = new CreateRawMock(testPipelineRunYaml, CreateRaw.InputType.YAML.toString());
+        createRaw.setClusterName(TektonUtils.DEFAULT_CLIENT_KEY);
+        createRaw.setChecksPublisher(new AsyncChecksPublisher(checksPublisher));
+        createRaw.runCreate(run, null, null);
+
+        createRaw.flushChecks();
+
+        assertThat(checksPublisher.getCounter(), is(1));
+    }
+
     @Test
     public void testCreateRawWithTektonCatalog() throws Exception {
         String testTaskYaml = "apiVersion: tekton.dev/v1beta1\n" +
@@ -122,6 +144,29 @@ public class CreateRawTest {
         assertThat(created, is(expectedYaml));
     }
 
+    @Test
+    public void testPlacedCopyUsesTheTektonCatalog() throws Exception {
+        String testTaskYaml = "apiVersion: tekton.dev/v1beta1\n" +
+                "kind: Task\n" +
+                "metadata:\n" +
+                "  name: testTask\n";
+        FakeCreateRaw createRaw = new FakeCreateRaw(testTaskYaml, CreateRaw.InputType.YAML.toString());
+        createRaw.setClusterName(TektonUtils.DEFAULT_CLIENT_KEY);
+        createRaw.setEnableCatalog(true);
+        createRaw.setPlacementStrategy("LEAST_PENDING");
+
+        Path tmpDir = Files.createTempDirectory("");
+        FilePath workspace = new FilePath(tmpDir.toFile());
+
+        CreateRaw placed = createRaw.copyForPlacement("east", workspace, new EnvVars("CHEESE", "edam"));
+
+        assertThat(placed.getClusterName(), is("east"));
+        assertThat(placed.isEnableCatalog(), is(true));
+        assertThat(new String(placed.getPreparedInput(), StandardCharsets.UTF_8), is(testTaskYaml +
+                "labels:\n" +
+                "  cheese: edam\n"));
+    }
+
     @Test
     public void testEnhancePipelineWithParams() {
         PipelineRun pr = new PipelineRunBuilder()
@@ -151,6 +196,56 @@ public class CreateRawTest {
         assertThat(getStringValue(params, "PULL_BASE_REF"), is("main"));
         assertThat(getStringValue(params, "REPO_NAME"), is("repo"));
         assertThat(getStringValue(params, "REPO_OWNER"), is("org"));
+
+        Map<String, String> labels = pr.getMetadata().getLabels();
+        assertThat(labels.get(LabelUtils.JOB_LABEL), is("test-tekton-client-main"));
+        assertThat(labels.get(LabelUtils.BUILD_ID_LABEL), is("12"));
+        assertThat(labels.get(LabelUtils.BRANCH_LABEL), is("main"));
+        assertThat(labels.get(LabelUtils.REPO_LABEL), is("repo"));
+    }
+
+    @Test
+    public void testIsOlderBuild() {
+        assertThat(CreateRaw.isOlderBuild("9", "12"), is(true));
+        assertThat(CreateRaw.isOlderBuild("12", "12"), is(false));
+        assertThat(CreateRaw.isOlderBuild("13", "12"), is(false));
+        assertThat(CreateRaw.isOlderBuild(null, "12"), is(false));
+        assertThat(CreateRaw.isOlderBuild("abc", "12"), is(false));
+    }
+
+    @Test
+    public void testResolveClusterNames() {
+        CreateRaw createRaw = new CreateRaw("", CreateRaw.InputType.YAML.toString());
+        assertThat(createRaw.resolveClusterNames().isEmpty(), is(true));
+
+        createRaw.setClusterNames("east, west,east");
+        assertThat(createRaw.resolveClusterNames(), is(Arrays.asList("east", "west")));
+    }
+
+    @Test
+    public void testClusterFanOutQuorum() {
+        List<String> clusters = Arrays.asList("a", "b", "c");
+        assertThat(new ClusterFanOut(null, clusters, 0, null).getRequiredSuccesses(), is(3));
+        assertThat(new ClusterFanOut(null, clusters, 2, null).getRequiredSuccesses(), is(2));
+        assertThat(new ClusterFanOut(null, clusters, 5, null).getRequiredSuccesses(), is(3));
+    }
+
+    @Test
+    public void testClustersWriteTheirOwnResults() {
+        assertThat(CreateRaw.forCluster("results.json", "east"), is("results-east.json"));
+        assertThat(CreateRaw.forCluster("out.d/results", "east"), is("out.d/results-east"));
+        assertThat(CreateRaw.forCluster(".results", "east"), is(".results-east"));
+        assertThat(CreateRaw.forCluster(CreateRaw.RESULTS_DIR, "east"), is("tekton-results-east"));
+    }
+
+    @Test
+    public void testClusterConfigMatchesSelector() {
+        ClusterConfig clusterConfig = new ClusterConfig("east", "https://east", "default");
+        clusterConfig.setLabels("env=ci, region=us-east");
+
+        assertThat(clusterConfig.matches(LabelUtils.parseSelector("env=ci")), is(true));
+        assertThat(clusterConfig.matches(LabelUtils.parseSelector("env=ci,region=us-east")), is(true));
+        assertThat(clusterConfig.matches(LabelUtils.parseSelector("env=prod")), is(false));
     }
 
     private String getStringValue(List<Param> params, String name) {
@@ -7,6 +7,7 @@ import io.fabric8.knative.internal.pkg.apis.Condition;
 import io.fabric8.kubernetes.api.model.ContainerBuilder;
 import io.fabric8.kubernetes.api.model.ContainerStateBuilder;
 import io.fabric8.kubernetes.api.model.ContainerStateTerminatedBuilder;
+import io.fabric8.kubernetes.api.model.ContainerStatus;
 import io.fabric8.kubernetes.api.model.ContainerStatusBuilder;
 import io.fabric8.kubernetes.api.model.OwnerReference;
 import io.fabric8.kubernetes.api.model.Pod;
@@ -337,6 +338,78 @@ public class JenkinsFreestyleTest {
         assertThat(kubernetesRule.getMockServer().getRequestCount(), is(9));
     }
 
+    @Test
+    public void testFreestyleJobStreamsTheLastStepOfATaskRun() throws Exception {
+        TaskRunBuilder taskRunBuilder = new TaskRunBuilder()
+                .withNewMetadata()
+                    .withName("hello-run")
+                    .withNamespace("test")
+                .endMetadata()
+                .withNewStatus()
+                    .withPodName("hello-run-pod")
+                    .withConditions(new Condition("lastTransitionTime","","","","True","Succeeded"))
+                .endStatus();
+
+        kubernetesRule.expect().post().withPath("/apis/tekton.dev/v1beta1/namespaces/test/taskruns")
+                .andReturn(HttpURLConnection.HTTP_OK, taskRunBuilder.build()).once();
+        kubernetesRule.expect().get().withPath("/apis/tekton.dev/v1beta1/namespaces/test/taskruns/hello-run")
+                .andReturn(HttpURLConnection.HTTP_OK, taskRunBuilder.build()).always();
+
+        Pod pod = new PodBuilder()
+                .withNewMetadata()
+                    .withName("hello-run-pod")
+                    .withNamespace("test")
+                    .withOwnerReferences(ownerReference("TaskRun", "hello-run"))
+                .endMetadata()
+                .withNewSpec()
+                    .withContainers(
+                            new ContainerBuilder().withName("step-one").build(),
+                            new ContainerBuilder().withName("step-two").build())
+                .endSpec()
+                .withNewStatus()
+                    .withPhase("Succeeded")
+                    .withContainerStatuses(terminated("step-one"), terminated("step-two"))
+                .endStatus()
+                .build();
+
+        kubernetesRule.expect().get().withPath("/api/v1/namespaces/test/pods?labelSelector=tekton.dev%2FtaskRun%3Dhello-run")
+                .andReturn(HttpURLConnection.HTTP_OK, new PodListBuilder().addToItems(pod).build()).once();
+        kubernetesRule.expect().get().withPath("/api/v1/namespaces/test/pods/hello-run-pod")
+                .andReturn(HttpURLConnection.HTTP_OK, pod).always();
+        kubernetesRule.expect().get().withPath("/api/v1/namespaces/test/pods/hello-run-pod/log?pretty=false&container=step-one&follow=true")
+                .andReturn(HttpURLConnection.HTTP_OK, "output of the first step\n").once();
+        // the last step of the TaskRun ends without a line break
+        kubernetesRule.expect().get().withPath("/api/v1/namespaces/test/pods/hello-run-pod/log?pretty=false&container=step-two&follow=true")
+                .andReturn(HttpURLConnection.HTTP_OK, "output of the last step").once();
+
+        FreeStyleProject p = jenkinsRule.jenkins.createProject(FreeStyleProject.class, "p");
+        p.getBuildersList().add(new CreateRaw("apiVersion: tekton.dev/v1beta1\n"
+                                              + "kind: TaskRun\n"
+                                              + "metadata:\n"
+                                              + "  name: hello-run\n"
+                                              + "  namespace: test\n"
+                                              + "spec:\n"
+                                              + "  taskRef:\n"
+                                              + "    name: hello\n", "YAML"));
+
+        FreeStyleBuild b = jenkinsRule.assertBuildStatus(Result.SUCCESS, p.scheduleBuild2(0).get());
+
+        String log = JenkinsRule.getLog(b);
+        System.out.println(log);
+
+        assertThat(log, containsString("output of the first step\n[Tekton] Container test/hello-run-pod/step-two"));
+        assertThat(log, containsString("output of the last step\n"));
+    }
+
+    private static ContainerStatus terminated(String name) {
+        return new ContainerStatusBuilder()
+                .withName(name)
+                .withState(new ContainerStateBuilder()
+                        .withTerminated(new ContainerStateTerminatedBuilder().withStartedAt("timestamp").withExitCode(0).build())
+                        .build())
+                .build();
+    }
+
     private String contents(String filename) throws IOException {
         return IOUtils.toString(this.getClass().getResourceAsStream(filename), StandardCharsets.UTF_8.name());
     }
@@ -0,0 +1,58 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import com.google.common.io.Files;
+import hudson.FilePath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.waveywaves.jenkins.plugins.tekton.client.CompressionUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReadInputCallableTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testLargeFilesAreCompressed() throws Exception {
+        File file = temporaryFolder.newFile("pipeline.yaml");
+        StringBuilder yaml = new StringBuilder("apiVersion: tekton.dev/v1beta1\nkind: Pipeline\n");
+        for (int i = 0; i < 1000; i++) {
+            yaml.append("# padding line ").append(i).append("\n");
+        }
+        byte[] expected = yaml.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(expected, file);
+
+        byte[] small = new ReadInputCallable(Long.MAX_VALUE).invoke(file, null);
+        assertThat(CompressionUtils.isGzipped(small)).isFalse();
+        assertThat(small).isEqualTo(expected);
+
+        byte[] compressed = new ReadInputCallable(1024).invoke(file, null);
+        assertThat(CompressionUtils.isGzipped(compressed)).isTrue();
+        assertThat(compressed.length).isLessThan(expected.length);
+        assertThat(CompressionUtils.gunzip(compressed)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testReadLocalFile() throws Exception {
+        File file = temporaryFolder.newFile("task.yaml");
+        byte[] expected = "kind: Task\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(expected, file);
+
+        assertThat(ReadInputCallable.read(new FilePath(file))).isEqualTo(expected);
+    }
+
+    @Test
+    public void testMissingFile() {
+        File file = new File(temporaryFolder.getRoot(), "missing.yaml");
+
+        assertThatThrownBy(() -> new ReadInputCallable(Long.MAX_VALUE).invoke(file, null))
+                .isInstanceOf(FileNotFoundException.class);
+    }
+}
@@ -0,0 +1,98 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import io.fabric8.tekton.pipeline.v1beta1.Pipeline;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineTask;
+import io.fabric8.tekton.pipeline.v1beta1.Step;
+import io.fabric8.tekton.pipeline.v1beta1.Task;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResourceCompilerTest {
+
+    @After
+    public void after() {
+        ResourceCompiler.reset();
+    }
+
+    @Test
+    public void testCompileTask() {
+        CreateCustomTask step = createTaskStep("echo hello");
+        step.setNamespace("test");
+
+        Task task = step.toTask();
+
+        assertThat(task.getMetadata().getName()).isEqualTo("hello");
+        assertThat(task.getMetadata().getNamespace()).isEqualTo("test");
+        assertThat(task.getSpec().getParams()).hasSize(1);
+        assertThat(task.getSpec().getParams().get(0).getDefault().getStringVal()).isEqualTo("world");
+        assertThat(task.getSpec().getWorkspaces().get(0).getMountPath()).isEqualTo("/workspace/source");
+        assertThat(task.getSpec().getResults().get(0).getName()).isEqualTo("digest");
+
+        Step s = task.getSpec().getSteps().get(0);
+        assertThat(s.getImage()).isEqualTo("alpine");
+        assertThat(s.getCommand()).containsExactly("sh", "-c");
+        assertThat(s.getArgs()).containsExactly("echo hello");
+        assertThat(s.getEnv().get(0).getName()).isEqualTo("GREETING");
+        assertThat(s.getWorkingDir()).isNull();
+    }
+
+    @Test
+    public void testUnchangedConfigurationIsOnlyCompiledOnce() {
+        Task first = createTaskStep("echo hello").toTask();
+        Task second = createTaskStep("echo hello").toTask();
+        assertThat(ResourceCompiler.cacheSize()).isEqualTo(1);
+
+        // callers get their own copy so they can change it without corrupting the cache
+        assertThat(second).isEqualTo(first).isNotSameAs(first);
+        first.getMetadata().setNamespace("changed");
+        assertThat(createTaskStep("echo hello").toTask().getMetadata().getNamespace()).isNull();
+
+        createTaskStep("echo goodbye").toTask();
+        assertThat(ResourceCompiler.cacheSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCompilePipeline() {
+        TektonPipelineTask clone = new TektonPipelineTask("clone", "git-clone",
+                Collections.singletonList(new TektonParam("url", "$(params.url)")),
+                Collections.singletonList(new TektonPipelineTaskWorkspace("output", "source")),
+                null);
+        TektonPipelineTask build = new TektonPipelineTask("build", "maven",
+                null,
+                Collections.singletonList(new TektonPipelineTaskWorkspace("source", "")),
+                "clone, ");
+        CreateCustomPipeline step = new CreateCustomPipeline("build", Arrays.asList(clone, build));
+        step.setParams(Collections.singletonList(new TektonStringParamSpec("url", "the git URL", null)));
+        step.setWorkspaces(Collections.singletonList(new TektonWorkspaceDecl("source", null, null, null)));
+
+        Pipeline pipeline = step.toPipeline();
+
+        assertThat(pipeline.getSpec().getParams().get(0).getDefault()).isNull();
+        assertThat(pipeline.getSpec().getWorkspaces().get(0).getName()).isEqualTo("source");
+        PipelineTask first = pipeline.getSpec().getTasks().get(0);
+        assertThat(first.getTaskRef().getName()).isEqualTo("git-clone");
+        assertThat(first.getParams().get(0).getValue().getStringVal()).isEqualTo("$(params.url)");
+        assertThat(first.getWorkspaces().get(0).getWorkspace()).isEqualTo("source");
+        PipelineTask second = pipeline.getSpec().getTasks().get(1);
+        assertThat(second.getWorkspaces().get(0).getWorkspace()).isEqualTo("source");
+        assertThat(second.getRunAfter()).containsExactly("clone");
+    }
+
+    private static CreateCustomTask createTaskStep(String arg) {
+        TektonStep step = new TektonStep("echo", "alpine",
+                Collections.singletonList(new TektonArg(arg)),
+                Arrays.asList(new TektonCommandI("sh"), new TektonCommandI("-c")),
+                Collections.singletonList(new TektonEnv("GREETING", "hello")),
+                null, null, "");
+        CreateCustomTask task = new CreateCustomTask("hello", Collections.singletonList(step));
+        task.setParams(Collections.singletonList(new TektonStringParamSpec("name", "", "world")));
+        task.setWorkspaces(Collections.singletonList(new TektonWorkspaceDecl("source", null, "/workspace/source", false)));
+        task.setResults(Collections.singletonList(new TektonTaskResult("digest", "the image digest")));
+        return task;
+    }
+}
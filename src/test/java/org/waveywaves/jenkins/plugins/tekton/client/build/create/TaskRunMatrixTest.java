@@ -0,0 +1,43 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import io.fabric8.knative.internal.pkg.apis.Condition;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaskRunMatrixTest {
+
+    @Test
+    public void testCombinations() {
+        List<Map<String, String>> combinations = TaskRunMatrix.combinations(Arrays.asList(
+                new TektonMatrixAxis("shard", "1, 2,3"),
+                new TektonMatrixAxis("jdk", "11\n17"),
+                new TektonMatrixAxis("empty", "")));
+
+        assertThat(combinations).hasSize(6);
+        assertThat(combinations.get(0)).containsEntry("shard", "1").containsEntry("jdk", "11").doesNotContainKey("empty");
+        assertThat(combinations.get(1)).containsEntry("shard", "1").containsEntry("jdk", "17");
+        assertThat(combinations.get(5)).containsEntry("shard", "3").containsEntry("jdk", "17");
+    }
+
+    @Test
+    public void testNoAxes() {
+        assertThat(TaskRunMatrix.combinations(null)).hasSize(1);
+    }
+
+    @Test
+    public void testIsSucceeded() {
+        assertThat(TaskRunMatrix.isSucceeded(null)).isFalse();
+        assertThat(TaskRunMatrix.isSucceeded(Collections.singletonList(succeeded("True")))).isTrue();
+        assertThat(TaskRunMatrix.isSucceeded(Collections.singletonList(succeeded("False")))).isFalse();
+    }
+
+    private static Condition succeeded(String status) {
+        return new Condition("lastTransitionTime", "", "", "", status, "Succeeded");
+    }
+}
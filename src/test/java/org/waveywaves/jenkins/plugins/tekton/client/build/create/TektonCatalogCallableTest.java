@@ -0,0 +1,82 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import com.google.common.io.Files;
+import org.apache.commons.lang.SystemUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.waveywaves.jenkins.plugins.tekton.client.CompressionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeFalse;
+
+public class TektonCatalogCallableTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final byte[] task = ("apiVersion: tekton.dev/v1beta1\n" +
+            "kind: Task\n" +
+            "metadata:\n" +
+            "  name: testTask\n").getBytes(StandardCharsets.UTF_8);
+
+    @Before
+    public void before() {
+        assumeFalse("the fake binary is a shell script", SystemUtils.IS_OS_WINDOWS);
+    }
+
+    @Test(timeout = 60000)
+    public void testLotsOfOutputDoesNotBlockTheBinary() throws Exception {
+        // more than a pipe buffer on both streams before the binary writes the effective YAML
+        File binary = fakeBinary("i=0\n" +
+                "while [ $i -lt 5000 ]; do\n" +
+                "  echo \"resolving step $i of the pipeline\"\n" +
+                "  echo \"warning: step $i uses the default image\" >&2\n" +
+                "  i=$((i+1))\n" +
+                "done\n" +
+                "cp \"$4\" \"$6\"\n");
+        File workspace = temporaryFolder.newFolder("workspace");
+
+        byte[] effective = new FakeBinaryCallable(binary).invoke(workspace, null);
+
+        assertThat(CompressionUtils.gunzip(effective)).isEqualTo(task);
+    }
+
+    @Test(timeout = 60000)
+    public void testFailingBinary() throws Exception {
+        File binary = fakeBinary("echo \"cannot resolve uses: in step build\" >&2\nexit 1\n");
+        File workspace = temporaryFolder.newFolder("workspace");
+
+        assertThatThrownBy(() -> new FakeBinaryCallable(binary).invoke(workspace, null))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("failed to apply tekton catalog to file ");
+    }
+
+    private File fakeBinary(String script) throws IOException {
+        File binary = temporaryFolder.newFile("jx-pipeline-effective");
+        Files.write(("#!/bin/sh\n" + script).getBytes(StandardCharsets.UTF_8), binary);
+        assertThat(binary.setExecutable(true)).isTrue();
+        return binary;
+    }
+
+    private class FakeBinaryCallable extends TektonCatalogCallable {
+        private final File binary;
+
+        FakeBinaryCallable(File binary) throws IOException {
+            super(Collections.singletonMap("CHEESE", "edam"), task, null);
+            this.binary = binary;
+        }
+
+        @Override
+        String getBinary() {
+            return binary.getPath();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import hudson.EnvVars;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRunBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRunTaskRunStatusBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRun;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRunBuilder;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class TektonResultsTest {
+
+    @Test
+    public void testTaskRunResults() {
+        TaskRun taskRun = new TaskRunBuilder()
+                .withNewStatus()
+                    .addNewTaskResult().withName("image-digest").withValue("sha256:abc\n").endTaskResult()
+                    .addNewTaskResult().withName("tests").withValue("42").endTaskResult()
+                .endStatus()
+                .build();
+
+        Map<String, String> results = TektonResults.fromTaskRun(taskRun);
+
+        assertThat(results).containsExactly(entry("image-digest", "sha256:abc\n"), entry("tests", "42"));
+    }
+
+    @Test
+    public void testPipelineRunResults() {
+        PipelineRun pipelineRun = new PipelineRunBuilder()
+                .withNewStatus()
+                    .addNewPipelineResult().withName("version").withValue("1.2.3").endPipelineResult()
+                    .addToTaskRuns("release-build-x7k2p", new PipelineRunTaskRunStatusBuilder()
+                            .withPipelineTaskName("build")
+                            .withNewStatus()
+                                .addNewTaskResult().withName("digest").withValue("sha256:abc").endTaskResult()
+                            .endStatus()
+                            .build())
+                .endStatus()
+                .build();
+
+        Map<String, String> results = TektonResults.fromPipelineRun(pipelineRun);
+
+        assertThat(results).containsOnly(entry("build.digest", "sha256:abc"), entry("version", "1.2.3"));
+    }
+
+    @Test
+    public void testBuildEnvironment() {
+        TektonResults results = TektonResults.forRun(null);
+        results.putAll(TektonResults.fromTaskRun(new TaskRunBuilder()
+                .withNewStatus()
+                    .addNewTaskResult().withName("image-digest").withValue("sha256:abc\n").endTaskResult()
+                .endStatus()
+                .build()));
+        results.putAll(Collections.singletonMap("build.digest", "sha256:def"));
+
+        EnvVars env = new EnvVars();
+        results.buildEnvironment(null, env);
+
+        assertThat(env).containsEntry("TEKTON_RESULT_IMAGE_DIGEST", "sha256:abc")
+                .containsEntry("TEKTON_RESULT_BUILD_DIGEST", "sha256:def");
+        assertThat(results.get("image-digest")).isEqualTo("sha256:abc\n");
+    }
+}
@@ -0,0 +1,87 @@
+package org.waveywaves.jenkins.plugins.tekton.client.build.create;
+
+import hudson.FilePath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.waveywaves.jenkins.plugins.tekton.client.PvcTransfer;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkspaceSyncTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testManifestRoundTrip() {
+        Map<String, String> hashes = WorkspaceSync.parseManifest("abc  ./src/Main.java\ndef  pom.xml\n\nnot a hash line\n");
+
+        assertThat(hashes).containsOnlyKeys("src/Main.java", "pom.xml");
+        assertThat(WorkspaceSync.parseManifest(WorkspaceSync.formatManifest(hashes))).isEqualTo(hashes);
+    }
+
+    @Test
+    public void testFilesChangedInTheClaimAreSentAgain() {
+        Map<String, WorkspaceSync.FileState> local = new HashMap<>();
+        local.put("pom.xml", new WorkspaceSync.FileState("1", 10));
+        local.put("src/Main.java", new WorkspaceSync.FileState("2", 20));
+        Map<String, String> synced = new HashMap<>();
+        synced.put("pom.xml", "1");
+        synced.put("src/Main.java", "2");
+        synced.put("src/Old.java", "3");
+        // the last run changed src/Main.java and created target/app.jar in the claim
+        Map<String, String> current = new HashMap<>();
+        current.put("pom.xml", "1");
+        current.put("src/Main.java", "changed");
+        current.put("src/Old.java", "3");
+        current.put("target/app.jar", "4");
+
+        assertThat(WorkspaceSync.changedPaths(local, current)).containsExactly("src/Main.java");
+        assertThat(WorkspaceSync.deletedPaths(local, synced, current)).containsExactly("src/Old.java");
+    }
+
+    @Test
+    public void testChunksHaveAboutTheSameSize() {
+        Map<String, WorkspaceSync.FileState> files = new HashMap<>();
+        files.put("a", new WorkspaceSync.FileState("1", 100));
+        files.put("b", new WorkspaceSync.FileState("2", 60));
+        files.put("c", new WorkspaceSync.FileState("3", 50));
+        files.put("d", new WorkspaceSync.FileState("4", 30));
+        files.put("e", new WorkspaceSync.FileState("5", 10));
+
+        List<List<String>> chunks = WorkspaceSync.chunk(files, Arrays.asList("a", "b", "c", "d", "e"), 2);
+
+        assertThat(chunks).containsExactly(Arrays.asList("a", "d"), Arrays.asList("b", "c", "e"));
+        assertThat(WorkspaceSync.chunk(files, Arrays.asList("a"), 4)).hasSize(1);
+    }
+
+    @Test
+    public void testScanAndArchiveTheWorkspace() throws Exception {
+        File dir = tmp.newFolder("workspace");
+        FilePath workspace = new FilePath(dir);
+        workspace.child("src/Main.java").write("class Main {}", "UTF-8");
+        workspace.child("target/Main.class").write("binary", "UTF-8");
+        workspace.child(PvcTransfer.MANIFEST_NAME).write("old manifest", "UTF-8");
+
+        Map<String, WorkspaceSync.FileState> files = workspace.act(new WorkspaceSync.ScanCallable("target/**"));
+
+        assertThat(files).containsOnlyKeys("src/Main.java");
+        assertThat(files.get("src/Main.java").size).isEqualTo(13);
+
+        FilePath archive = new FilePath(new File(workspace.act(new WorkspaceSync.ArchiveCallable(Arrays.asList("src/Main.java")))));
+        try {
+            FilePath extracted = new FilePath(tmp.newFolder("extracted"));
+            archive.untar(extracted, FilePath.TarCompression.GZIP);
+            assertThat(extracted.child("src/Main.java").readToString()).isEqualTo("class Main {}");
+        } finally {
+            archive.delete();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import org.junit.Test;
+import org.waveywaves.jenkins.plugins.tekton.client.build.create.TektonLogFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FilteredLogStreamTest {
+
+    @Test
+    public void testIncludeAndExclude() throws Exception {
+        TektonLogFilter filter = new TektonLogFilter("");
+        filter.setInclude("ERROR|WARN");
+        filter.setExclude("deprecated");
+
+        String output = copy(filter, false, "INFO starting\nWARN deprecated flag\nERROR boom\nWARN disk low\n");
+
+        assertThat(output).isEqualTo("ERROR boom\nWARN disk low\n"
+                + "[Tekton] Omitted 2 lines of the log of container step-build\n");
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        TektonLogFilter filter = new TektonLogFilter("build");
+        filter.setSampleEvery(3);
+
+        String output = copy(filter, false, "1\n2\n3\n4\n5\n6\n7\n");
+
+        assertThat(output).isEqualTo("1\n4\n7\n[Tekton] Omitted 4 lines of the log of container step-build\n");
+    }
+
+    @Test
+    public void testTailUnlessFailed() throws Exception {
+        TektonLogFilter filter = new TektonLogFilter("");
+        filter.setTailLines(2);
+
+        assertThat(copy(filter, false, "1\n2\n3\n4\n"))
+                .isEqualTo("[Tekton] Omitted 2 lines of the log of container step-build, showing the last 2\n3\n4\n");
+        assertThat(copy(filter, true, "1\n2\n3\n4\n")).isEqualTo("1\n2\n3\n4\n");
+    }
+
+    @Test
+    public void testAppliesToStepOrContainerName() {
+        TektonLogFilter filter = new TektonLogFilter("build|test");
+
+        assertThat(filter.appliesTo("step-build")).isTrue();
+        assertThat(filter.appliesTo("step-test")).isTrue();
+        assertThat(filter.appliesTo("step-build-image")).isFalse();
+        assertThat(new TektonLogFilter("step-.*").appliesTo("step-build-image")).isTrue();
+        assertThat(new TektonLogFilter(null).appliesTo("place-tools")).isTrue();
+    }
+
+    private static String copy(TektonLogFilter filter, boolean failed, String log) throws IOException {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        OutputStream out = filter.filter("step-build", console, failed);
+        out.write(log.getBytes(StandardCharsets.UTF_8));
+        out.close();
+        return new String(console.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogSourcesTest {
+
+    private static final String LOG_PATH = "/api/v1/namespaces/test/pods/build-pod/log?pretty=false&container=step-compile";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Rule
+    public KubernetesServer server = new KubernetesServer();
+
+    @Test
+    public void testLiveLogIsCopiedToTheEnd() throws Exception {
+        server.expect().get().withPath(LOG_PATH + "&follow=true")
+                .andReturn(HttpURLConnection.HTTP_OK, "compiling\ncompiled\n").once();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(sources().copyLog("test", "build-pod", "step-compile", out)).isTrue();
+
+        // the whole log has been written by the time copyLog returns
+        assertThat(out.toString("UTF-8")).isEqualTo("compiling\ncompiled\n");
+    }
+
+    @Test
+    public void testEmptyLiveLogFallsThroughToTheTerminatedContainer() throws Exception {
+        server.expect().get().withPath(LOG_PATH + "&follow=true")
+                .andReturn(HttpURLConnection.HTTP_OK, "").once();
+        server.expect().get().withPath(LOG_PATH + "&previous=true")
+                .andReturn(HttpURLConnection.HTTP_OK, "compiled before the restart\n").once();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(sources().copyLog("test", "build-pod", "step-compile", out)).isTrue();
+        assertThat(out.toString("UTF-8")).isEqualTo("compiled before the restart\n");
+    }
+
+    @Test
+    public void testFallsBackToTheArchiveWhenThePodIsGone() throws Exception {
+        server.expect().get().withPath(LOG_PATH + "&follow=true")
+                .andReturn(HttpURLConnection.HTTP_NOT_FOUND, "pods \"build-pod\" not found").always();
+        server.expect().get().withPath(LOG_PATH + "&previous=true")
+                .andReturn(HttpURLConnection.HTTP_NOT_FOUND, "pods \"build-pod\" not found").always();
+        FileLogArchive archive = new FileLogArchive(tmp.getRoot());
+        File logFile = archive.getLogFile("test", "build-pod", "step-compile");
+        assertThat(logFile.getParentFile().mkdirs()).isTrue();
+        Files.write(logFile.toPath(), "compiled\n".getBytes(StandardCharsets.UTF_8));
+
+        LogSources sources = sources();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(sources.copyLog("test", "build-pod", "step-compile", out)).isTrue();
+        assertThat(out.toString("UTF-8")).isEqualTo("compiled\n");
+
+        assertThat(sources.archivesOnly().copyLog("test", "build-pod", "step-test", new ByteArrayOutputStream())).isFalse();
+    }
+
+    private LogSources sources() {
+        KubernetesClient client = server.getClient();
+        return new LogSources(Arrays.asList(LogSources.live(client), LogSources.terminated(client), new FileLogArchive(tmp.getRoot())));
+    }
+}
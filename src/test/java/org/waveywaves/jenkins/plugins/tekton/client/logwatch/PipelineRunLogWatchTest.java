@@ -0,0 +1,159 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import io.fabric8.knative.internal.pkg.apis.Condition;
+import io.fabric8.kubernetes.api.model.ContainerStateTerminatedBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import io.fabric8.tekton.client.DefaultTektonClient;
+import io.fabric8.tekton.client.TektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRunBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRun;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRunBuilder;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRunStatus;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRunStatusBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PipelineRunLogWatchTest {
+
+    @Rule
+    public KubernetesServer server = new KubernetesServer(false, true);
+
+    @Test
+    public void testAttemptPodNamesOfNewTaskRun() {
+        TaskRun taskRun = new TaskRunBuilder().withNewMetadata().withName("build").endMetadata().build();
+
+        assertThat(PipelineRunLogWatch.getAttemptPodNames(taskRun)).containsExactly("");
+    }
+
+    @Test
+    public void testAttemptPodNamesOfRetriedTaskRun() {
+        TaskRunStatus first = new TaskRunStatusBuilder().withPodName("build-pod-1").build();
+        TaskRunStatus second = new TaskRunStatusBuilder().withPodName("build-pod-2").build();
+        TaskRun taskRun = new TaskRunBuilder()
+                .withNewMetadata().withName("build").endMetadata()
+                .withNewStatus()
+                    .withRetriesStatus(first, second)
+                .endStatus()
+                .build();
+
+        // the third attempt has not created its pod yet
+        assertThat(PipelineRunLogWatch.getAttemptPodNames(taskRun)).containsExactly("build-pod-1", "build-pod-2", "");
+
+        taskRun.getStatus().setPodName("build-pod-3");
+        assertThat(PipelineRunLogWatch.getAttemptPodNames(taskRun)).containsExactly("build-pod-1", "build-pod-2", "build-pod-3");
+    }
+
+    @Test
+    public void testChildTaskRunsAreStreamedInCreationOrder() throws Exception {
+        KubernetesClient client = server.getClient();
+        TektonClient tektonClient = new DefaultTektonClient(client.getConfiguration());
+        PipelineRun pipelineRun = new PipelineRunBuilder()
+                .withNewMetadata().withName("release").withNamespace("test").withUid("release-uid").endMetadata()
+                .withNewStatus().withConditions(succeeded()).endStatus()
+                .build();
+        tektonClient.v1beta1().pipelineRuns().inNamespace("test").create(pipelineRun);
+
+        // the names sort the other way round so that only the creation order puts build first
+        tektonClient.v1beta1().taskRuns().inNamespace("test").create(taskRun("z-build", "build", "2021-01-01T10:00:00Z"));
+        tektonClient.v1beta1().taskRuns().inNamespace("test").create(taskRun("m-test", "test", "2021-01-01T10:01:00Z"));
+        tektonClient.v1beta1().taskRuns().inNamespace("test").create(taskRun("a-deploy", "deploy", "2021-01-01T10:02:00Z"));
+        // a TaskRun of another PipelineRun is not streamed
+        TaskRun other = taskRun("b-other", "other", "2021-01-01T09:00:00Z");
+        other.getMetadata().getLabels().put("tekton.dev/pipelineRun", "other");
+        tektonClient.v1beta1().taskRuns().inNamespace("test").create(other);
+        for (String name : new String[]{"z-build", "m-test", "a-deploy", "b-other"}) {
+            client.pods().inNamespace("test").create(pod(name));
+        }
+
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        PipelineRunLogWatch logWatch = new PipelineRunLogWatch(client, tektonClient, pipelineRun, console);
+        logWatch.setLogSources(new LogSources(Collections.singletonList((ns, podName, containerName, out) -> {
+            out.write(("log of " + podName + "\n").getBytes(StandardCharsets.UTF_8));
+            return true;
+        })));
+        logWatch.run();
+
+        String log = new String(console.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(logWatch.getException()).isNull();
+        assertThat(log).doesNotContain("log of b-other-pod");
+        assertThat(log.indexOf("log of z-build-pod")).isNotNegative()
+                .isLessThan(log.indexOf("log of m-test-pod"));
+        assertThat(log.indexOf("log of m-test-pod")).isLessThan(log.indexOf("log of a-deploy-pod"));
+        assertThat(log.indexOf("[Tekton] Completed PipelineTask deploy")).isLessThan(log.indexOf("[Tekton] Completed PipelineRun release"));
+    }
+
+    @Test
+    public void testTimingOutFailsTheWatch() {
+        KubernetesClient client = server.getClient();
+        TektonClient tektonClient = new DefaultTektonClient(client.getConfiguration());
+        // the PipelineRun never completes so the watch gives up at its timeout
+        PipelineRun pipelineRun = new PipelineRunBuilder()
+                .withNewMetadata().withName("release").withNamespace("test").withUid("release-uid").endMetadata()
+                .withNewSpec().withTimeout("1s").endSpec()
+                .build();
+        tektonClient.v1beta1().pipelineRuns().inNamespace("test").create(pipelineRun);
+
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        PipelineRunLogWatch logWatch = new PipelineRunLogWatch(client, tektonClient, pipelineRun, console);
+        logWatch.run();
+
+        assertThat(logWatch.getException()).hasMessage("Timed out waiting for PipelineRun test/release");
+        assertThat(new String(console.toByteArray(), StandardCharsets.UTF_8))
+                .contains("[Tekton] Timed out waiting for PipelineRun test/release\n");
+    }
+
+    private static TaskRun taskRun(String name, String pipelineTask, String creationTimestamp) {
+        return new TaskRunBuilder()
+                .withNewMetadata()
+                    .withName(name)
+                    .withNamespace("test")
+                    .withUid(name + "-uid")
+                    .withCreationTimestamp(creationTimestamp)
+                    .addToLabels("tekton.dev/pipelineRun", "release")
+                    .addToLabels("tekton.dev/pipelineTask", pipelineTask)
+                    .addNewOwnerReference().withKind("PipelineRun").withName("release").withUid("release-uid").endOwnerReference()
+                .endMetadata()
+                .withNewStatus()
+                    .withPodName(name + "-pod")
+                    .withConditions(succeeded())
+                .endStatus()
+                .build();
+    }
+
+    private static Pod pod(String taskRunName) {
+        return new PodBuilder()
+                .withNewMetadata()
+                    .withName(taskRunName + "-pod")
+                    .withNamespace("test")
+                    .addToLabels("tekton.dev/taskRun", taskRunName)
+                    .addNewOwnerReference().withKind("TaskRun").withName(taskRunName).withUid(taskRunName + "-uid").endOwnerReference()
+                .endMetadata()
+                .withNewSpec()
+                    .addNewContainer().withName("step-run").withImage("alpine").endContainer()
+                .endSpec()
+                .withNewStatus()
+                    .withPhase("Succeeded")
+                    .addNewContainerStatus()
+                        .withName("step-run")
+                        .withNewState()
+                            .withTerminated(new ContainerStateTerminatedBuilder().withStartedAt("2021-01-01T10:00:00Z").withExitCode(0).build())
+                        .endState()
+                    .endContainerStatus()
+                .endStatus()
+                .build();
+    }
+
+    private static Condition succeeded() {
+        return new Condition("lastTransitionTime", "", "", "", "True", "Succeeded");
+    }
+}
@@ -0,0 +1,90 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import io.fabric8.kubernetes.api.model.ContainerStateTerminatedBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.PodListBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import io.fabric8.tekton.client.DefaultTektonClient;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRun;
+import io.fabric8.tekton.pipeline.v1beta1.TaskRunBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.waveywaves.jenkins.plugins.tekton.client.build.create.TektonLogFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaskRunLogWatchTest {
+
+    @Rule
+    public KubernetesServer server = new KubernetesServer();
+
+    @Test
+    public void testTailOfTheLiveLogIsWrittenOnceTheLogHasBeenCopied() throws Exception {
+        server.expect().get().withPath("/api/v1/namespaces/test/pods?labelSelector=tekton.dev%2FtaskRun%3Dbuild")
+                .andReturn(HttpURLConnection.HTTP_OK, new PodListBuilder().addToItems(pod()).build()).once();
+        server.expect().get().withPath("/api/v1/namespaces/test/pods/build-pod")
+                .andReturn(HttpURLConnection.HTTP_OK, pod()).always();
+        server.expect().get().withPath("/api/v1/namespaces/test/pods/build-pod/log?pretty=false&container=step-compile&follow=true")
+                .andReturn(HttpURLConnection.HTTP_OK, "compiling 1\ncompiling 2\ncompiling 3\ncompiled\n").once();
+        server.expect().get().withPath("/api/v1/namespaces/test/pods/build-pod/log?pretty=false&container=step-test&follow=true")
+                .andReturn(HttpURLConnection.HTTP_OK, "tested\n").once();
+
+        TektonLogFilter filter = new TektonLogFilter("compile");
+        filter.setTailLines(2);
+        KubernetesClient client = server.getClient();
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        TaskRun taskRun = new TaskRunBuilder().withNewMetadata().withName("build").withNamespace("test").endMetadata().build();
+        TaskRunLogWatch logWatch = new TaskRunLogWatch(client, new DefaultTektonClient(client.getConfiguration()), taskRun, console);
+        logWatch.setLogSources(new LogSources(Collections.singletonList(LogSources.live(client))));
+        logWatch.setLogFilters(Collections.singletonList(filter));
+        logWatch.run();
+
+        assertThat(logWatch.getException()).isNull();
+        assertThat(new String(console.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "[Tekton] Pod test/build-pod\n" +
+                "[Tekton] Pod test/build-pod - Running...\n" +
+                "[Tekton] Container test/build-pod/step-compile\n" +
+                "[Tekton] Container test/build-pod/step-compile - Completed\n" +
+                "[Tekton] Omitted 2 lines of the log of container step-compile, showing the last 2\n" +
+                "compiling 3\n" +
+                "compiled\n" +
+                "[Tekton] Container test/build-pod/step-test\n" +
+                "[Tekton] Container test/build-pod/step-test - Completed\n" +
+                "tested\n" +
+                "[Tekton] Pod test/build-pod Status: Succeeded\n");
+    }
+
+    private static Pod pod() {
+        PodBuilder builder = new PodBuilder()
+                .withNewMetadata()
+                    .withName("build-pod")
+                    .withNamespace("test")
+                    .addToLabels("tekton.dev/taskRun", "build")
+                    .addNewOwnerReference().withKind("TaskRun").withName("build").endOwnerReference()
+                .endMetadata()
+                .withNewSpec()
+                    .addNewContainer().withName("step-compile").endContainer()
+                    .addNewContainer().withName("step-test").endContainer()
+                .endSpec()
+                .withNewStatus().withPhase("Succeeded").endStatus();
+        for (String container : Arrays.asList("step-compile", "step-test")) {
+            builder.editStatus()
+                    .addNewContainerStatus()
+                        .withName(container)
+                        .withNewState()
+                            .withTerminated(new ContainerStateTerminatedBuilder().withStartedAt("timestamp").withExitCode(0).build())
+                        .endState()
+                    .endContainerStatus()
+                    .endStatus();
+        }
+        return builder.build();
+    }
+}
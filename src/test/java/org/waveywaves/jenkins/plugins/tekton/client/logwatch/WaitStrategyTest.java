@@ -0,0 +1,77 @@
+package org.waveywaves.jenkins.plugins.tekton.client.logwatch;
+
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRun;
+import io.fabric8.tekton.pipeline.v1beta1.PipelineRunBuilder;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WaitStrategyTest {
+
+    @Test
+    public void testParseGoDuration() {
+        assertThat(WaitStrategy.parseGoDuration("1h0m0s")).isEqualTo(TimeUnit.HOURS.toMillis(1));
+        assertThat(WaitStrategy.parseGoDuration("1h30m")).isEqualTo(TimeUnit.MINUTES.toMillis(90));
+        assertThat(WaitStrategy.parseGoDuration("90s")).isEqualTo(90_000L);
+        assertThat(WaitStrategy.parseGoDuration("1.5s")).isEqualTo(1500L);
+        assertThat(WaitStrategy.parseGoDuration("250ms")).isEqualTo(250L);
+        assertThat(WaitStrategy.parseGoDuration("0")).isEqualTo(0L);
+        assertThat(WaitStrategy.parseGoDuration("")).isEqualTo(-1L);
+        assertThat(WaitStrategy.parseGoDuration("soon")).isEqualTo(-1L);
+        assertThat(WaitStrategy.parseGoDuration("10m later")).isEqualTo(-1L);
+    }
+
+    @Test
+    public void testDefaultDeadline() {
+        WaitStrategy strategy = new WaitStrategy();
+        strategy.setTimeoutMinutes(5);
+        PipelineRun pipelineRun = new PipelineRunBuilder()
+                .withNewMetadata()
+                    .withName("testPipelineRun")
+                .endMetadata()
+                .build();
+
+        long remaining = TimeUnit.NANOSECONDS.toMinutes(strategy.deadlineFor(pipelineRun) - System.nanoTime());
+        assertThat(remaining).isBetween(4L, 5L);
+    }
+
+    @Test
+    public void testWaiterStopsAtDeadline() throws Exception {
+        WaitStrategy strategy = new WaitStrategy();
+        strategy.setInitialDelayMillis(10);
+        strategy.setMaxDelayMillis(20);
+        strategy.setJitter(0);
+        WaitStrategy.Waiter waiter = strategy.newWaiter(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+
+        int polls = 0;
+        while (waiter.await()) {
+            polls++;
+        }
+        assertThat(polls).isBetween(2, 10);
+        assertThat(waiter.getRemainingMillis()).isLessThanOrEqualTo(0L);
+    }
+
+    @Test
+    public void testWaiterWakesUpEarly() throws Exception {
+        WaitStrategy strategy = new WaitStrategy();
+        strategy.setInitialDelayMillis(60_000);
+        WaitStrategy.Waiter waiter = strategy.newWaiter(System.nanoTime() + TimeUnit.MINUTES.toNanos(5));
+
+        Thread waker = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            waiter.wakeUp();
+        });
+        waker.start();
+
+        long start = System.nanoTime();
+        assertThat(waiter.await()).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(30_000L);
+        waker.join();
+    }
+}